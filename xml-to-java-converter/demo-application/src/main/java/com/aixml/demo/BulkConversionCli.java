@@ -0,0 +1,162 @@
+package com.aixml.demo;
+
+import com.aixml.generator.GenerationOptions;
+import com.aixml.mapping.ConversionContext;
+import com.aixml.mapping.ConverterFactory;
+import com.aixml.mapping.XmlToJavaConverter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts every XML document under a directory tree on a pool of workers and reports the
+ * throughput and per-document latency, for bulk conversions and capacity planning. Files ending
+ * in {@code .xml}, {@code .xml.gz} or {@code .xml.zst} are converted; written output mirrors the
+ * input tree under the output directory.
+ */
+@Component
+@Slf4j
+public class BulkConversionCli {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Autowired
+    private XmlToJavaConverter converter;
+
+    public BulkConversionCli() {
+    }
+
+    public BulkConversionCli(XmlToJavaConverter converter) {
+        this.converter = converter;
+    }
+
+    public static void main(String[] args) {
+        BulkConversionOptions options;
+        try {
+            options = BulkConversionOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BulkConversionOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        // Wired without a Spring context, which would add to the startup of every run
+        ThroughputReport report = new BulkConversionCli(ConverterFactory.createConverter()).convertDirectory(options);
+
+        System.out.println(report);
+        System.exit(report.getFailures() == 0 ? 0 : 1);
+    }
+
+    public ThroughputReport convertDirectory(BulkConversionOptions options) {
+        List<Path> files = findXmlFiles(options.getInputDirectory());
+        log.info("Converting {} documents from {} with {} workers",
+                files.size(), options.getInputDirectory(), options.getWorkers());
+
+        long[] latencies = new long[files.size()];
+        AtomicInteger converted = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong inputBytes = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(options.getWorkers());
+        long start = System.nanoTime();
+        try {
+            for (Path file : files) {
+                workers.execute(() -> {
+                    long documentStart = System.nanoTime();
+                    try {
+                        convertFile(file, options);
+                        latencies[converted.getAndIncrement()] = System.nanoTime() - documentStart;
+                        inputBytes.addAndGet(Files.size(file));
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        log.warn("Failed to convert " + file, e);
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bulk conversion interrupted", e);
+        } finally {
+            workers.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] measured = Arrays.copyOf(latencies, converted.get());
+        return new ThroughputReport(files.size(), failures.get(), inputBytes.get(), elapsed,
+                options.getWorkers(), measured);
+    }
+
+    private void convertFile(Path file, BulkConversionOptions options) throws IOException {
+        ConversionContext context;
+        try (InputStream xmlStream = Files.newInputStream(file)) {
+            context = converter.createContext(xmlStream);
+        }
+
+        switch (options.getFormat()) {
+            case OBJECTS:
+                converter.convertXmlToObjects(context);
+                break;
+            case SOURCES:
+                converter.generateClassFilesFromXml(context, options.getPackageName(),
+                        target(file, options, "").toString(), GenerationOptions.defaults());
+                break;
+            case JSON:
+                Path json = target(file, options, ".json");
+                Files.createDirectories(json.getParent());
+                try (JsonGenerator generator = JSON_FACTORY.createGenerator(Files.newOutputStream(json))) {
+                    converter.transcodeToJson(context, generator);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unsupported format " + options.getFormat());
+        }
+    }
+
+    /**
+     * Where the output for {@code file} goes: its path relative to the input directory, under
+     * the output directory, with the XML and compression extensions replaced by {@code extension}.
+     */
+    static Path target(Path file, BulkConversionOptions options, String extension) {
+        Path relative = options.getInputDirectory().relativize(file);
+        String name = relative.getFileName().toString();
+        String baseName = name.substring(0, name.toLowerCase(Locale.ROOT).lastIndexOf(".xml"));
+        return options.getOutputDirectory().resolve(relative).resolveSibling(baseName + extension);
+    }
+
+    static List<Path> findXmlFiles(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(BulkConversionCli::isXmlFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+    }
+
+    private static boolean isXmlFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".xml") || name.endsWith(".xml.gz") || name.endsWith(".xml.zst");
+    }
+}
@@ -0,0 +1,88 @@
+package com.aixml.demo;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Settings of a {@link BulkConversionCli} run.
+ */
+@Data
+@Builder
+public class BulkConversionOptions {
+
+    public enum OutputFormat {
+        /**
+         * Convert to objects and write nothing, to measure the conversion alone.
+         */
+        OBJECTS,
+        /**
+         * Write the generated Java sources of each document.
+         */
+        SOURCES,
+        /**
+         * Write each document as JSON.
+         */
+        JSON
+    }
+
+    static final String USAGE = "Usage: BulkConversionCli <input-dir> [--workers N] [--format objects|sources|json]"
+            + " [--output DIR] [--package NAME]";
+
+    private Path inputDirectory;
+    private Path outputDirectory;
+    @Builder.Default
+    private int workers = Runtime.getRuntime().availableProcessors();
+    @Builder.Default
+    private OutputFormat format = OutputFormat.OBJECTS;
+    @Builder.Default
+    private String packageName = "com.generated.model";
+
+    public static BulkConversionOptions parse(String... args) {
+        BulkConversionOptionsBuilder options = builder();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                options.inputDirectory(Paths.get(arg));
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--workers":
+                    options.workers(Integer.parseInt(value));
+                    break;
+                case "--format":
+                    options.format(OutputFormat.valueOf(value.toUpperCase(Locale.ROOT)));
+                    break;
+                case "--output":
+                    options.outputDirectory(Paths.get(value));
+                    break;
+                case "--package":
+                    options.packageName(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        return options.build().validate();
+    }
+
+    BulkConversionOptions validate() {
+        if (inputDirectory == null) {
+            throw new IllegalArgumentException("No input directory given");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1, was " + workers);
+        }
+        if (format != OutputFormat.OBJECTS && outputDirectory == null) {
+            throw new IllegalArgumentException("Format " + format + " needs --output");
+        }
+        return this;
+    }
+}
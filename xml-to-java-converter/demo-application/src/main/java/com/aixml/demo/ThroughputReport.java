@@ -0,0 +1,69 @@
+package com.aixml.demo;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Throughput and per-document latency of a {@link BulkConversionCli} run. Rates and latencies
+ * cover the converted documents only; failed ones are just counted.
+ */
+@Getter
+public class ThroughputReport {
+
+    private final int documents;
+    private final int failures;
+    /**
+     * Size of the converted files as stored, so compressed for {@code .gz} and {@code .zst} files.
+     */
+    private final long inputBytes;
+    private final long elapsedNanos;
+    private final int workers;
+    private final long[] latencies;
+
+    ThroughputReport(int documents, int failures, long inputBytes, long elapsedNanos, int workers, long[] latencies) {
+        this.documents = documents;
+        this.failures = failures;
+        this.inputBytes = inputBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.workers = workers;
+        this.latencies = latencies.clone();
+        Arrays.sort(this.latencies);
+    }
+
+    public double getDocumentsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (documents - failures) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Rate at which the input files were converted, in megabytes as stored.
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : inputBytes / (1024.0 * 1024.0) * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Latency in nanoseconds that {@code percentile} percent of the converted documents stayed
+     * within, by the nearest-rank method; {@code 0} when none converted.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+        return latencies[Math.max(0, Math.min(latencies.length, rank) - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "Converted %d documents (%d failed), %.1f MB of input as stored (compressed where so)"
+                        + " with %d workers in %.2f s%n"
+                        + "Throughput: %.1f docs/s, %.2f MB/s of input as stored%n"
+                        + "Latency per document: p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                documents - failures, failures, inputBytes / (1024.0 * 1024.0), workers, elapsedNanos / 1e9,
+                getDocumentsPerSecond(), getMegabytesPerSecond(),
+                getLatencyPercentile(50) / 1e6, getLatencyPercentile(99) / 1e6, getLatencyPercentile(100) / 1e6);
+    }
+}
@@ -0,0 +1,107 @@
+package com.aixml.demo;
+
+import com.aixml.mapping.ConverterFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class BulkConversionCliTest {
+
+    private static final String LIBRARY_XML = "<library>" +
+            "<book id=\"1\"><title>Java Programming</title><price>10.5</price></book>" +
+            "<book id=\"2\"><title>XML Basics</title><price>7.25</price></book>" +
+            "</library>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private BulkConversionCli cli;
+    private Path input;
+
+    @Before
+    public void setUp() throws Exception {
+        cli = new BulkConversionCli(ConverterFactory.createConverter());
+
+        input = tempFolder.newFolder("input").toPath();
+        Files.createDirectories(input.resolve("2024/01"));
+        for (int i = 0; i < 5; i++) {
+            Files.write(input.resolve("2024/01/library-" + i + ".xml"),
+                    LIBRARY_XML.replace("XML Basics", "XML Basics " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(input.resolve("archived.xml.gz")))) {
+            out.write(LIBRARY_XML.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(input.resolve("broken.xml"), "<library><book>".getBytes(StandardCharsets.UTF_8));
+        Files.write(input.resolve("notes.txt"), "not XML".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDirectoryIsConvertedToJsonMirroringTheTree() throws Exception {
+        Path output = tempFolder.getRoot().toPath().resolve("json");
+        BulkConversionOptions options = BulkConversionOptions.parse(
+                input.toString(), "--workers", "3", "--format", "json", "--output", output.toString());
+
+        ThroughputReport report = cli.convertDirectory(options);
+        System.out.println(report);
+
+        assertEquals(7, report.getDocuments());
+        assertEquals(1, report.getFailures());
+        assertEquals(6, report.getLatencies().length);
+        assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+        assertTrue(report.getDocumentsPerSecond() > 0);
+
+        String json = new String(Files.readAllBytes(output.resolve("2024/01/library-3.json")), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("XML Basics 3"));
+        assertTrue(Files.exists(output.resolve("archived.json")));
+        assertFalse(Files.exists(output.resolve("notes.json")));
+    }
+
+    @Test
+    public void testSourcesAreWrittenPerDocument() {
+        Path output = tempFolder.getRoot().toPath().resolve("sources");
+        BulkConversionOptions options = BulkConversionOptions.builder()
+                .inputDirectory(input.resolve("2024"))
+                .outputDirectory(output)
+                .format(BulkConversionOptions.OutputFormat.SOURCES)
+                .workers(2)
+                .build();
+
+        ThroughputReport report = cli.convertDirectory(options);
+
+        assertEquals(0, report.getFailures());
+        assertTrue(Files.exists(output.resolve("01/library-0/com/generated/model/Library.java")));
+    }
+
+    @Test
+    public void testOptionsAndPercentiles() {
+        BulkConversionOptions options = BulkConversionOptions.parse("in");
+        assertEquals(BulkConversionOptions.OutputFormat.OBJECTS, options.getFormat());
+        assertTrue(options.getWorkers() >= 1);
+        try {
+            BulkConversionOptions.parse("in", "--format", "json");
+            fail("Written formats need an output directory");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("--output"));
+        }
+
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = (100 - i) * 1_000_000L;
+        }
+        ThroughputReport report = new ThroughputReport(110, 10, 2 * 1024 * 1024, 2_000_000_000L, 4, latencies);
+        assertEquals(50_000_000L, report.getLatencyPercentile(50));
+        assertEquals(99_000_000L, report.getLatencyPercentile(99));
+        assertEquals(100_000_000L, report.getLatencyPercentile(100));
+        assertEquals("Failed documents are not throughput", 50.0, report.getDocumentsPerSecond(), 1e-9);
+        assertEquals(1.0, report.getMegabytesPerSecond(), 1e-9);
+    }
+}
@@ -0,0 +1,116 @@
+package com.aixml.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Converts the documents of a source on a fixed pool while the consumer iterates over the
+ * results. Sources are pulled on the consumer's thread and only while fewer than the in-flight
+ * limit are pending, so memory is bounded by the limit whatever the size of the source and
+ * however slow the consumer. The pool shuts down once the source is drained or on close.
+ */
+@Slf4j
+class BatchIterator<S> implements Iterator<BatchResult<S>>, Closeable {
+
+    private static final AtomicInteger POOL_IDS = new AtomicInteger();
+
+    private final Iterator<? extends S> sources;
+    private final Function<? super S, ConversionResult> conversion;
+    private final ExecutorService executor;
+    private final CompletionService<BatchResult<S>> completion;
+    private final Deque<Future<BatchResult<S>>> pending = new ArrayDeque<>();
+    private final int limit;
+    private final boolean ordered;
+    private int inFlight;
+    private long nextIndex;
+
+    BatchIterator(Iterator<? extends S> sources, Function<? super S, ConversionResult> conversion, BatchOptions options) {
+        this.sources = sources;
+        this.conversion = conversion;
+        this.limit = options.inFlightLimit();
+        this.ordered = options.isOrdered();
+        this.executor = Executors.newFixedThreadPool(options.getParallelism(), daemonThreads());
+        this.completion = new ExecutorCompletionService<>(executor);
+    }
+
+    @Override
+    public boolean hasNext() {
+        fill();
+        if (inFlight == 0) {
+            executor.shutdown();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public BatchResult<S> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            BatchResult<S> result = ordered ? pending.poll().get() : completion.take().get();
+            inFlight--;
+            // Keep the workers busy while the consumer handles this result
+            fill();
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch conversion interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch conversion failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void fill() {
+        while (inFlight < limit && sources.hasNext()) {
+            S source = sources.next();
+            long index = nextIndex++;
+            if (ordered) {
+                pending.add(executor.submit(() -> convert(index, source)));
+            } else {
+                completion.submit(() -> convert(index, source));
+            }
+            inFlight++;
+        }
+    }
+
+    private BatchResult<S> convert(long index, S source) {
+        BatchResult.BatchResultBuilder<S> result = BatchResult.<S>builder().index(index).source(source);
+        try {
+            return result.result(conversion.apply(source)).build();
+        } catch (Exception e) {
+            log.warn("Failed to convert document {} of batch", index, e);
+            return result.error(e).build();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        int pool = POOL_IDS.incrementAndGet();
+        AtomicInteger threads = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "xml-batch-" + pool + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
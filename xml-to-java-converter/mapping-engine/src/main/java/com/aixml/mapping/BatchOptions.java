@@ -0,0 +1,43 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Options for the batch conversions of {@link XmlToJavaConverter}.
+ */
+@Data
+@Builder
+public class BatchOptions {
+
+    /**
+     * Number of documents converted at the same time.
+     */
+    @Builder.Default
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Most documents opened but not yet taken by the consumer, converting or converted;
+     * {@code 0} allows twice the parallelism. Sources are only pulled while below the limit,
+     * so a slow consumer holds back reading instead of piling up results.
+     */
+    private int maxInFlight;
+
+    /**
+     * Deliver results in source order. Unordered delivery hands out each result as soon as
+     * it is ready, so one slow document does not hold back the others.
+     */
+    @Builder.Default
+    private boolean ordered = true;
+
+    int inFlightLimit() {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        return maxInFlight > 0 ? maxInFlight : 2 * parallelism;
+    }
+
+    public static BatchOptions defaults() {
+        return BatchOptions.builder().build();
+    }
+}
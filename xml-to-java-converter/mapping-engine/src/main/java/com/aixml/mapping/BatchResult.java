@@ -0,0 +1,24 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of one document of a batch conversion. A failed document carries its error instead
+ * of a result and does not stop the rest of the batch.
+ */
+@Data
+@Builder
+public class BatchResult<S> {
+    /**
+     * Position of the document in the source, starting at 0.
+     */
+    private long index;
+    private S source;
+    private ConversionResult result;
+    private Exception error;
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A value column of a {@link TableLayout}, filled from an attribute or simple child of the
+ * element.
+ */
+@Data
+@Builder
+public class ColumnLayout {
+    private String name;
+    /**
+     * Property of the bound object holding the value; {@code null} for the value column of a
+     * table of repeated simple values, which holds the values themselves.
+     */
+    private String property;
+    /**
+     * Value type as inferred by the analyzer: Integer, Long, Double, Boolean or String.
+     */
+    private String valueType;
+    /**
+     * JDBC type code from {@link java.sql.Types}.
+     */
+    private int sqlType;
+    /**
+     * Column type as written in the table definition.
+     */
+    private String typeName;
+}
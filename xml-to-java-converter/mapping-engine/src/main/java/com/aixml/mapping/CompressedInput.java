@@ -0,0 +1,77 @@
+package com.aixml.mapping;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Recognises gzip and Zstandard input by its magic bytes and decompresses it as it is read,
+ * so compressed documents stream into the parser without a temporary file or an inflated
+ * copy in memory. Anything else is returned as it is. Zstandard needs the optional
+ * {@code com.github.luben:zstd-jni} dependency.
+ */
+final class CompressedInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int ZSTD_MAGIC = 0x28b52ffd;
+    private static final int ZIP_MAGIC = 0x504b0304;
+
+    private CompressedInput() {
+    }
+
+    /**
+     * Decompressing view of {@code in}, or {@code in} itself when it is not compressed. Only the
+     * magic bytes are read ahead, so plain input is still read no further than the parser asks.
+     */
+    static InputStream open(InputStream in) throws IOException {
+        InputStream input = in.markSupported() ? in : new PushbackInputStream(in, 4);
+        int magic = peekMagic(input);
+        if (magic >>> 16 == GZIP_MAGIC) {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+        if (magic == ZSTD_MAGIC) {
+            try {
+                return Zstd.open(input);
+            } catch (NoClassDefFoundError e) {
+                throw new IllegalStateException("Reading Zstandard input needs com.github.luben:zstd-jni", e);
+            }
+        }
+        if (magic == ZIP_MAGIC) {
+            throw new IllegalArgumentException("Zip archives hold several documents, convert them with convertArchive");
+        }
+        return input;
+    }
+
+    /**
+     * First four bytes of the stream, big-endian, leaving the stream where it was.
+     */
+    private static int peekMagic(InputStream input) throws IOException {
+        byte[] magic = new byte[4];
+        int read;
+        if (input instanceof PushbackInputStream) {
+            read = input.readNBytes(magic, 0, 4);
+            ((PushbackInputStream) input).unread(magic, 0, read);
+        } else {
+            input.mark(4);
+            read = input.readNBytes(magic, 0, 4);
+            input.reset();
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = value << 8 | (i < read ? magic[i] & 0xff : 0);
+        }
+        return value;
+    }
+
+    /**
+     * Kept apart so the optional library is only loaded when Zstandard input turns up.
+     */
+    private static final class Zstd {
+        static InputStream open(InputStream input) throws IOException {
+            return new BufferedInputStream(new com.github.luben.zstd.ZstdInputStream(input), BUFFER_SIZE);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.aixml.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of conversion results addressed by document content. Entries are keyed by
+ * the XXH64 hash and length of the document bytes, and the bytes themselves are kept and
+ * compared on every hit, so a hash collision can never return another document's result.
+ * <p>
+ * The cache is bounded by the total size of the cached documents, which is what a result's
+ * footprint grows with, evicting least recently used entries first; entries also expire a
+ * fixed time after they were stored. Cached results are shared between callers and must not
+ * be modified.
+ */
+@Slf4j
+public class ConversionCache {
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightedSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long evictions;
+
+    /**
+     * @param maxBytes total size of the cached documents, in bytes
+     * @param ttl      how long an entry stays valid after it is stored
+     */
+    public ConversionCache(long maxBytes, Duration ttl) {
+        this(maxBytes, ttl, System::nanoTime);
+    }
+
+    ConversionCache(long maxBytes, Duration ttl, LongSupplier clock) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the result cached for a byte-identical document, or {@code null}.
+     */
+    public ConversionResult get(byte[] xml) {
+        // Hash and compare outside the lock, the only parts proportional to the document;
+        // cached documents are never modified, so the entry can be compared once released
+        Key key = new Key(xml);
+        Entry entry;
+        synchronized (this) {
+            entry = lookup(key);
+        }
+        if (entry == null || !Arrays.equals(entry.document, xml)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.result;
+    }
+
+    private Entry lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.storedAt >= ttlNanos) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the result of converting {@code xml}, keeping the array itself, which must not be
+     * modified afterwards. Documents larger than the whole cache are not stored.
+     */
+    public void put(byte[] xml, ConversionResult result) {
+        if (xml.length > maxBytes) {
+            log.debug("Not caching conversion of {} bytes, larger than the cache", xml.length);
+            return;
+        }
+        Key key = new Key(xml);
+        synchronized (this) {
+            store(key, xml, result);
+        }
+    }
+
+    private void store(Key key, byte[] xml, ConversionResult result) {
+        remove(key);
+        entries.put(key, new Entry(xml, result, clock.getAsLong()));
+        weightedSize += xml.length;
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (weightedSize > maxBytes && eldest.hasNext()) {
+            weightedSize -= eldest.next().getValue().document.length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weightedSize = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total size in bytes of the cached documents.
+     */
+    public synchronized long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Share of lookups answered from the cache, or {@code 0} before the first lookup.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weightedSize -= removed.document.length;
+        }
+    }
+
+    private static final class Key {
+        private final long hash;
+        private final int length;
+
+        private Key(byte[] xml) {
+            this.hash = XxHash64.hash(xml, 0);
+            this.length = xml.length;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && length == key.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + length;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] document;
+        private final ConversionResult result;
+        private final long storedAt;
+
+        private Entry(byte[] document, ConversionResult result, long storedAt) {
+            this.document = document;
+            this.result = result;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.generator.StaxDataBinder;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.w3c.dom.Document;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.dom.DOMSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One parsed and analyzed XML document, shared by every conversion stage. Create it with
+ * {@link XmlToJavaConverter#createContext(String)} and pass it to the converter methods that
+ * accept a context, so the document is parsed and analyzed once however many stages run.
+ */
+@Getter
+public class ConversionContext {
+
+    private static final XMLInputFactory INPUT_FACTORY = StaxDataBinder.createFactory();
+
+    /**
+     * The original content, or {@code null} when the context was created from a stream.
+     */
+    private final String xmlContent;
+    /**
+     * The original bytes, kept only where binding needs them; otherwise stages read the DOM.
+     */
+    @Getter(AccessLevel.NONE)
+    private final byte[] xmlBytes;
+    private final Document document;
+    private final XmlSchema schema;
+    /**
+     * Cost of parsing and analyzing the document.
+     */
+    private final ConversionMetrics metrics;
+
+    ConversionContext(String xmlContent, byte[] xmlBytes, Document document, XmlSchema schema,
+                      ConversionMetrics metrics) {
+        this.xmlContent = xmlContent;
+        this.xmlBytes = xmlBytes;
+        this.document = document;
+        this.schema = schema;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Binds the document to {@code type} by streaming over the original content, or over the
+     * DOM when the content was not kept.
+     */
+    <T> T bind(StaxDataBinder binder, Class<T> type) throws XMLStreamException {
+        XMLStreamReader reader = createReader();
+        try {
+            return binder.bind(reader, type);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The original content as UTF-8 bytes, for binders that work on bytes, or {@code null}
+     * when the context was created from a stream without keeping them.
+     */
+    byte[] bytes() {
+        return xmlContent != null ? xmlContent.getBytes(StandardCharsets.UTF_8) : xmlBytes;
+    }
+
+    /**
+     * Pull parser over the original content, or over the DOM when the content was not kept,
+     * with the binder's parser settings.
+     */
+    XMLStreamReader createReader() throws XMLStreamException {
+        if (xmlContent != null) {
+            return INPUT_FACTORY.createXMLStreamReader(new StringReader(xmlContent));
+        }
+        return xmlBytes != null
+                ? INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xmlBytes))
+                : INPUT_FACTORY.createXMLStreamReader(new DOMSource(document));
+    }
+}
@@ -0,0 +1,130 @@
+package com.aixml.mapping;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage cost of a conversion, in the order the stages first ran. Stages are measured on
+ * the calling thread with the platform {@link ThreadMXBean}: wall time, CPU time and, on JVMs
+ * that support it, bytes allocated by the thread. Stages may be added after the conversion
+ * returns, when a result computes a part lazily.
+ */
+public class ConversionMetrics {
+
+    public static final String ROUTE = "route";
+    public static final String PROJECT = "project";
+    public static final String PARSE = "parse";
+    public static final String ANALYZE = "analyze";
+    public static final String GENERATE = "generate";
+    public static final String RELATIONSHIPS = "relationships";
+    public static final String BIND = "bind";
+    public static final String FILES = "files";
+    public static final String COMPILE = "compile";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+    private static final boolean CPU_TIME = cpuTimeEnabled();
+
+    private final Map<String, StageMetrics> stages = new LinkedHashMap<>();
+
+    public ConversionMetrics() {
+    }
+
+    private ConversionMetrics(ConversionMetrics other) {
+        synchronized (other) {
+            stages.putAll(other.stages);
+        }
+    }
+
+    /**
+     * Snapshot of the stages measured so far.
+     */
+    public synchronized Map<String, StageMetrics> getStages() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(stages));
+    }
+
+    /**
+     * Measurements of {@code stage}, or {@code null} if it did not run.
+     */
+    public synchronized StageMetrics getStage(String stage) {
+        return stages.get(stage);
+    }
+
+    public synchronized long getTotalWallNanos() {
+        long total = 0;
+        for (StageMetrics stage : stages.values()) {
+            total += stage.getWallNanos();
+        }
+        return total;
+    }
+
+    /**
+     * Runs {@code work} as {@code stage}, adding to earlier measurements of the same stage.
+     */
+    <T> T time(String stage, Supplier<T> work) {
+        long thread = Thread.currentThread().getId();
+        long cpuStart = CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+        long allocatedStart = ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(thread) : -1;
+        long wallStart = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long wall = System.nanoTime() - wallStart;
+            long cpu = CPU_TIME ? THREADS.getCurrentThreadCpuTime() - cpuStart : -1;
+            long allocated = ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(thread) - allocatedStart : -1;
+            StageMetrics measured = StageMetrics.builder()
+                    .stage(stage)
+                    .wallNanos(wall)
+                    .cpuNanos(cpu)
+                    .allocatedBytes(allocated)
+                    .build();
+            synchronized (this) {
+                stages.merge(stage, measured, StageMetrics::plus);
+            }
+        }
+    }
+
+    /**
+     * Adds the stages of {@code other} to the measurements of the same stages.
+     */
+    void add(ConversionMetrics other) {
+        Map<String, StageMetrics> measured = other.getStages();
+        synchronized (this) {
+            for (StageMetrics stage : measured.values()) {
+                stages.merge(stage.getStage(), stage, StageMetrics::plus);
+            }
+        }
+    }
+
+    ConversionMetrics copy() {
+        return new ConversionMetrics(this);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder("ConversionMetrics{");
+        String separator = "";
+        for (StageMetrics stage : stages.values()) {
+            text.append(separator).append(stage.getStage()).append('=')
+                .append(stage.getWallNanos() / 1_000).append("us");
+            separator = ", ";
+        }
+        return text.append('}').toString();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+        return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+    }
+
+    private static boolean cpuTimeEnabled() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+}
@@ -0,0 +1,53 @@
+package com.aixml.mapping;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates the {@link ConversionMetrics} of every conversion into per-stage histograms of
+ * wall time, CPU time and allocated bytes. Register one as a bean, or set it on the
+ * {@link XmlToJavaConverter}, and read percentiles from it at any time.
+ */
+public class ConversionMetricsRegistry {
+
+    private final Map<String, StageHistograms> stages = new ConcurrentHashMap<>();
+
+    public void record(ConversionMetrics metrics) {
+        for (StageMetrics stage : metrics.getStages().values()) {
+            StageHistograms histograms = stages.computeIfAbsent(stage.getStage(), name -> new StageHistograms());
+            histograms.wallNanos.record(stage.getWallNanos());
+            histograms.cpuNanos.record(stage.getCpuNanos());
+            histograms.allocatedBytes.record(stage.getAllocatedBytes());
+        }
+    }
+
+    public Set<String> getStageNames() {
+        return Collections.unmodifiableSet(stages.keySet());
+    }
+
+    /**
+     * Wall time histogram of {@code stage} in nanoseconds, or {@code null} if it never ran.
+     */
+    public Histogram getWallTime(String stage) {
+        StageHistograms histograms = stages.get(stage);
+        return histograms != null ? histograms.wallNanos : null;
+    }
+
+    public Histogram getCpuTime(String stage) {
+        StageHistograms histograms = stages.get(stage);
+        return histograms != null ? histograms.cpuNanos : null;
+    }
+
+    public Histogram getAllocatedBytes(String stage) {
+        StageHistograms histograms = stages.get(stage);
+        return histograms != null ? histograms.allocatedBytes : null;
+    }
+
+    private static final class StageHistograms {
+        private final Histogram wallNanos = new Histogram();
+        private final Histogram cpuNanos = new Histogram();
+        private final Histogram allocatedBytes = new Histogram();
+    }
+}
@@ -0,0 +1,40 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Options for {@link XmlToJavaConverter#convertXmlToObjects(String, ConversionOptions)}.
+ */
+@Data
+@Builder
+public class ConversionOptions {
+
+    /**
+     * Generate classes for the document. When off, the root is only bound if a class for it
+     * was generated by an earlier conversion, and the result lists no generated classes.
+     */
+    @Builder.Default
+    private boolean generateClasses = true;
+
+    /**
+     * Offer relationships on the result. They are detected on first access, so callers that
+     * never read them pay nothing either way; when off, the result reports none.
+     */
+    @Builder.Default
+    private boolean detectRelationships = true;
+
+    /**
+     * Keep only these paths of the document. Everything else is skipped while parsing, and
+     * the classes for the projected shape are generated in a package of their own.
+     */
+    private PathProjection projection;
+
+    boolean isDefault() {
+        return generateClasses && detectRelationships && projection == null;
+    }
+
+    public static ConversionOptions defaults() {
+        return ConversionOptions.builder().build();
+    }
+}
@@ -4,26 +4,111 @@ import com.aixml.analyzer.XmlSchema;
 import com.aixml.detector.OneToManyRelation;
 import com.aixml.detector.ManyToManyRelation;
 import com.aixml.detector.ParentChildRelation;
+import com.aixml.detector.RelationshipDetector;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.List;
+import java.util.function.BiFunction;
 
+/**
+ * Outcome of a conversion. When built with a {@link RelationshipDetector}, the relations that
+ * were not set explicitly are detected from {@link #getXmlSchema()} on first access, once,
+ * and the cost is added to the metrics as the relationships stage. The rest of the conversion
+ * is published to the metrics registry when it completes, and each detection when it runs.
+ */
 @Data
 @Builder
+// Going through the getters would run the detection
+@ToString(doNotUseGetters = true)
+@EqualsAndHashCode(doNotUseGetters = true)
 public class ConversionResult {
     private Object rootObject;
     private List<Class<?>> generatedClasses;
     private XmlSchema xmlSchema;
-    private List<OneToManyRelation> oneToManyRelations;
-    private List<ManyToManyRelation> manyToManyRelations;
-    private List<ParentChildRelation> parentChildRelations;
-    
+    private volatile List<OneToManyRelation> oneToManyRelations;
+    private volatile List<ManyToManyRelation> manyToManyRelations;
+    private volatile List<ParentChildRelation> parentChildRelations;
+    /**
+     * Wall time, CPU time and allocations per stage, parsing and analysis included.
+     */
+    private ConversionMetrics metrics;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private RelationshipDetector relationshipDetector;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ConversionMetricsRegistry metricsRegistry;
+
+    public List<OneToManyRelation> getOneToManyRelations() {
+        List<OneToManyRelation> relations = oneToManyRelations;
+        if (relations == null && relationshipDetector != null) {
+            synchronized (this) {
+                if (oneToManyRelations == null) {
+                    oneToManyRelations = detect(RelationshipDetector::detectOneToMany);
+                }
+                relations = oneToManyRelations;
+            }
+        }
+        return relations;
+    }
+
+    public List<ManyToManyRelation> getManyToManyRelations() {
+        List<ManyToManyRelation> relations = manyToManyRelations;
+        if (relations == null && relationshipDetector != null) {
+            synchronized (this) {
+                if (manyToManyRelations == null) {
+                    manyToManyRelations = detect(RelationshipDetector::detectManyToMany);
+                }
+                relations = manyToManyRelations;
+            }
+        }
+        return relations;
+    }
+
+    public List<ParentChildRelation> getParentChildRelations() {
+        List<ParentChildRelation> relations = parentChildRelations;
+        if (relations == null && relationshipDetector != null) {
+            synchronized (this) {
+                if (parentChildRelations == null) {
+                    parentChildRelations = detect(RelationshipDetector::detectHierarchical);
+                }
+                relations = parentChildRelations;
+            }
+        }
+        return relations;
+    }
+
     public List<Object> getRelationships() {
         List<Object> allRelations = new java.util.ArrayList<>();
-        if (oneToManyRelations != null) allRelations.addAll(oneToManyRelations);
-        if (manyToManyRelations != null) allRelations.addAll(manyToManyRelations);
-        if (parentChildRelations != null) allRelations.addAll(parentChildRelations);
+        if (getOneToManyRelations() != null) allRelations.addAll(getOneToManyRelations());
+        if (getManyToManyRelations() != null) allRelations.addAll(getManyToManyRelations());
+        if (getParentChildRelations() != null) allRelations.addAll(getParentChildRelations());
         return allRelations;
     }
-}
\ No newline at end of file
+
+    private <T> List<T> detect(BiFunction<RelationshipDetector, XmlSchema, List<T>> detection) {
+        if (metrics == null) {
+            return detection.apply(relationshipDetector, xmlSchema);
+        }
+        ConversionMetrics detectionMetrics = new ConversionMetrics();
+        List<T> relations = detectionMetrics.time(ConversionMetrics.RELATIONSHIPS,
+                () -> detection.apply(relationshipDetector, xmlSchema));
+        metrics.add(detectionMetrics);
+        if (metricsRegistry != null) {
+            metricsRegistry.record(detectionMetrics);
+        }
+        return relations;
+    }
+}
@@ -11,6 +11,10 @@ public class ConversionResultWithFiles {
     private List<String> generatedFiles;
     private String outputDirectory;
     private String packageName;
+    /**
+     * Wall time, CPU time and allocations per stage, parsing and analysis included.
+     */
+    private ConversionMetrics metrics;
     
     public int getGeneratedFileCount() {
         return generatedFiles != null ? generatedFiles.size() : 0;
@@ -0,0 +1,69 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.RelationshipDetector;
+import com.aixml.generator.BytecodeCache;
+import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.DynamicObjectGenerator;
+import com.aixml.generator.GenerationMode;
+import lombok.Builder;
+
+/**
+ * Wires an {@link XmlToJavaConverter} and its collaborators by constructor, for batch jobs and
+ * command line tools that should not pay for starting a Spring context. The optional settings
+ * are the ones a Spring context would pick up as beans.
+ *
+ * <pre>{@code
+ * XmlToJavaConverter converter = ConverterFactory.createConverter();
+ * }</pre>
+ */
+@Builder
+public class ConverterFactory {
+
+    private ConversionCache conversionCache;
+    private ConversionMetricsRegistry metricsRegistry;
+    private SchemaRegistry schemaRegistry;
+    /**
+     * Shared by the object and class file generators, so generated classes are reused across
+     * runs of short-lived processes.
+     */
+    private BytecodeCache bytecodeCache;
+    /**
+     * {@link GenerationMode#LAZY} converters wrap records and registered documents over their
+     * bytes; documents of unknown shape are still parsed once to generate their classes.
+     */
+    @Builder.Default
+    private GenerationMode generationMode = GenerationMode.STANDARD;
+
+    /**
+     * A converter with the default settings.
+     */
+    public static XmlToJavaConverter createConverter() {
+        return builder().build().create();
+    }
+
+    /**
+     * A new converter with collaborators of its own.
+     */
+    public XmlToJavaConverter create() {
+        if (generationMode == null) {
+            throw new IllegalArgumentException("Generation mode must be set");
+        }
+        DynamicObjectGenerator objectGenerator = new DynamicObjectGenerator();
+        objectGenerator.setGenerationMode(generationMode);
+        ClassFileGenerator classFileGenerator = new ClassFileGenerator();
+        if (bytecodeCache != null) {
+            objectGenerator.setBytecodeCache(bytecodeCache);
+            classFileGenerator.setBytecodeCache(bytecodeCache);
+        }
+
+        XmlToJavaConverter converter = new XmlToJavaConverter(new XmlStructureAnalyzer(), new RelationshipDetector(),
+                objectGenerator, classFileGenerator);
+        converter.setConversionCache(conversionCache);
+        converter.setMetricsRegistry(metricsRegistry);
+        if (schemaRegistry != null) {
+            converter.setSchemaRegistry(schemaRegistry);
+        }
+        return converter;
+    }
+}
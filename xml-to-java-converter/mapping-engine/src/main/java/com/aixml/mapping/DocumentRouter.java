@@ -0,0 +1,59 @@
+package com.aixml.mapping;
+
+import com.aixml.generator.StaxDataBinder;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Identifies a document's type from its root element, reading no more than the prolog and
+ * the root start tag from a buffered prefix, so the stream can be bound from the start.
+ */
+final class DocumentRouter {
+
+    /**
+     * Most bytes read to find the root element.
+     */
+    static final int SNIFF_LIMIT = 8192;
+
+    private static final XMLInputFactory INPUT_FACTORY = StaxDataBinder.createFactory();
+
+    private DocumentRouter() {
+    }
+
+    /**
+     * Qualified name of the root element; {@code xmlStream} must support mark and is reset
+     * to where it was.
+     */
+    static QName rootElement(InputStream xmlStream) throws IOException {
+        xmlStream.mark(SNIFF_LIMIT);
+        byte[] buffer = new byte[SNIFF_LIMIT];
+        int read = xmlStream.readNBytes(buffer, 0, SNIFF_LIMIT);
+        xmlStream.reset();
+        byte[] prefix = Arrays.copyOf(buffer, read);
+        try {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(prefix));
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        return reader.getName();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            if (prefix.length < SNIFF_LIMIT) {
+                throw new IllegalArgumentException("Not an XML document", e);
+            }
+        }
+        throw new IllegalArgumentException("No root element in the first " + SNIFF_LIMIT + " bytes");
+    }
+}
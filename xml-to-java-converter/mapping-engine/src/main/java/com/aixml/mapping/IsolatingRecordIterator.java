@@ -0,0 +1,130 @@
+package com.aixml.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.function.Function;
+
+/**
+ * Reads records with a {@link RecordSplitter} and parses each one on its own, so a record that
+ * is malformed or does not fit the record type goes to the {@link Quarantine} and the records
+ * around it convert as usual. Only the records of the current chunk are held in memory. When
+ * no record type is given it is generated from the first record that yields one. Without a
+ * quarantine the first bad record ends the iteration with an exception instead.
+ */
+@Slf4j
+class IsolatingRecordIterator<T> implements Iterator<T>, Closeable {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final RecordSplitter splitter;
+    private final RecordBinder binder;
+    private final Function<String, Class<?>> typeInference;
+    private final Quarantine quarantine;
+    private Class<?> recordType;
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final Queue<Record> pending = new ArrayDeque<>();
+    private boolean exhausted;
+    private T next;
+
+    IsolatingRecordIterator(InputStream source, String recordPath, RecordBinder binder, Class<?> recordType,
+                            Function<String, Class<?>> typeInference, Quarantine quarantine) {
+        this.source = source;
+        this.splitter = new RecordSplitter(recordPath);
+        this.binder = binder;
+        this.recordType = recordType;
+        this.typeInference = typeInference;
+        this.quarantine = quarantine;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            Record record = pending.poll();
+            if (record == null) {
+                if (exhausted) {
+                    return false;
+                }
+                read();
+                continue;
+            }
+            next = convert(record);
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() {
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.warn("Failed to close XML source", e);
+        }
+    }
+
+    private void read() {
+        try {
+            int read = source.read(chunk);
+            if (read < 0) {
+                exhausted = true;
+                if (quarantine == null) {
+                    splitter.finish();
+                } else if (!splitter.finish((bytes, offset) -> quarantine.add(offset, bytes,
+                        new IllegalStateException("XML input ended inside the record")))) {
+                    log.warn("XML input ended inside an element");
+                }
+                return;
+            }
+            splitter.feed(ByteBuffer.wrap(chunk, 0, read), (bytes, offset) -> pending.add(new Record(offset, bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read XML records", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T convert(Record record) {
+        try {
+            if (recordType == null) {
+                recordType = typeInference.apply(new String(record.bytes, StandardCharsets.UTF_8));
+            }
+            return (T) binder.bind(record.bytes, recordType);
+        } catch (Exception e) {
+            if (quarantine == null) {
+                throw new RuntimeException("Failed to bind record at byte offset " + record.offset, e);
+            }
+            quarantine.add(record.offset, record.bytes, e);
+            return null;
+        }
+    }
+
+    private static final class Record {
+        private final long offset;
+        private final byte[] bytes;
+
+        Record(long offset, byte[] bytes) {
+            this.offset = offset;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Options for loading converted objects with a {@link JdbcSink}.
+ */
+@Data
+@Builder
+public class JdbcLoadOptions {
+
+    /**
+     * Rows queued per table before the batches are sent to the database.
+     */
+    @Builder.Default
+    private int batchSize = 1000;
+
+    /**
+     * Rows written per transaction. The last, partial transaction is committed on close.
+     */
+    @Builder.Default
+    private int commitInterval = 10_000;
+
+    /**
+     * Create the tables that do not exist yet when the sink is opened.
+     */
+    @Builder.Default
+    private boolean createTables = true;
+
+    /**
+     * Column type for text values.
+     */
+    @Builder.Default
+    private String textType = "VARCHAR(4000)";
+
+    public static JdbcLoadOptions defaults() {
+        return JdbcLoadOptions.builder().build();
+    }
+}
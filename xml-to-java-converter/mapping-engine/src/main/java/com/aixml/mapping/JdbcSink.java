@@ -0,0 +1,621 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.ParentChildRelation;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Loads bound objects into relational tables laid out from the {@link XmlSchema}: one table per
+ * complex element, with a key generated by the database, a column per attribute and simple
+ * child, and a foreign key to the table of each element it occurs under. Repeated simple
+ * children go to a table of their own. Rows are sent through one batched
+ * {@link PreparedStatement} per table, a row once the row it refers to has its key, and
+ * committed every {@link JdbcLoadOptions#getCommitInterval()} rows; a failed load is rolled
+ * back to the last commit. Objects of any element with a table can be written, whole documents
+ * or records streamed from one. Not safe for concurrent use, but sinks on separate connections
+ * can load the same tables at once.
+ */
+@Slf4j
+public class JdbcSink implements Closeable {
+
+    static final String KEY_COLUMN = "_id";
+
+    private final Connection connection;
+    private final JdbcLoadOptions options;
+    private final List<TableLayout> tables;
+    private final Map<String, TableWriter> writers = new LinkedHashMap<>();
+    private final Map<String, TableWriter> writersByClass = new HashMap<>();
+    private final Map<Class<?>, Map<String, Accessor>> accessors = new ConcurrentHashMap<>();
+    private long uncommittedRows;
+    private long rowCount;
+    private boolean failed;
+
+    public JdbcSink(DataSource dataSource, List<TableLayout> tables, JdbcLoadOptions options) {
+        this.options = options;
+        this.tables = List.copyOf(tables);
+        try {
+            this.connection = dataSource.getConnection();
+        } catch (SQLException e) {
+            log.error("Error connecting to database", e);
+            throw new RuntimeException("Opening JDBC sink failed", e);
+        }
+        try {
+            connection.setAutoCommit(false);
+            if (options.isCreateTables()) {
+                createTables();
+            }
+            for (TableLayout table : tables) {
+                TableWriter writer = new TableWriter(table,
+                        connection.prepareStatement(table.insertStatement(), new String[] {table.getKeyColumn()}));
+                writers.put(table.getTableName(), writer);
+                if (table.getValuesProperty() == null) {
+                    writersByClass.put(capitalize(table.getElementName()), writer);
+                }
+            }
+            for (TableLayout table : tables) {
+                if (table.getValuesProperty() != null) {
+                    String parent = table.getParentKeyColumns().keySet().iterator().next();
+                    writers.get(parent).valueTables.add(writers.get(table.getTableName()));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error preparing tables", e);
+            closeQuietly();
+            throw new RuntimeException("Opening JDBC sink failed", e);
+        }
+    }
+
+    /**
+     * Lays out the tables for {@code schema}, parents before children, taking the nesting of
+     * complex elements from {@code relations}.
+     */
+    public static List<TableLayout> layout(XmlSchema schema, List<ParentChildRelation> relations,
+                                           JdbcLoadOptions options) {
+        // The first complex definition of a name is the one its class is generated from
+        Map<String, ElementDefinition> definitions = new LinkedHashMap<>();
+        // Column types widened across every occurrence, keyed by element then by attribute or child
+        Map<String, Map<String, String>> attributeTypes = new HashMap<>();
+        Map<String, Map<String, String>> childTypes = new HashMap<>();
+        for (ElementDefinition element : schema.getElements()) {
+            if (element.getParentElement() == null || isComplex(element)) {
+                definitions.putIfAbsent(element.getName(), element);
+                valueTypes(element, attributeTypes.computeIfAbsent(element.getName(), name -> new HashMap<>()),
+                        childTypes.computeIfAbsent(element.getName(), name -> new HashMap<>()));
+            }
+        }
+        Map<String, Set<String>> parents = new HashMap<>();
+        for (ParentChildRelation relation : relations) {
+            if (definitions.containsKey(relation.getParentElement()) && definitions.containsKey(relation.getChildElement())) {
+                parents.computeIfAbsent(relation.getChildElement(), name -> new LinkedHashSet<>())
+                        .add(relation.getParentElement());
+            }
+        }
+
+        Set<String> tableNames = new HashSet<>();
+        Map<String, String> tableByElement = new HashMap<>();
+        List<String> ordered = parentsFirst(definitions.keySet(), parents);
+        for (String element : ordered) {
+            tableByElement.put(element, unique(sanitize(element), tableNames));
+        }
+
+        List<TableLayout> layouts = new ArrayList<>();
+        for (String element : ordered) {
+            String tableName = tableByElement.get(element);
+            ElementDefinition definition = definitions.get(element);
+            Set<String> columnNames = new HashSet<>(Collections.singleton(KEY_COLUMN));
+
+            Map<String, String> parentKeyColumns = new LinkedHashMap<>();
+            for (String parent : parents.getOrDefault(element, Collections.emptySet())) {
+                String parentTable = tableByElement.get(parent);
+                parentKeyColumns.put(parentTable, unique(parentTable + KEY_COLUMN, columnNames));
+            }
+
+            List<ColumnLayout> columns = new ArrayList<>();
+            if (definition.getAttributes() != null) {
+                for (Map.Entry<String, String> attribute : new TreeMap<>(definition.getAttributes()).entrySet()) {
+                    columns.add(column(unique(sanitize(attribute.getKey()), columnNames), attribute.getKey(),
+                            attributeTypes.get(element).get(attribute.getKey()), options));
+                }
+            }
+
+            List<String> childProperties = new ArrayList<>();
+            List<TableLayout> valueTables = new ArrayList<>();
+            for (Map.Entry<String, List<ElementDefinition>> group : childGroups(definition).entrySet()) {
+                String child = group.getKey();
+                boolean repeated = group.getValue().size() > 1;
+                String property = repeated ? child + "List" : child;
+                if (definitions.containsKey(child)) {
+                    childProperties.add(property);
+                } else if (repeated) {
+                    Map<String, String> valueParent = new LinkedHashMap<>();
+                    valueParent.put(tableName, tableName + KEY_COLUMN);
+                    valueTables.add(TableLayout.builder()
+                            .elementName(child)
+                            .tableName(unique(tableName + "_" + sanitize(child), tableNames))
+                            .keyColumn(KEY_COLUMN)
+                            .parentKeyColumns(valueParent)
+                            .columns(List.of(column("value", null, childTypes.get(element).get(child), options)))
+                            .childProperties(List.of())
+                            .valuesProperty(property)
+                            .build());
+                } else {
+                    columns.add(column(unique(sanitize(child), columnNames), property,
+                            childTypes.get(element).get(child), options));
+                }
+            }
+
+            layouts.add(TableLayout.builder()
+                    .elementName(element)
+                    .tableName(tableName)
+                    .keyColumn(KEY_COLUMN)
+                    .parentKeyColumns(parentKeyColumns)
+                    .columns(columns)
+                    .childProperties(childProperties)
+                    .build());
+            layouts.addAll(valueTables);
+        }
+        return layouts;
+    }
+
+    public List<TableLayout> getTables() {
+        return tables;
+    }
+
+    /**
+     * Rows queued or written so far.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes {@code record} and the elements nested in it. A record written on its own, not
+     * as part of its parent, has no parent key.
+     */
+    public void write(Object record) {
+        if (failed) {
+            throw new IllegalStateException("JDBC sink failed earlier and was rolled back");
+        }
+        try {
+            write(record, null, null);
+        } catch (Exception e) {
+            log.error("Error writing " + record.getClass().getSimpleName() + " to database", e);
+            failed = true;
+            rollbackQuietly();
+            throw new RuntimeException("JDBC load failed", e);
+        }
+    }
+
+    public void writeAll(Stream<?> records) {
+        records.forEach(this::write);
+    }
+
+    /**
+     * Sends the queued rows and commits them.
+     */
+    public void flush() {
+        if (failed) {
+            throw new IllegalStateException("JDBC sink failed earlier and was rolled back");
+        }
+        try {
+            commit();
+        } catch (SQLException e) {
+            log.error("Error committing rows", e);
+            failed = true;
+            rollbackQuietly();
+            throw new RuntimeException("JDBC load failed", e);
+        }
+    }
+
+    /**
+     * Commits the remaining rows, unless the load failed, and closes the connection.
+     */
+    @Override
+    public void close() {
+        try {
+            if (!failed) {
+                flush();
+            }
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void write(Object object, String parentTable, Row parent) throws Exception {
+        TableWriter writer = writersByClass.get(object.getClass().getSimpleName());
+        if (writer == null) {
+            throw new IllegalArgumentException("No table for " + object.getClass().getName());
+        }
+        TableLayout table = writer.layout;
+        Object[] values = new Object[table.getColumns().size()];
+        for (int i = 0; i < values.length; i++) {
+            ColumnLayout column = table.getColumns().get(i);
+            values[i] = sqlValue(property(object, column.getProperty()), column);
+        }
+        Row row = queue(writer, new Row(parentTable, parent, values));
+
+        for (TableWriter valueWriter : writer.valueTables) {
+            ColumnLayout column = valueWriter.layout.getColumns().get(0);
+            for (Object value : elements(property(object, valueWriter.layout.getValuesProperty()))) {
+                queue(valueWriter, new Row(table.getTableName(), row, new Object[] {sqlValue(value, column)}));
+            }
+        }
+
+        for (String childProperty : table.getChildProperties()) {
+            for (Object child : elements(property(object, childProperty))) {
+                write(child, table.getTableName(), row);
+            }
+        }
+    }
+
+    private Row queue(TableWriter writer, Row row) throws SQLException {
+        writer.queued.add(row);
+        uncommittedRows++;
+        rowCount++;
+        if (uncommittedRows >= options.getCommitInterval()) {
+            commit();
+        } else if (writer.queued.size() >= options.getBatchSize()) {
+            executeBatches();
+        }
+        return row;
+    }
+
+    /**
+     * Sends every table's queued rows. A row is sent once the row it refers to has its key, so
+     * the rows of elements nested in each other go out over several rounds.
+     */
+    private void executeBatches() throws SQLException {
+        boolean sent;
+        do {
+            sent = false;
+            for (TableWriter writer : writers.values()) {
+                sent |= writer.executeReady();
+            }
+        } while (sent);
+    }
+
+    private void commit() throws SQLException {
+        executeBatches();
+        connection.commit();
+        log.debug("Committed {} rows", uncommittedRows);
+        uncommittedRows = 0;
+    }
+
+    private void createTables() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (TableLayout table : tables) {
+                statement.execute(table.createStatement());
+            }
+        }
+        connection.commit();
+    }
+
+    private Object property(Object object, String property) throws Exception {
+        Accessor accessor = accessors.computeIfAbsent(object.getClass(), type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(property, name -> Accessor.of(object.getClass(), name));
+        return accessor.get(object);
+    }
+
+    private static void setValue(PreparedStatement insert, int index, ColumnLayout column, Object sqlValue)
+            throws SQLException {
+        if (sqlValue == null) {
+            insert.setNull(index, column.getSqlType());
+        } else {
+            insert.setObject(index, sqlValue, column.getSqlType());
+        }
+    }
+
+    /**
+     * Value for the column's type; attributes and untyped lists hold their values as text.
+     */
+    private static Object sqlValue(Object value, ColumnLayout column) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String && !"String".equals(column.getValueType())) {
+            String text = ((String) value).trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                switch (column.getValueType()) {
+                    case "Integer":
+                        return Integer.valueOf(text);
+                    case "Long":
+                        return Long.valueOf(text);
+                    case "Double":
+                        return Double.valueOf(text);
+                    case "Boolean":
+                        return Boolean.valueOf(text);
+                    default:
+                        return text;
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Value '" + text + "' does not fit " + column.getValueType()
+                        + " column " + column.getName(), e);
+            }
+        }
+        return "String".equals(column.getValueType()) ? value.toString() : value;
+    }
+
+    private static List<Object> elements(Object value) {
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof Collection) {
+            List<Object> elements = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                if (element != null) {
+                    elements.add(element);
+                }
+            }
+            return elements;
+        }
+        if (value.getClass().isArray()) {
+            List<Object> elements = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                elements.add(Array.get(value, i));
+            }
+            return elements;
+        }
+        return Collections.singletonList(value);
+    }
+
+    private static ColumnLayout column(String name, String property, String valueType, JdbcLoadOptions options) {
+        ColumnLayout.ColumnLayoutBuilder column = ColumnLayout.builder().name(name).property(property);
+        switch (valueType == null ? "String" : valueType) {
+            case "Integer":
+                return column.valueType("Integer").sqlType(Types.INTEGER).typeName("INTEGER").build();
+            case "Long":
+                return column.valueType("Long").sqlType(Types.BIGINT).typeName("BIGINT").build();
+            case "Double":
+                return column.valueType("Double").sqlType(Types.DOUBLE).typeName("DOUBLE PRECISION").build();
+            case "Boolean":
+                return column.valueType("Boolean").sqlType(Types.BOOLEAN).typeName("BOOLEAN").build();
+            default:
+                return column.valueType("String").sqlType(Types.VARCHAR).typeName(options.getTextType()).build();
+        }
+    }
+
+    private static List<String> parentsFirst(Collection<String> elements, Map<String, Set<String>> parents) {
+        List<String> ordered = new ArrayList<>();
+        Set<String> placed = new HashSet<>();
+        while (ordered.size() < elements.size()) {
+            String next = null;
+            for (String element : elements) {
+                if (!placed.contains(element) && allPlaced(element, parents, placed)) {
+                    next = element;
+                    break;
+                }
+            }
+            if (next == null) {
+                // Elements nested in each other; their rows are sent over several rounds
+                for (String element : elements) {
+                    if (!placed.contains(element)) {
+                        next = element;
+                        break;
+                    }
+                }
+            }
+            ordered.add(next);
+            placed.add(next);
+        }
+        return ordered;
+    }
+
+    private static boolean allPlaced(String element, Map<String, Set<String>> parents, Set<String> placed) {
+        for (String parent : parents.getOrDefault(element, Collections.emptySet())) {
+            if (!parent.equals(element) && !placed.contains(parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, List<ElementDefinition>> childGroups(ElementDefinition definition) {
+        Map<String, List<ElementDefinition>> groups = new LinkedHashMap<>();
+        if (definition.getChildren() != null) {
+            for (ElementDefinition child : definition.getChildren()) {
+                groups.computeIfAbsent(child.getName(), name -> new ArrayList<>()).add(child);
+            }
+        }
+        return groups;
+    }
+
+    private static void valueTypes(ElementDefinition element, Map<String, String> attributeTypes,
+                                   Map<String, String> childTypes) {
+        if (element.getAttributes() != null) {
+            for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+                attributeTypes.merge(attribute.getKey(), XmlStructureAnalyzer.inferValueType(attribute.getValue()),
+                        XmlStructureAnalyzer::widenValueType);
+            }
+        }
+        if (element.getChildren() != null) {
+            for (ElementDefinition child : element.getChildren()) {
+                childTypes.merge(child.getName(), child.getType(), XmlStructureAnalyzer::widenValueType);
+            }
+        }
+    }
+
+    private static boolean isComplex(ElementDefinition element) {
+        return element.getChildren() != null && !element.getChildren().isEmpty() ||
+               element.getAttributes() != null && !element.getAttributes().isEmpty();
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    private static String unique(String name, Set<String> used) {
+        String candidate = name;
+        for (int i = 2; !used.add(candidate); i++) {
+            candidate = name + "_" + i;
+        }
+        return candidate;
+    }
+
+    private static String capitalize(String str) {
+        return str.isEmpty() ? str : str.substring(0, 1).toUpperCase() + str.substring(1);
+    }
+
+    static String quote(String identifier) {
+        return '"' + identifier + '"';
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("Failed to roll back", e);
+        }
+    }
+
+    private void closeQuietly() {
+        for (TableWriter writer : writers.values()) {
+            try {
+                writer.insert.close();
+            } catch (SQLException e) {
+                log.warn("Failed to close statement for " + writer.layout.getTableName(), e);
+            }
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close database connection", e);
+        }
+    }
+
+    private static final class TableWriter {
+        private final TableLayout layout;
+        private final PreparedStatement insert;
+        private final List<TableWriter> valueTables = new ArrayList<>();
+        private final List<Row> queued = new ArrayList<>();
+
+        TableWriter(TableLayout layout, PreparedStatement insert) {
+            this.layout = layout;
+            this.insert = insert;
+        }
+
+        /**
+         * Sends the queued rows whose parent row has its key, and reads back their own keys.
+         * Returns whether any row was sent.
+         */
+        boolean executeReady() throws SQLException {
+            List<Row> ready = new ArrayList<>();
+            for (Iterator<Row> rows = queued.iterator(); rows.hasNext(); ) {
+                Row row = rows.next();
+                if (row.parent == null || row.parent.key != null) {
+                    bind(row);
+                    insert.addBatch();
+                    ready.add(row);
+                    rows.remove();
+                }
+            }
+            if (ready.isEmpty()) {
+                return false;
+            }
+
+            insert.executeBatch();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                for (Row row : ready) {
+                    if (!keys.next()) {
+                        throw new SQLException("No generated key returned for a row of " + layout.getTableName());
+                    }
+                    row.key = keys.getLong(1);
+                }
+            }
+            return true;
+        }
+
+        private void bind(Row row) throws SQLException {
+            int index = 1;
+            for (String parent : layout.getParentKeyColumns().keySet()) {
+                if (row.parent != null && parent.equals(row.parentTable)) {
+                    insert.setLong(index++, row.parent.key);
+                } else {
+                    insert.setNull(index++, Types.BIGINT);
+                }
+            }
+            for (int i = 0; i < row.values.length; i++) {
+                setValue(insert, index++, layout.getColumns().get(i), row.values[i]);
+            }
+        }
+    }
+
+    /**
+     * A queued row, with the row of the element it was found in, if any. Its key is known
+     * once it has been inserted.
+     */
+    private static final class Row {
+        private final String parentTable;
+        private final Row parent;
+        private final Object[] values;
+        private Long key;
+
+        Row(String parentTable, Row parent, Object[] values) {
+            this.parentTable = parentTable;
+            this.parent = parent;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Reads one property of a bound object through its getter. A property the class does not
+     * have, or a compact field that was never set, reads as {@code null}.
+     */
+    private static final class Accessor {
+        private final Method getter;
+        private final Method presence;
+
+        private Accessor(Method getter, Method presence) {
+            this.getter = getter;
+            this.presence = presence;
+        }
+
+        static Accessor of(Class<?> type, String property) {
+            return new Accessor(method(type, "get" + capitalize(property)), method(type, "has" + capitalize(property)));
+        }
+
+        Object get(Object object) throws Exception {
+            if (getter == null || presence != null && !(Boolean) presence.invoke(object)) {
+                return null;
+            }
+            return getter.invoke(object);
+        }
+
+        private static Method method(Class<?> type, String name) {
+            try {
+                return type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+}
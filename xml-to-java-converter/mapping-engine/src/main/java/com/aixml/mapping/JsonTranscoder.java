@@ -0,0 +1,219 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Writes XML parse events straight to a {@link JsonGenerator}, shaped by an {@link XmlSchema}
+ * instead of by bound objects. The layout follows Jackson's XML module: the root element
+ * becomes the top-level object, attributes and children become fields, and text next to
+ * attributes or children goes to the {@code ""} field. Unlike reading with the XML module,
+ * a child that the schema shows repeating under its parent is always written as an array,
+ * even where it occurs once, and leaf values are written as numbers or booleans where the
+ * schema inferred those types.
+ * <p>
+ * Repeated children normally arrive grouped and are streamed into their array directly.
+ * Parents whose repeated children interleave with other elements in the analyzed document
+ * buffer those children until the parent ends.
+ */
+final class JsonTranscoder {
+
+    private static final String TEXT_FIELD = "";
+    private static final Pattern JSON_INTEGER = Pattern.compile("-?(0|[1-9]\\d*)");
+    private static final Pattern JSON_NUMBER = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    private final Map<String, Shape> shapes = new HashMap<>();
+
+    JsonTranscoder(XmlSchema schema) {
+        for (ElementDefinition element : schema.getElements()) {
+            Shape shape = shapes.computeIfAbsent(element.getName(), name -> new Shape());
+            boolean hasChildren = element.getChildren() != null && !element.getChildren().isEmpty();
+            boolean hasAttributes = element.getAttributes() != null && !element.getAttributes().isEmpty();
+            shape.complex |= hasChildren || hasAttributes;
+            if (!hasChildren) {
+                shape.valueType = shape.valueType == null ? element.getType() : XmlStructureAnalyzer.widenValueType(shape.valueType, element.getType());
+                continue;
+            }
+
+            Map<String, Integer> counts = new HashMap<>();
+            String previous = null;
+            Set<String> closed = new HashSet<>();
+            for (ElementDefinition child : element.getChildren()) {
+                String name = child.getName();
+                if (counts.merge(name, 1, Integer::sum) > 1) {
+                    shape.repeated.add(name);
+                }
+                if (!name.equals(previous)) {
+                    if (!closed.add(name)) {
+                        shape.interleaved = true;
+                    }
+                    previous = name;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transcodes the element at or after the reader's position.
+     */
+    void transcode(XMLStreamReader reader, JsonGenerator generator) throws XMLStreamException, IOException {
+        while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+            if (!reader.hasNext()) {
+                throw new XMLStreamException("No element to transcode", reader.getLocation());
+            }
+            reader.next();
+        }
+        writeElement(reader, generator);
+        generator.flush();
+    }
+
+    /**
+     * Writes the value of the element the reader is on and leaves the reader on its end tag.
+     */
+    private void writeElement(XMLStreamReader reader, JsonGenerator generator) throws XMLStreamException, IOException {
+        Shape shape = shapes.get(qualifiedName(reader));
+        if (shape == null || !shape.complex) {
+            writeValue(leafText(reader), shape != null ? shape.valueType : null, generator);
+            return;
+        }
+
+        generator.writeStartObject();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            String name = prefix == null || prefix.isEmpty()
+                    ? reader.getAttributeLocalName(i)
+                    : prefix + ":" + reader.getAttributeLocalName(i);
+            generator.writeStringField(name, reader.getAttributeValue(i));
+        }
+
+        Map<String, TokenBuffer> buffered = shape.interleaved ? new LinkedHashMap<>() : null;
+        Set<String> written = new HashSet<>();
+        String openArray = null;
+        StringBuilder text = null;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = qualifiedName(reader);
+                if (openArray != null && !openArray.equals(name)) {
+                    generator.writeEndArray();
+                    openArray = null;
+                }
+                if (!shape.repeated.contains(name)) {
+                    generator.writeFieldName(name);
+                    writeElement(reader, generator);
+                } else if (buffered != null) {
+                    TokenBuffer items = buffered.get(name);
+                    if (items == null) {
+                        items = new TokenBuffer(generator.getCodec(), false);
+                        buffered.put(name, items);
+                    }
+                    writeElement(reader, items);
+                } else {
+                    if (openArray == null) {
+                        if (!written.add(name)) {
+                            throw new XMLStreamException("Occurrences of <" + name + "> are not grouped as in the "
+                                    + "schema; transcode with a schema of this document", reader.getLocation());
+                        }
+                        generator.writeArrayFieldStart(name);
+                        openArray = name;
+                    }
+                    writeElement(reader, generator);
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text = text == null ? new StringBuilder() : text;
+                text.append(reader.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+        if (openArray != null) {
+            generator.writeEndArray();
+        }
+        if (buffered != null) {
+            for (Map.Entry<String, TokenBuffer> items : buffered.entrySet()) {
+                generator.writeArrayFieldStart(items.getKey());
+                items.getValue().serialize(generator);
+                generator.writeEndArray();
+            }
+        }
+        String trimmed = text != null ? text.toString().trim() : "";
+        if (!trimmed.isEmpty()) {
+            generator.writeStringField(TEXT_FIELD, trimmed);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Text of an element expected to be a leaf; unexpected child elements are skipped.
+     */
+    private static String leafText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private static void writeValue(String text, String valueType, JsonGenerator generator) throws IOException {
+        String trimmed = text.trim();
+        if (valueType == null || "String".equals(valueType)) {
+            generator.writeString(text);
+        } else if (trimmed.isEmpty()) {
+            generator.writeNull();
+        } else if ("Boolean".equals(valueType) && (trimmed.equals("true") || trimmed.equals("false"))) {
+            generator.writeBoolean(trimmed.equals("true"));
+        } else if (isJsonNumber(trimmed, valueType)) {
+            generator.writeNumber(trimmed);
+        } else {
+            // The schema came from another document and does not fit this value
+            generator.writeString(text);
+        }
+    }
+
+    private static boolean isJsonNumber(String value, String valueType) {
+        switch (valueType) {
+            case "Integer":
+            case "Long":
+                return JSON_INTEGER.matcher(value).matches();
+            case "Double":
+                return JSON_NUMBER.matcher(value).matches();
+            default:
+                return false;
+        }
+    }
+
+    private static String qualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
+
+    private static final class Shape {
+        private boolean complex;
+        private String valueType;
+        private boolean interleaved;
+        private final Set<String> repeated = new HashSet<>();
+    }
+}
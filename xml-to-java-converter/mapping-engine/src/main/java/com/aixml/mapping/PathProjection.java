@@ -0,0 +1,306 @@
+package com.aixml.mapping;
+
+import com.aixml.generator.StaxDataBinder;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of paths to keep from a document, such as {@code library/books/book/title} and
+ * {@code library/books/book/@id}. Segments are element names from the root, {@code *} matches
+ * any name and a final {@code @name} (or {@code @*}) keeps an attribute of the element before
+ * it. An element matched by a whole path is kept with everything inside it.
+ * <p>
+ * The paths are compiled into an automaton whose states, sets of positions in the paths, are
+ * built on first use and then shared, so each start tag costs one map lookup. Subtrees no path
+ * can reach are skipped with the parser without decoding their text. Projections
+ * are immutable and can be shared between threads.
+ */
+public final class PathProjection {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final String WILDCARD = "*";
+
+    private final List<String> paths;
+    private final State start;
+
+    private PathProjection(List<String> paths) {
+        Node root = new Node();
+        for (String path : paths) {
+            add(root, path);
+        }
+        this.paths = Collections.unmodifiableList(paths);
+        this.start = new State(Collections.singletonList(root));
+    }
+
+    public static PathProjection of(String... paths) {
+        return of(Arrays.asList(paths));
+    }
+
+    public static PathProjection of(Collection<String> paths) {
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("A projection needs at least one path");
+        }
+        return new PathProjection(new ArrayList<>(paths));
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    @Override
+    public String toString() {
+        return "PathProjection" + paths;
+    }
+
+    /**
+     * Package for the classes generated from projected documents, distinct per set of paths
+     * so they never collide with the classes of whole documents.
+     */
+    String packageName(String basePackage) {
+        byte[] key = String.join("\n", new TreeSet<>(paths)).getBytes(StandardCharsets.UTF_8);
+        return basePackage + ".p" + Long.toHexString(XxHash64.hash(key, 0));
+    }
+
+    /**
+     * Writes the projected document as UTF-8. The root element is always kept, so the result
+     * is well-formed even when nothing matches.
+     */
+    byte[] project(InputStream xmlStream) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(xmlStream);
+        try {
+            ByteArrayOutputStream projected = new ByteArrayOutputStream();
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(projected, "UTF-8");
+            project(reader, writer);
+            writer.close();
+            return projected.toByteArray();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void project(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        reader.nextTag();
+        State root = start.next(reader.getLocalName());
+        writer.writeStartElement(reader.getLocalName());
+        if (root.selected) {
+            copyAttributes(reader, writer, null);
+            copyContent(reader, writer);
+        } else {
+            copyAttributes(reader, writer, root);
+            projectContent(reader, writer, root);
+        }
+        writer.writeEndElement();
+        writer.writeEndDocument();
+    }
+
+    /**
+     * Projects the children of the current element, leaving the reader on its end tag. Text
+     * between the children of an element on a path is not kept, so it is never read.
+     */
+    private void projectContent(XMLStreamReader reader, XMLStreamWriter writer, State state)
+            throws XMLStreamException {
+        while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+            if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            State child = state.next(reader.getLocalName());
+            if (child.isDead()) {
+                skip(reader);
+                continue;
+            }
+            writer.writeStartElement(reader.getLocalName());
+            if (child.selected) {
+                copyAttributes(reader, writer, null);
+                copyContent(reader, writer);
+            } else {
+                copyAttributes(reader, writer, child);
+                if (child.hasChildren) {
+                    projectContent(reader, writer, child);
+                } else {
+                    skip(reader);
+                }
+            }
+            writer.writeEndElement();
+        }
+    }
+
+    /**
+     * Copies the whole content of the current element, leaving the reader on its end tag.
+     */
+    private static void copyContent(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    writer.writeStartElement(reader.getLocalName());
+                    copyAttributes(reader, writer, null);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth-- == 0) {
+                        return;
+                    }
+                    writer.writeEndElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Copies the attributes {@code state} keeps, or all of them when {@code state} is
+     * {@code null}.
+     */
+    private static void copyAttributes(XMLStreamReader reader, XMLStreamWriter writer, State state)
+            throws XMLStreamException {
+        if (state != null && !state.allAttributes && state.attributes.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            if (state == null || state.allAttributes || state.attributes.contains(name)) {
+                writer.writeAttribute(name, reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    /**
+     * Moves past the current element without looking at anything inside it.
+     */
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT && depth-- == 0) {
+                return;
+            }
+        }
+    }
+
+    private static void add(Node root, String path) {
+        String[] segments = RecordIterator.parsePath(path);
+        Node node = root;
+        int elements = segments.length;
+        String attribute = null;
+        if (segments[elements - 1].startsWith("@")) {
+            attribute = segments[--elements].substring(1);
+            if (elements == 0 || attribute.isEmpty()) {
+                throw new IllegalArgumentException("Attribute path must name its element and attribute: " + path);
+            }
+        }
+        for (int i = 0; i < elements; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty() || segment.startsWith("@")) {
+                throw new IllegalArgumentException("Invalid path segment '" + segment + "' in " + path);
+            }
+            node = node.child(segment);
+        }
+        if (attribute == null) {
+            node.selected = true;
+        } else {
+            node.attributes.add(attribute);
+        }
+    }
+
+    /**
+     * Position in the paths, one segment deep.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private final Set<String> attributes = new HashSet<>();
+        private boolean selected;
+
+        Node child(String name) {
+            return children.computeIfAbsent(name, key -> new Node());
+        }
+    }
+
+    /**
+     * State of the automaton: every path position an element may be at.
+     */
+    private static final class State {
+        private final List<Node> nodes;
+        private final Map<String, State> transitions = new ConcurrentHashMap<>();
+        private final boolean selected;
+        private final boolean hasChildren;
+        private final boolean allAttributes;
+        private final Set<String> attributes = new HashSet<>();
+
+        State(List<Node> nodes) {
+            this.nodes = nodes;
+            boolean anySelected = false;
+            boolean anyChildren = false;
+            for (Node node : nodes) {
+                anySelected |= node.selected;
+                anyChildren |= !node.children.isEmpty();
+                attributes.addAll(node.attributes);
+            }
+            this.selected = anySelected;
+            this.hasChildren = anyChildren;
+            this.allAttributes = attributes.contains(WILDCARD);
+        }
+
+        State next(String name) {
+            State next = transitions.get(name);
+            if (next == null) {
+                next = transitions.computeIfAbsent(name, this::step);
+            }
+            return next;
+        }
+
+        private State step(String name) {
+            List<Node> reached = new ArrayList<>();
+            for (Node node : nodes) {
+                Node exact = node.children.get(name);
+                if (exact != null && !reached.contains(exact)) {
+                    reached.add(exact);
+                }
+                Node any = node.children.get(WILDCARD);
+                if (any != null && !reached.contains(any)) {
+                    reached.add(any);
+                }
+            }
+            return new State(reached);
+        }
+
+        boolean isDead() {
+            return !selected && !hasChildren && attributes.isEmpty();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = StaxDataBinder.createFactory();
+        // Text is copied piece by piece, so there is no need to buffer it whole
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
@@ -0,0 +1,98 @@
+package com.aixml.mapping;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Collects the records that failed to convert, one JSON object per line: the record's byte
+ * offset and length in the input, the error and where in the record it was found, and the
+ * record itself. The record text is exactly the input bytes at that offset, so a fixed record
+ * can be patched back or replayed on its own. Safe to share between threads; close it to
+ * flush the file.
+ */
+@Slf4j
+public class Quarantine implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+    private long count;
+
+    public Quarantine(OutputStream out) {
+        try {
+            this.generator = JSON_FACTORY.createGenerator(out);
+            generator.setRootValueSeparator(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open quarantine", e);
+        }
+    }
+
+    public static Quarantine toFile(Path file) {
+        try {
+            return new Quarantine(new BufferedOutputStream(Files.newOutputStream(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create quarantine file " + file, e);
+        }
+    }
+
+    /**
+     * Number of records quarantined so far.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    synchronized void add(long offset, byte[] record, Throwable error) {
+        Throwable cause = rootCause(error);
+        log.warn("Quarantined record at byte {}: {}", offset, cause.toString());
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("offset", offset);
+            generator.writeNumberField("length", record.length);
+            generator.writeStringField("error", cause.getClass().getName());
+            generator.writeStringField("message", cause.getMessage());
+            Location location = cause instanceof XMLStreamException
+                    ? ((XMLStreamException) cause).getLocation()
+                    : null;
+            if (location != null) {
+                generator.writeNumberField("line", location.getLineNumber());
+                generator.writeNumberField("column", location.getColumnNumber());
+            }
+            generator.writeStringField("record", new String(record, StandardCharsets.UTF_8));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write to quarantine", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            generator.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close quarantine", e);
+        }
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,14 @@
+package com.aixml.mapping;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Turns one record cut out of a document, as its own UTF-8 bytes, into an instance of the
+ * record class: by parsing it into the class's setters, or, for lazily generated classes, by
+ * wrapping the bytes.
+ */
+@FunctionalInterface
+interface RecordBinder {
+
+    Object bind(byte[] record, Class<?> type) throws XMLStreamException;
+}
@@ -0,0 +1,191 @@
+package com.aixml.mapping;
+
+import com.aixml.generator.StaxDataBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Pulls the elements at a record path out of a document one at a time and binds each of them
+ * as soon as it is requested. Only the current record is ever held in memory. When no record
+ * type is given, the first record is captured as text, handed to {@code typeInference} to
+ * generate its class, and bound from the captured copy; later records bind straight from
+ * the stream.
+ */
+@Slf4j
+class RecordIterator<T> implements Iterator<T>, Closeable {
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final XMLStreamReader reader;
+    private final Closeable source;
+    private final String[] path;
+    private final StaxDataBinder binder;
+    private final Function<String, Class<?>> typeInference;
+    private Class<?> recordType;
+
+    private int depth;
+    private int matchedDepth;
+    private boolean positioned;
+    private boolean finished;
+    private long records;
+
+    RecordIterator(XMLStreamReader reader, Closeable source, String recordPath, StaxDataBinder binder,
+                   Class<?> recordType, Function<String, Class<?>> typeInference) {
+        this.reader = reader;
+        this.source = source;
+        this.path = parsePath(recordPath);
+        this.binder = binder;
+        this.recordType = recordType;
+        this.typeInference = typeInference;
+    }
+
+    /**
+     * Splits {@code a/b/c} (a leading slash is optional) into element names from the root;
+     * {@code *} matches any element name.
+     */
+    static String[] parsePath(String recordPath) {
+        String trimmed = recordPath.startsWith("/") ? recordPath.substring(1) : recordPath;
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Record path must name at least one element");
+        }
+        return trimmed.split("/");
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (positioned) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (matchedDepth == depth - 1 && depth <= path.length && matches(path[depth - 1])) {
+                        matchedDepth = depth;
+                        if (matchedDepth == path.length) {
+                            positioned = true;
+                            return true;
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (matchedDepth == depth) {
+                        matchedDepth--;
+                    }
+                    depth--;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Failed to read next record", e);
+        }
+        finished = true;
+        log.debug("Streamed {} records at {}", records, String.join("/", path));
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        positioned = false;
+        try {
+            Object record;
+            if (recordType == null) {
+                String captured = capture();
+                recordType = typeInference.apply(captured);
+                record = binder.bind(new StringReader(captured), recordType);
+            } else {
+                record = binder.bind(reader, recordType);
+            }
+            // The record's end tag has been consumed
+            matchedDepth--;
+            depth--;
+            records++;
+            return (T) record;
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Failed to bind record " + (records + 1), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            log.warn("Failed to close XML reader", e);
+        }
+        try {
+            source.close();
+        } catch (Exception e) {
+            log.warn("Failed to close XML source", e);
+        }
+    }
+
+    private boolean matches(String segment) {
+        if ("*".equals(segment)) {
+            return true;
+        }
+        String prefix = reader.getPrefix();
+        String name = prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+        return segment.equals(name);
+    }
+
+    /**
+     * Copies the current element, which must be a start tag, to a standalone document.
+     */
+    private String capture() throws XMLStreamException {
+        StringWriter text = new StringWriter();
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(text);
+        int level = 0;
+        do {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    level++;
+                    writer.writeStartElement(nullToEmpty(reader.getPrefix()), reader.getLocalName(),
+                            nullToEmpty(reader.getNamespaceURI()));
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        writer.writeNamespace(nullToEmpty(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        writer.writeAttribute(nullToEmpty(reader.getAttributePrefix(i)),
+                                nullToEmpty(reader.getAttributeNamespace(i)),
+                                reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    level--;
+                    writer.writeEndElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.CDATA:
+                    writer.writeCharacters(reader.getText());
+                    break;
+                default:
+                    break;
+            }
+        } while (level > 0 && reader.hasNext() && reader.next() > 0);
+        writer.close();
+        return text.toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
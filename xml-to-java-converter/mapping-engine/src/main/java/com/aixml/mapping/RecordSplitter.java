@@ -0,0 +1,280 @@
+package com.aixml.mapping;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Cuts the elements at a record path out of UTF-8 XML that arrives in arbitrary chunks,
+ * without a parser: only tags are tokenized, enough to track nesting, and a record's bytes are
+ * handed on as soon as its end tag has arrived. Nothing blocks waiting for input; a tag split
+ * across chunks is simply rescanned when the next chunk is fed. Only the unfinished record, or
+ * the unfinished tag outside records, is buffered.
+ * <p>
+ * Records are cut verbatim, so namespace declarations on their ancestors are not carried over.
+ * An end tag that does not match the innermost open element closes the elements up to the
+ * open one it names, or is ignored if it names none, so a malformed record is still cut out
+ * whole and the records after it are found as usual.
+ */
+final class RecordSplitter {
+
+    private static final byte[] COMMENT = bytes("<!--");
+    private static final byte[] COMMENT_END = bytes("-->");
+    private static final byte[] CDATA = bytes("<![CDATA[");
+    private static final byte[] CDATA_END = bytes("]]>");
+    private static final byte[] PI_END = bytes("?>");
+
+    private final String[] path;
+    private byte[] buffer = new byte[8192];
+    private int limit;
+    private int position;
+    private int recordStart = -1;
+    private long discarded;
+    private int depth;
+    private int matchedDepth;
+    private int[] openNames = new int[16];
+
+    RecordSplitter(String recordPath) {
+        this.path = RecordIterator.parsePath(recordPath);
+    }
+
+    /**
+     * Appends a chunk and passes every record it completes to {@code records}, in document order.
+     */
+    void feed(ByteBuffer chunk, Consumer<byte[]> records) {
+        feed(chunk, (record, offset) -> records.accept(record));
+    }
+
+    /**
+     * Like {@link #feed(ByteBuffer, Consumer)}, also passing the byte offset of each record in
+     * the whole input.
+     */
+    void feed(ByteBuffer chunk, ObjLongConsumer<byte[]> records) {
+        append(chunk);
+        while (position < limit) {
+            int open = indexOf((byte) '<', position);
+            if (open < 0) {
+                position = limit;
+                break;
+            }
+            int end = tagEnd(open);
+            if (end < 0) {
+                // Incomplete tag: wait for the next chunk
+                position = open;
+                break;
+            }
+            position = end;
+            handleTag(open, end, records);
+        }
+    }
+
+    /**
+     * Checks that the input ended outside of any element.
+     */
+    void finish() {
+        if (!finish((record, offset) -> { })) {
+            throw new IllegalStateException("XML input ended inside an element");
+        }
+    }
+
+    /**
+     * Hands the record the input ended in, if any, to {@code unfinished} with its offset, and
+     * tells whether the input ended outside of any element.
+     */
+    boolean finish(ObjLongConsumer<byte[]> unfinished) {
+        boolean complete = depth == 0 && recordStart < 0 && indexOf((byte) '<', position) < 0;
+        if (recordStart >= 0) {
+            unfinished.accept(Arrays.copyOfRange(buffer, recordStart, limit), discarded + recordStart);
+            recordStart = -1;
+        }
+        return complete;
+    }
+
+    private void handleTag(int open, int end, ObjLongConsumer<byte[]> records) {
+        byte kind = buffer[open + 1];
+        if (kind == '?' || kind == '!') {
+            return;
+        }
+        if (kind == '/') {
+            int name = nameHash(open + 2);
+            int level = depth;
+            while (level > 0 && openNames[level - 1] != name) {
+                level--;
+            }
+            // Close everything the tag implies; a tag closing nothing open is ignored
+            while (level > 0 && depth >= level) {
+                closeElement(end, records);
+            }
+            return;
+        }
+
+        boolean empty = buffer[end - 2] == '/';
+        boolean matched = matchedDepth == depth && depth < path.length && matches(path[depth], open + 1);
+        if (matched && depth + 1 == path.length) {
+            if (empty) {
+                records.accept(Arrays.copyOfRange(buffer, open, end), discarded + open);
+                return;
+            }
+            recordStart = open;
+        }
+        if (!empty) {
+            if (depth == openNames.length) {
+                openNames = Arrays.copyOf(openNames, depth * 2);
+            }
+            openNames[depth] = nameHash(open + 1);
+            depth++;
+            if (matched) {
+                matchedDepth = depth;
+            }
+        }
+    }
+
+    private void closeElement(int end, ObjLongConsumer<byte[]> records) {
+        if (matchedDepth == depth) {
+            if (depth == path.length && recordStart >= 0) {
+                records.accept(Arrays.copyOfRange(buffer, recordStart, end), discarded + recordStart);
+                recordStart = -1;
+            }
+            matchedDepth--;
+        }
+        depth--;
+    }
+
+    /**
+     * Hash of the element name starting at {@code nameStart}, enough to pair end tags with
+     * start tags.
+     */
+    private int nameHash(int nameStart) {
+        int hash = 1;
+        for (int i = nameStart; i < limit && !isNameEnd(buffer[i]); i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash;
+    }
+
+    private boolean matches(String segment, int nameStart) {
+        if ("*".equals(segment)) {
+            return true;
+        }
+        int nameEnd = nameStart;
+        while (nameEnd < limit && !isNameEnd(buffer[nameEnd])) {
+            nameEnd++;
+        }
+        return segment.equals(new String(buffer, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Index just past the tag, comment, CDATA section or declaration starting at {@code open},
+     * or {@code -1} if it has not fully arrived yet.
+     */
+    private int tagEnd(int open) {
+        if (open + 1 >= limit) {
+            return -1;
+        }
+        byte kind = buffer[open + 1];
+        if (kind == '?') {
+            return endOf(PI_END, open + 2);
+        }
+        if (kind == '!') {
+            int comment = startsWith(COMMENT, open);
+            if (comment != 0) {
+                return comment < 0 ? -1 : endOf(COMMENT_END, open + COMMENT.length);
+            }
+            int cdata = startsWith(CDATA, open);
+            if (cdata != 0) {
+                return cdata < 0 ? -1 : endOf(CDATA_END, open + CDATA.length);
+            }
+            // DOCTYPE, possibly with an internal subset in brackets
+            int brackets = 0;
+            for (int i = open + 2; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '[') {
+                    brackets++;
+                } else if (b == ']') {
+                    brackets--;
+                } else if (b == '>' && brackets == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        byte quote = 0;
+        for (int i = open + 1; i < limit; i++) {
+            byte b = buffer[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * {@code 1} if the buffer holds {@code prefix} at {@code offset}, {@code -1} if it holds only
+     * the start of it so far, otherwise {@code 0}.
+     */
+    private int startsWith(byte[] prefix, int offset) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (offset + i >= limit) {
+                return -1;
+            }
+            if (buffer[offset + i] != prefix[i]) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    private int endOf(byte[] terminator, int from) {
+        for (int i = from; i + terminator.length <= limit; i++) {
+            if (startsWith(terminator, i) == 1) {
+                return i + terminator.length;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(byte b, int from) {
+        for (int i = from; i < limit; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(ByteBuffer chunk) {
+        int keep = recordStart >= 0 ? recordStart : position;
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            discarded += keep;
+            limit -= keep;
+            position -= keep;
+            if (recordStart >= 0) {
+                recordStart -= keep;
+            }
+        }
+        int needed = limit + chunk.remaining();
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+        }
+        int length = chunk.remaining();
+        chunk.get(buffer, limit, length);
+        limit += length;
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
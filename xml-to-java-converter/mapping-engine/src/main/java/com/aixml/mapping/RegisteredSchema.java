@@ -0,0 +1,27 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A document type known up front: its schema and the classes generated for it, ready for
+ * documents to be bound without analysis.
+ */
+@Data
+@Builder
+public class RegisteredSchema {
+    private String name;
+    /**
+     * Namespace URI of the root element; {@code null} matches the root element in any
+     * namespace not registered on its own.
+     */
+    private String namespace;
+    private String rootElementName;
+    private XmlSchema schema;
+    private String packageName;
+    private Class<?> rootClass;
+    private List<Class<?>> generatedClasses;
+}
@@ -0,0 +1,79 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Document types registered with {@link XmlToJavaConverter#registerSchema(String, XmlSchema)},
+ * found by name or by the qualified name of their root element. Registering a name or root
+ * element again replaces the earlier registration here; the converter generates the classes of
+ * a changed schema into a package of their own. Schemas can be kept on disk as JSON with
+ * {@link #saveSchema(XmlSchema, Path)} and {@link #loadSchema(Path)}.
+ */
+public class SchemaRegistry {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, RegisteredSchema> byName = new ConcurrentHashMap<>();
+    private final Map<QName, RegisteredSchema> byRoot = new ConcurrentHashMap<>();
+
+    public void register(RegisteredSchema schema) {
+        RegisteredSchema replaced = byName.put(schema.getName(), schema);
+        if (replaced != null) {
+            byRoot.remove(rootOf(replaced), replaced);
+        }
+        byRoot.put(rootOf(schema), schema);
+    }
+
+    public RegisteredSchema get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * The type of documents whose root element is {@code root}, falling back to a type
+     * registered without a namespace; {@code null} if there is none.
+     */
+    public RegisteredSchema find(QName root) {
+        RegisteredSchema schema = byRoot.get(root);
+        if (schema == null && !root.getNamespaceURI().isEmpty()) {
+            schema = byRoot.get(new QName(root.getLocalPart()));
+        }
+        return schema;
+    }
+
+    public Collection<RegisteredSchema> getSchemas() {
+        return Collections.unmodifiableCollection(byName.values());
+    }
+
+    public static void saveSchema(XmlSchema schema, Path file) {
+        try {
+            JSON.writeValue(file.toFile(), schema);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save schema to " + file, e);
+        }
+    }
+
+    public static XmlSchema loadSchema(Path file) {
+        try {
+            return JSON.readValue(Files.readAllBytes(file), XmlSchema.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load schema from " + file, e);
+        }
+    }
+
+    private static QName rootOf(RegisteredSchema schema) {
+        String namespace = schema.getNamespace();
+        return new QName(namespace != null ? namespace : "", schema.getRootElementName());
+    }
+}
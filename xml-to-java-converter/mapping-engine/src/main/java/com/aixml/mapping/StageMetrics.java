@@ -0,0 +1,29 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Cost of one conversion stage on the thread that ran it. CPU time and allocated bytes are
+ * {@code -1} where the JVM does not measure them.
+ */
+@Data
+@Builder
+public class StageMetrics {
+    private String stage;
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+
+    /**
+     * Sums two measurements of the same stage.
+     */
+    StageMetrics plus(StageMetrics other) {
+        return StageMetrics.builder()
+                .stage(stage)
+                .wallNanos(wallNanos + other.wallNanos)
+                .cpuNanos(cpuNanos < 0 || other.cpuNanos < 0 ? -1 : cpuNanos + other.cpuNanos)
+                .allocatedBytes(allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes)
+                .build();
+    }
+}
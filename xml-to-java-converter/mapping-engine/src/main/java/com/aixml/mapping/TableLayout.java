@@ -0,0 +1,71 @@
+package com.aixml.mapping;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table that {@link JdbcSink} loads the objects of one complex element into, or the values of a
+ * repeated simple child into. Every row gets a generated key, and a row for a nested element
+ * refers to the row of the element it was found in.
+ */
+@Data
+@Builder
+public class TableLayout {
+    private String elementName;
+    private String tableName;
+    private String keyColumn;
+    /**
+     * Foreign key column for each table the element occurs under; only the column of the
+     * enclosing table is set in a row.
+     */
+    private Map<String, String> parentKeyColumns;
+    private List<ColumnLayout> columns;
+    /**
+     * Properties of the bound object holding nested complex elements, each an object or a list.
+     */
+    private List<String> childProperties;
+    /**
+     * List property of the parent object whose values this table holds, or {@code null} for
+     * the table of a complex element.
+     */
+    private String valuesProperty;
+
+    /**
+     * Table definition, creating the table unless it exists.
+     */
+    public String createStatement() {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(JdbcSink.quote(tableName))
+                .append(" (").append(JdbcSink.quote(keyColumn)).append(" BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY");
+        for (Map.Entry<String, String> parentKey : parentKeyColumns.entrySet()) {
+            sql.append(", ").append(JdbcSink.quote(parentKey.getValue())).append(" BIGINT REFERENCES ")
+                    .append(JdbcSink.quote(parentKey.getKey())).append(" (").append(JdbcSink.quote(keyColumn)).append(')');
+        }
+        for (ColumnLayout column : columns) {
+            sql.append(", ").append(JdbcSink.quote(column.getName())).append(' ').append(column.getTypeName());
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * Insert of one row, leaving the key to the database.
+     */
+    public String insertStatement() {
+        List<String> names = new ArrayList<>();
+        for (String parentKey : parentKeyColumns.values()) {
+            names.add(JdbcSink.quote(parentKey));
+        }
+        for (ColumnLayout column : columns) {
+            names.add(JdbcSink.quote(column.getName()));
+        }
+        if (names.isEmpty()) {
+            return "INSERT INTO " + JdbcSink.quote(tableName) + " DEFAULT VALUES";
+        }
+        return "INSERT INTO " + JdbcSink.quote(tableName) + " (" + String.join(", ", names) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+    }
+}
@@ -0,0 +1,213 @@
+package com.aixml.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLStreamException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Turns a publisher of UTF-8 XML chunks into a publisher of bound records. Chunks are cut into
+ * records by a {@link RecordSplitter}, so no thread ever waits for input, and the next chunk is
+ * only requested when the subscriber has demand that the records already cut cannot meet.
+ * Records are bound on whichever thread delivers a chunk or a request. A single subscriber
+ * is supported.
+ */
+@Slf4j
+class XmlRecordProcessor<T> implements Flow.Processor<ByteBuffer, T> {
+
+    private final RecordSplitter splitter;
+    private final RecordBinder binder;
+    private final Function<String, Class<?>> typeInference;
+    private volatile Class<?> recordType;
+
+    private final Queue<byte[]> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger work = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super T> downstream;
+    private volatile boolean upstreamRequested;
+    private volatile boolean upstreamDone;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private boolean terminated;
+
+    XmlRecordProcessor(String recordPath, RecordBinder binder, Class<?> recordType,
+                       Function<String, Class<?>> typeInference) {
+        this.splitter = new RecordSplitter(recordPath);
+        this.binder = binder;
+        this.recordType = recordType;
+        this.typeInference = typeInference;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Record processor supports a single subscriber"));
+            return;
+        }
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Requested " + n + " records, must be positive"));
+                } else {
+                    demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        // A downstream that cancelled or failed before the upstream arrived could not cancel it
+        if (cancelled || failure != null) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+        upstreamRequested = false;
+        try {
+            splitter.feed(chunk, ready::add);
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failure = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            splitter.finish();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        upstreamDone = true;
+        drain();
+    }
+
+    private void fail(Throwable throwable) {
+        if (failure == null) {
+            failure = throwable;
+        }
+        cancelUpstream();
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Serialises delivery: whichever thread gets here first emits on behalf of all callers that
+     * arrive meanwhile, so the subscriber is never called concurrently.
+     */
+    private void drain() {
+        if (work.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            emit();
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit() {
+        Flow.Subscriber<? super T> subscriber = downstream;
+        if (subscriber == null || terminated) {
+            return;
+        }
+        if (cancelled) {
+            terminated = true;
+            ready.clear();
+            return;
+        }
+        while (failure == null && demand.get() > 0 && !ready.isEmpty()) {
+            T record;
+            try {
+                record = bind(ready.poll());
+            } catch (RuntimeException e) {
+                fail(e);
+                break;
+            }
+            demand.decrementAndGet();
+            subscriber.onNext(record);
+            if (cancelled) {
+                return;
+            }
+        }
+        if (failure != null) {
+            terminated = true;
+            ready.clear();
+            subscriber.onError(failure);
+            return;
+        }
+        if (ready.isEmpty()) {
+            if (upstreamDone) {
+                terminated = true;
+                subscriber.onComplete();
+            } else if (demand.get() > 0 && !upstreamRequested && upstream != null) {
+                upstreamRequested = true;
+                upstream.request(1);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T bind(byte[] record) {
+        try {
+            if (recordType == null) {
+                recordType = typeInference.apply(new String(record, StandardCharsets.UTF_8));
+            }
+            return (T) binder.bind(record, recordType);
+        } catch (XMLStreamException e) {
+            log.error("Error binding streamed record", e);
+            throw new RuntimeException("Failed to bind record", e);
+        }
+    }
+}
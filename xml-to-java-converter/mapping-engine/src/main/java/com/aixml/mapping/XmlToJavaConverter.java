@@ -3,24 +3,67 @@ package com.aixml.mapping;
 import com.aixml.analyzer.XmlStructureAnalyzer;
 import com.aixml.analyzer.XmlSchema;
 import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XsdSchemaLoader;
 import com.aixml.detector.RelationshipDetector;
-import com.aixml.detector.OneToManyRelation;
-import com.aixml.detector.ManyToManyRelation;
-import com.aixml.detector.ParentChildRelation;
 import com.aixml.generator.DynamicObjectGenerator;
 import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.GenerationMode;
+import com.aixml.generator.GenerationOptions;
+import com.aixml.generator.LazyXmlRecord;
+import com.aixml.generator.StaxDataBinder;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
+import org.w3c.dom.Document;
 
+import javax.sql.DataSource;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 @Component
 @Slf4j
 public class XmlToJavaConverter {
     
+    private static final String DEFAULT_PACKAGE = "com.generated.model";
+    
+    private static final XMLInputFactory INPUT_FACTORY = StaxDataBinder.createFactory();
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
     @Autowired
     private XmlStructureAnalyzer analyzer;
     
@@ -33,13 +76,91 @@ public class XmlToJavaConverter {
     @Autowired
     private ClassFileGenerator classFileGenerator;
     
+    @Autowired(required = false)
+    private ConversionCache conversionCache;
+    
+    @Autowired(required = false)
+    private ConversionMetricsRegistry metricsRegistry;
+    
+    @Autowired(required = false)
+    private SchemaRegistry schemaRegistry = new SchemaRegistry();
+    
+    /**
+     * For Spring, which injects the collaborators into the fields.
+     */
+    public XmlToJavaConverter() {
+    }
+    
+    /**
+     * Wires the converter by hand, without a Spring context; see {@link ConverterFactory}.
+     */
+    public XmlToJavaConverter(XmlStructureAnalyzer analyzer, RelationshipDetector relationshipDetector,
+                              DynamicObjectGenerator objectGenerator, ClassFileGenerator classFileGenerator) {
+        this.analyzer = analyzer;
+        this.relationshipDetector = relationshipDetector;
+        this.objectGenerator = objectGenerator;
+        this.classFileGenerator = classFileGenerator;
+    }
+    
+    /**
+     * Parses and analyzes the document once; the context can then be passed to any number
+     * of conversion stages. The cost of both is recorded in the context's metrics and
+     * reported by every stage that uses it.
+     */
+    public ConversionContext createContext(String xmlContent) {
+        ConversionMetrics metrics = new ConversionMetrics();
+        Document document = metrics.time(ConversionMetrics.PARSE, () -> analyzer.parseDocument(xmlContent));
+        XmlSchema schema = metrics.time(ConversionMetrics.ANALYZE, () -> analyzer.analyzeStructure(document));
+        return new ConversionContext(xmlContent, null, document, schema, metrics);
+    }
+    
+    /**
+     * Parses the document straight from the stream, inflating it on the fly if compressed;
+     * later stages read the DOM. Only {@link GenerationMode#LAZY} keeps the document bytes,
+     * which its records are views over.
+     */
+    public ConversionContext createContext(InputStream xmlStream) {
+        return parseContext(decompressing(xmlStream));
+    }
+    
+    private ConversionContext parseContext(InputStream input) {
+        if (objectGenerator.getGenerationMode() == GenerationMode.LAZY) {
+            try {
+                return createContext(input.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read XML content", e);
+            }
+        }
+        ConversionMetrics metrics = new ConversionMetrics();
+        Document document = metrics.time(ConversionMetrics.PARSE, () -> analyzer.parseDocument(input));
+        XmlSchema schema = metrics.time(ConversionMetrics.ANALYZE, () -> analyzer.analyzeStructure(document));
+        return new ConversionContext(null, null, document, schema, metrics);
+    }
+    
+    private ConversionContext createContext(byte[] xmlBytes) {
+        return createContext(xmlBytes, new ConversionMetrics());
+    }
+    
+    private ConversionContext createContext(byte[] xmlBytes, ConversionMetrics metrics) {
+        Document document = metrics.time(ConversionMetrics.PARSE,
+                () -> analyzer.parseDocument(new ByteArrayInputStream(xmlBytes)));
+        XmlSchema schema = metrics.time(ConversionMetrics.ANALYZE, () -> analyzer.analyzeStructure(document));
+        return new ConversionContext(null, xmlBytes, document, schema, metrics);
+    }
+    
+    /**
+     * Binds the document straight into {@code targetClass} with a pull parser. Nested elements
+     * are bound to the classes generated for {@value #DEFAULT_PACKAGE} where field types
+     * leave them open. A lazily generated class is wrapped over the document bytes instead.
+     */
     public <T> T convertXmlToObject(String xmlContent, Class<T> targetClass) {
         try {
-            XmlSchema schema = analyzer.analyzeStructure(xmlContent);
-            
-            Map<String, Object> properties = extractProperties(xmlContent, schema);
-            
-            return targetClass.cast(objectGenerator.createInstance(targetClass, properties));
+            if (LazyXmlRecord.class.isAssignableFrom(targetClass)) {
+                byte[] xmlBytes = xmlContent.getBytes(StandardCharsets.UTF_8);
+                return objectGenerator.createLazyInstance(targetClass, xmlBytes, rootElementStart(xmlBytes),
+                        xmlBytes.length);
+            }
+            return dataBinder(DEFAULT_PACKAGE).bind(new StringReader(xmlContent), targetClass);
             
         } catch (Exception e) {
             log.error("Error converting XML to object", e);
@@ -47,42 +168,472 @@ public class XmlToJavaConverter {
         }
     }
     
+    /**
+     * Streams the elements at {@code recordPath}, such as {@code library/books/book}, binding
+     * each one only when the stream pulls it, so memory use does not grow with the document and
+     * downstream work runs while the rest of the input is still unparsed. The record class is
+     * generated from the first record into {@value #DEFAULT_PACKAGE}. Close the stream to close
+     * {@code xmlStream}.
+     */
+    public Stream<Object> stream(InputStream xmlStream, String recordPath) {
+        return stream(xmlStream, recordPath, null);
+    }
+    
+    /**
+     * Streams the elements at {@code recordPath} bound to {@code recordType}; a {@code null}
+     * type is generated from the first record. Path segments are element names from the root
+     * and {@code *} matches any name. In {@link GenerationMode#LAZY} each record is cut out
+     * of the input and wrapped over its bytes, so only the fields read are ever decoded.
+     */
+    public <T> Stream<T> stream(InputStream xmlStream, String recordPath, Class<T> recordType) {
+        if (objectGenerator.getGenerationMode() == GenerationMode.LAZY) {
+            return splitRecords(xmlStream, recordPath, recordType, null);
+        }
+        try {
+            InputStream input = decompressing(xmlStream);
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(input);
+            RecordIterator<T> records = new RecordIterator<>(reader, input, recordPath,
+                    dataBinder(DEFAULT_PACKAGE), recordType, this::generateRecordClass);
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(records::close);
+            
+        } catch (XMLStreamException e) {
+            log.error("Error opening XML record stream", e);
+            throw new RuntimeException("Streaming failed", e);
+        }
+    }
+    
+    /**
+     * Fault-isolating counterpart of {@link #stream(InputStream, String, Class)} for large
+     * inputs that may hold bad records: each record at {@code recordPath} is cut out of the
+     * byte stream and parsed on its own, and records that are malformed or fail to bind are
+     * written to {@code quarantine} with their byte offsets instead of ending the stream. A
+     * {@code null} type is generated from the first good record. Close the stream to close
+     * {@code xmlStream}; closing {@code quarantine} is up to the caller.
+     */
+    public <T> Stream<T> stream(InputStream xmlStream, String recordPath, Class<T> recordType, Quarantine quarantine) {
+        return splitRecords(xmlStream, recordPath, recordType, quarantine);
+    }
+    
+    private <T> Stream<T> splitRecords(InputStream xmlStream, String recordPath, Class<T> recordType,
+                                       Quarantine quarantine) {
+        IsolatingRecordIterator<T> records = new IsolatingRecordIterator<>(decompressing(xmlStream), recordPath,
+                recordBinder(DEFAULT_PACKAGE), recordType, this::generateRecordClass, quarantine);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(records::close);
+    }
+    
+    /**
+     * Converts the document, answering from the {@link ConversionCache} when one is set and
+     * has seen a byte-identical document.
+     */
     public ConversionResult convertXmlToObjects(String xmlContent) {
+        return convertXmlToObjects(xmlContent, ConversionOptions.defaults());
+    }
+    
+    /**
+     * Converts the document doing only the work {@code options} ask for. Only conversions with
+     * the default options use the {@link ConversionCache}.
+     */
+    public ConversionResult convertXmlToObjects(String xmlContent, ConversionOptions options) {
         try {
-            XmlSchema schema = analyzer.analyzeStructure(xmlContent);
+            if (options.getProjection() != null) {
+                InputStream xmlStream = new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8));
+                return convertXmlToObjects(createProjectedContext(xmlStream, options.getProjection()), options);
+            }
+            if (conversionCache == null || !options.isDefault()) {
+                return convertXmlToObjects(createContext(xmlContent), options);
+            }
+            return convertCached(xmlContent.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("Error converting XML to objects", e);
+            throw new RuntimeException("Conversion failed", e);
+        }
+    }
+    
+    /**
+     * Converts the document read from {@code xmlStream}. With a {@link PathProjection} in the
+     * options the stream is projected as it is read, so only the kept paths are ever held in
+     * memory, parsed into a DOM and bound; the time spent is the project stage of the metrics.
+     */
+    public ConversionResult convertXmlToObjects(InputStream xmlStream, ConversionOptions options) {
+        try {
+            InputStream input = decompressing(xmlStream);
+            if (options.getProjection() != null) {
+                return convertXmlToObjects(createProjectedContext(input, options.getProjection()), options);
+            }
+            if (conversionCache == null || !options.isDefault()) {
+                return convertXmlToObjects(parseContext(input), options);
+            }
+            // The cache is keyed by and keeps the document bytes
+            return convertCached(input.readAllBytes());
+        } catch (Exception e) {
+            log.error("Error converting XML to objects", e);
+            throw new RuntimeException("Conversion failed", e);
+        }
+    }
+    
+    public ConversionResult convertXmlToObjects(ConversionContext context) {
+        return convertXmlToObjects(context, ConversionOptions.defaults());
+    }
+    
+    public ConversionResult convertXmlToObjects(ConversionContext context, ConversionOptions options) {
+        try {
+            ConversionResult result = convert(context, options);
+            publish(result.getMetrics());
+            return result;
             
-            List<Class<?>> generatedClasses = generateClassesFromXml(xmlContent, "com.generated.model");
+        } catch (Exception e) {
+            log.error("Error converting XML to objects", e);
+            throw new RuntimeException("Conversion failed", e);
+        }
+    }
+    
+    /**
+     * Reactive counterpart of {@link #stream(InputStream, String)}: subscribe the processor to
+     * a publisher of UTF-8 XML chunks, split anywhere, and it publishes the records at
+     * {@code recordPath} as the subscriber requests them. No thread blocks on input; the next
+     * chunk is requested only when the records already received cannot meet demand.
+     */
+    public Flow.Processor<ByteBuffer, Object> recordProcessor(String recordPath) {
+        return recordProcessor(recordPath, null);
+    }
+    
+    public <T> Flow.Processor<ByteBuffer, T> recordProcessor(String recordPath, Class<T> recordType) {
+        return new XmlRecordProcessor<>(recordPath, recordBinder(DEFAULT_PACKAGE), recordType, this::generateRecordClass);
+    }
+    
+    /**
+     * Converts the documents from {@code sources}, opened with {@code opener}, on
+     * {@link BatchOptions#getParallelism()} threads. Sources are pulled lazily as results are
+     * taken, at most {@link BatchOptions#getMaxInFlight()} at a time, so a large or endless
+     * source and a slow consumer both run in bounded memory. Each document is parsed straight
+     * from its stream unless a {@link ConversionCache} is set, which needs the whole document.
+     * Documents that fail to convert yield a result with the error. Close the stream to stop
+     * the conversions early.
+     */
+    public <S> Stream<BatchResult<S>> convertBatch(Iterator<? extends S> sources,
+                                                   Function<? super S, ? extends InputStream> opener,
+                                                   BatchOptions options) {
+        BatchIterator<S> results = new BatchIterator<>(sources, source -> {
+            try (InputStream xmlStream = decompressing(opener.apply(source))) {
+                if (conversionCache == null) {
+                    return convertXmlToObjects(parseContext(xmlStream));
+                }
+                // The cache is keyed by and keeps the document bytes
+                return convertCached(xmlStream.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read XML document", e);
+            }
+        }, options);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::close);
+    }
+    
+    public Stream<BatchResult<Path>> convertFiles(Iterable<Path> files, BatchOptions options) {
+        return convertBatch(files.iterator(), file -> {
+            try {
+                return Files.newInputStream(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open " + file, e);
+            }
+        }, options);
+    }
+    
+    public Stream<BatchResult<byte[]>> convertDocuments(Iterable<byte[]> documents, BatchOptions options) {
+        return convertBatch(documents.iterator(), ByteArrayInputStream::new, options);
+    }
+    
+    /**
+     * Converts every document in a zip archive, in parallel as with {@link #convertBatch}.
+     * Entries are inflated straight into the parser; only a {@link ConversionCache} or
+     * {@link GenerationMode#LAZY} classes, which keep the document bytes, copy them first.
+     * Entries that are themselves gzip or Zstandard compressed are decompressed too. Results
+     * carry the entry names; closing the stream closes the archive.
+     */
+    public Stream<BatchResult<String>> convertArchive(Path archive, BatchOptions options) {
+        try {
+            ZipFile zip = new ZipFile(archive.toFile());
+            List<String> names = new ArrayList<>();
+            zip.stream().filter(entry -> !entry.isDirectory()).forEach(entry -> names.add(entry.getName()));
+            return convertBatch(names.iterator(), name -> {
+                try {
+                    return zip.getInputStream(zip.getEntry(name));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to open " + name + " in " + archive, e);
+                }
+            }, options).onClose(() -> {
+                try {
+                    zip.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close " + archive, e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open archive " + archive, e);
+        }
+    }
+    
+    /**
+     * Converts every document in a zip archive read from a stream. A zip stream can only be
+     * read in order, so entries are inflated one at a time as the batch pulls them, at most
+     * {@link BatchOptions#getMaxInFlight()} held at once, and converted in parallel.
+     */
+    public Stream<BatchResult<String>> convertArchive(InputStream archive, BatchOptions options) {
+        ZipInputStream zip = new ZipInputStream(archive);
+        Iterator<ArchiveEntry> entries = new Iterator<ArchiveEntry>() {
+            private ArchiveEntry next;
+            
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = readEntry(zip);
+                }
+                return next != null;
+            }
             
-            List<OneToManyRelation> oneToManyRelations = relationshipDetector.detectOneToMany(schema);
-            List<ManyToManyRelation> manyToManyRelations = relationshipDetector.detectManyToMany(schema);
-            List<ParentChildRelation> parentChildRelations = relationshipDetector.detectHierarchical(schema);
+            @Override
+            public ArchiveEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ArchiveEntry entry = next;
+                next = null;
+                return entry;
+            }
+        };
+        return convertBatch(entries, entry -> new ByteArrayInputStream(entry.bytes), options)
+                .map(result -> BatchResult.<String>builder()
+                        .index(result.getIndex())
+                        .source(result.getSource().name)
+                        .result(result.getResult())
+                        .error(result.getError())
+                        .build())
+                .onClose(() -> {
+                    try {
+                        zip.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close archive", e);
+                    }
+                });
+    }
+    
+    private static ArchiveEntry readEntry(ZipInputStream zip) {
+        try {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (!entry.isDirectory()) {
+                    return new ArchiveEntry(entry.getName(), zip.readAllBytes());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive", e);
+        }
+    }
+    
+    /**
+     * Opens a sink loading objects bound with {@code schema} into the tables laid out for it,
+     * see {@link JdbcSink}. Close the sink to commit the last rows.
+     */
+    public JdbcSink openJdbcSink(XmlSchema schema, DataSource dataSource, JdbcLoadOptions options) {
+        List<TableLayout> tables = JdbcSink.layout(schema, relationshipDetector.detectHierarchical(schema), options);
+        log.debug("Laid out {} tables for {}", tables.size(), schema.getRootElementName());
+        return new JdbcSink(dataSource, tables, options);
+    }
+    
+    /**
+     * Registers a document type from its schema, generating its classes once into a package
+     * of their own, so {@link #convertRegistered(InputStream)} can bind documents of the type
+     * without parsing them into a DOM or analyzing them. Registering a name again with a
+     * changed schema generates its classes into a new package and replaces the earlier
+     * registration; documents already bound keep their classes.
+     */
+    public RegisteredSchema registerSchema(String name, XmlSchema schema) {
+        try {
+            RegisteredSchema existing = schemaRegistry.get(name);
+            String packageName = existing != null && existing.getSchema().equals(schema)
+                    ? existing.getPackageName()
+                    : unusedPackage(DEFAULT_PACKAGE + ".registered." + packageSegment(name));
+            List<Class<?>> generatedClasses = new ArrayList<>();
+            for (Class<?> generated : generateClasses(schema, packageName)) {
+                if (generated.getPackageName().equals(packageName)) {
+                    generatedClasses.add(generated);
+                }
+            }
             
-            Object rootObject = createRootObject(xmlContent, schema, generatedClasses);
+            RegisteredSchema registered = RegisteredSchema.builder()
+                    .name(name)
+                    .namespace(schema.getRootNamespace())
+                    .rootElementName(schema.getRootElementName())
+                    .schema(schema)
+                    .packageName(packageName)
+                    .rootClass(objectGenerator.getGeneratedClass(packageName, schema.getRootElementName()))
+                    .generatedClasses(List.copyOf(generatedClasses))
+                    .build();
+            schemaRegistry.register(registered);
+            log.debug("Registered document type {} for root {}", name, schema.getRootElementName());
+            return registered;
             
-            return ConversionResult.builder()
+        } catch (Exception e) {
+            log.error("Error registering schema " + name, e);
+            throw new RuntimeException("Schema registration failed", e);
+        }
+    }
+    
+    /**
+     * Registers a document type inferred once from a sample document of it.
+     */
+    public RegisteredSchema registerSchema(String name, InputStream sampleXml) {
+        try {
+            byte[] xmlBytes = sampleXml.readAllBytes();
+            XmlSchema schema = createContext(xmlBytes).getSchema();
+            String namespace = DocumentRouter.rootElement(new ByteArrayInputStream(xmlBytes)).getNamespaceURI();
+            schema.setRootNamespace(namespace.isEmpty() ? null : namespace);
+            return registerSchema(name, schema);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read sample document", e);
+        }
+    }
+    
+    /**
+     * Registers a document type from a file: an XML Schema ({@code .xsd}), a schema saved with
+     * {@link SchemaRegistry#saveSchema(XmlSchema, Path)} ({@code .json}) or a sample document.
+     */
+    public RegisteredSchema registerSchema(String name, Path file) {
+        String fileName = file.getFileName().toString();
+        if (fileName.endsWith(".json")) {
+            return registerSchema(name, SchemaRegistry.loadSchema(file));
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return fileName.endsWith(".xsd")
+                    ? registerSchema(name, new XsdSchemaLoader().load(in))
+                    : registerSchema(name, in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+    
+    /**
+     * Converts a document of a registered type, told apart by the root element and its
+     * namespace in the first bytes, binding it straight to the registered classes: no DOM,
+     * no analysis and no class generation. The result carries the registered schema, from
+     * which relationships are detected on first access. Documents of types not registered
+     * are rejected. In {@link GenerationMode#LAZY} the root is wrapped over the document bytes.
+     */
+    public ConversionResult convertRegistered(InputStream xmlStream) {
+        try {
+            ConversionMetrics metrics = new ConversionMetrics();
+            InputStream decompressed = decompressing(xmlStream);
+            InputStream input = decompressed.markSupported()
+                    ? decompressed
+                    : new BufferedInputStream(decompressed, DocumentRouter.SNIFF_LIMIT);
+            RegisteredSchema registered = metrics.time(ConversionMetrics.ROUTE, () -> route(input));
+            Object rootObject = metrics.time(ConversionMetrics.BIND, () -> {
+                try {
+                    if (objectGenerator.getGenerationMode() == GenerationMode.LAZY) {
+                        byte[] xmlBytes = input.readAllBytes();
+                        return objectGenerator.createLazyInstance(registered.getRootClass(), xmlBytes,
+                                rootElementStart(xmlBytes), xmlBytes.length);
+                    }
+                    return dataBinder(registered.getPackageName()).bind(input, registered.getRootClass());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read XML document", e);
+                } catch (XMLStreamException e) {
+                    throw new RuntimeException("Binding failed", e);
+                }
+            });
+            
+            ConversionResult result = ConversionResult.builder()
                     .rootObject(rootObject)
-                    .generatedClasses(generatedClasses)
-                    .xmlSchema(schema)
-                    .oneToManyRelations(oneToManyRelations)
-                    .manyToManyRelations(manyToManyRelations)
-                    .parentChildRelations(parentChildRelations)
+                    .generatedClasses(registered.getGeneratedClasses())
+                    .xmlSchema(registered.getSchema())
+                    .metrics(metrics)
+                    .relationshipDetector(relationshipDetector)
+                    .metricsRegistry(metricsRegistry)
                     .build();
-                    
+            publish(metrics);
+            return result;
+            
         } catch (Exception e) {
-            log.error("Error converting XML to objects", e);
+            log.error("Error converting registered XML document", e);
             throw new RuntimeException("Conversion failed", e);
         }
     }
     
-    public List<Class<?>> generateClassesFromXml(String xmlContent, String packageName) {
+    /**
+     * Converts the document to JSON without binding it; see
+     * {@link #transcodeToJson(InputStream, XmlSchema, JsonGenerator)}.
+     */
+    public String convertXmlToJson(String xmlContent) {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            transcodeToJson(createContext(xmlContent), generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write JSON", e);
+        }
+        return json.toString();
+    }
+    
+    public void transcodeToJson(ConversionContext context, JsonGenerator generator) {
         try {
-            XmlSchema schema = analyzer.analyzeStructure(xmlContent);
+            XMLStreamReader reader = context.createReader();
+            try {
+                new JsonTranscoder(context.getSchema()).transcode(reader, generator);
+            } finally {
+                reader.close();
+            }
             
+        } catch (Exception e) {
+            log.error("Error transcoding XML to JSON", e);
+            throw new RuntimeException("JSON transcoding failed", e);
+        }
+    }
+    
+    /**
+     * Writes the document as JSON straight from parse events, never building objects or a DOM.
+     * {@code schema} decides which children are arrays, even where one occurs only once, and
+     * which leaves are numbers or booleans, so one analyzed sample can drive the transcoding
+     * of any number of documents of the same shape.
+     */
+    public void transcodeToJson(InputStream xmlStream, XmlSchema schema, JsonGenerator generator) {
+        try {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(decompressing(xmlStream));
+            try {
+                new JsonTranscoder(schema).transcode(reader, generator);
+            } finally {
+                reader.close();
+            }
+            
+        } catch (Exception e) {
+            log.error("Error transcoding XML to JSON", e);
+            throw new RuntimeException("JSON transcoding failed", e);
+        }
+    }
+    
+    public List<Class<?>> generateClassesFromXml(String xmlContent, String packageName) {
+        return generateClassesFromXml(createContext(xmlContent), packageName);
+    }
+    
+    public List<Class<?>> generateClassesFromXml(ConversionContext context, String packageName) {
+        return timed(context, ConversionMetrics.GENERATE, () -> generateClasses(context, packageName));
+    }
+    
+    private List<Class<?>> generateClasses(ConversionContext context, String packageName) {
+        return generateClasses(context.getSchema(), packageName);
+    }
+    
+    private List<Class<?>> generateClasses(XmlSchema schema, String packageName) {
+        try {
+            List<ElementDefinition> complexElements = new ArrayList<>();
             for (ElementDefinition element : schema.getElements()) {
                 if (element.getParentElement() == null || isComplexType(element)) {
-                    objectGenerator.generateClass(element, packageName);
+                    complexElements.add(element);
                 }
             }
+            objectGenerator.generateClasses(complexElements, packageName);
             
             return List.copyOf(objectGenerator.getGeneratedClasses().values());
             
@@ -93,17 +644,29 @@ public class XmlToJavaConverter {
     }
     
     public List<String> generateClassFilesFromXml(String xmlContent, String packageName, String outputDir) {
+        return generateClassFilesFromXml(xmlContent, packageName, outputDir, GenerationOptions.defaults());
+    }
+    
+    public List<String> generateClassFilesFromXml(String xmlContent, String packageName, String outputDir,
+                                                  GenerationOptions options) {
+        return generateClassFilesFromXml(createContext(xmlContent), packageName, outputDir, options);
+    }
+    
+    public List<String> generateClassFilesFromXml(ConversionContext context, String packageName, String outputDir,
+                                                  GenerationOptions options) {
+        return timed(context, ConversionMetrics.FILES, () -> writeClassFiles(context, packageName, outputDir, options));
+    }
+    
+    private List<String> writeClassFiles(ConversionContext context, String packageName, String outputDir,
+                                         GenerationOptions options) {
         try {
-            XmlSchema schema = analyzer.analyzeStructure(xmlContent);
+            XmlSchema schema = context.getSchema();
             
             log.info("Generating class files for package: {} in directory: {}", packageName, outputDir);
             
-            // Clean previous generated files
-            classFileGenerator.cleanGeneratedDirectory(outputDir, packageName);
-            
-            // Generate new class files
+            // Rewrites only changed files and removes orphans from earlier runs
             List<String> generatedFiles = classFileGenerator.generateClassFiles(
-                schema.getElements(), packageName, outputDir);
+                schema.getElements(), packageName, outputDir, options);
             
             log.info("Generated {} class files", generatedFiles.size());
             return generatedFiles;
@@ -114,19 +677,51 @@ public class XmlToJavaConverter {
         }
     }
     
+    /**
+     * Generates the sources for the document and compiles them in memory, so the classes are
+     * usable right away together with any generated readers and writers.
+     */
+    public Map<String, Class<?>> compileClassesFromXml(String xmlContent, String packageName, GenerationOptions options) {
+        return compileClassesFromXml(createContext(xmlContent), packageName, options);
+    }
+    
+    public Map<String, Class<?>> compileClassesFromXml(ConversionContext context, String packageName,
+                                                       GenerationOptions options) {
+        try {
+            XmlSchema schema = context.getSchema();
+            
+            Map<String, Class<?>> compiled = timed(context, ConversionMetrics.COMPILE,
+                    () -> classFileGenerator.compileClasses(schema.getElements(), packageName, options));
+            
+            log.info("Compiled {} generated classes for package {}", compiled.size(), packageName);
+            return compiled;
+            
+        } catch (Exception e) {
+            log.error("Error compiling classes from XML", e);
+            throw new RuntimeException("Class compilation failed", e);
+        }
+    }
+    
     public ConversionResultWithFiles convertXmlToObjectsAndFiles(String xmlContent, String packageName, String outputDir) {
         try {
+            // Both stages share one parse and analysis of the document
+            ConversionContext context = createContext(xmlContent);
+            
             // Generate the schema and relationships as usual
-            ConversionResult result = convertXmlToObjects(xmlContent);
+            ConversionResult result = convert(context, ConversionOptions.defaults());
             
             // Also generate physical class files
-            List<String> generatedFiles = generateClassFilesFromXml(xmlContent, packageName, outputDir);
+            ConversionMetrics metrics = result.getMetrics().copy();
+            List<String> generatedFiles = metrics.time(ConversionMetrics.FILES,
+                    () -> writeClassFiles(context, packageName, outputDir, GenerationOptions.defaults()));
+            publish(metrics);
             
             return ConversionResultWithFiles.builder()
                     .conversionResult(result)
                     .generatedFiles(generatedFiles)
                     .outputDirectory(outputDir)
                     .packageName(packageName)
+                    .metrics(metrics)
                     .build();
                     
         } catch (Exception e) {
@@ -135,16 +730,76 @@ public class XmlToJavaConverter {
         }
     }
     
-    private Object createRootObject(String xmlContent, XmlSchema schema, List<Class<?>> generatedClasses) {
+    private ConversionResult convert(ConversionContext context, ConversionOptions options) {
+        XmlSchema schema = context.getSchema();
+        ConversionMetrics metrics = context.getMetrics().copy();
+        String packageName = options.getProjection() != null
+                ? options.getProjection().packageName(DEFAULT_PACKAGE)
+                : DEFAULT_PACKAGE;
+        
+        List<Class<?>> generatedClasses;
+        Object rootObject;
+        if (options.isGenerateClasses()) {
+            generatedClasses = metrics.time(ConversionMetrics.GENERATE, () -> generateClasses(context, packageName));
+            rootObject = metrics.time(ConversionMetrics.BIND,
+                    () -> createRootObject(context, generatedClasses, packageName));
+        } else {
+            // Bind only to a class an earlier conversion already generated
+            generatedClasses = List.of();
+            Class<?> rootClass = objectGenerator.getGeneratedClass(packageName, schema.getRootElementName());
+            rootObject = rootClass == null ? null
+                    : metrics.time(ConversionMetrics.BIND, () -> createRootObject(context, List.of(rootClass), packageName));
+        }
+        
+        ConversionResult.ConversionResultBuilder result = ConversionResult.builder()
+                .rootObject(rootObject)
+                .generatedClasses(generatedClasses)
+                .xmlSchema(schema)
+                .metrics(metrics);
+        if (options.isDetectRelationships()) {
+            // Detected by the result on first access
+            result.relationshipDetector(relationshipDetector)
+                    .metricsRegistry(metricsRegistry);
+        } else {
+            result.oneToManyRelations(List.of())
+                    .manyToManyRelations(List.of())
+                    .parentChildRelations(List.of());
+        }
+        return result.build();
+    }
+    
+    /**
+     * Runs a standalone stage on the context and publishes its cost along with the context's.
+     */
+    private <T> T timed(ConversionContext context, String stage, Supplier<T> work) {
+        ConversionMetrics metrics = context.getMetrics().copy();
+        T value = metrics.time(stage, work);
+        publish(metrics);
+        return value;
+    }
+    
+    private void publish(ConversionMetrics metrics) {
+        if (metricsRegistry != null) {
+            metricsRegistry.record(metrics);
+        }
+        log.debug("Conversion stages: {}", metrics);
+    }
+    
+    private Object createRootObject(ConversionContext context, List<Class<?>> generatedClasses, String packageName) {
         try {
             Class<?> rootClass = generatedClasses.stream()
-                    .filter(clazz -> clazz.getSimpleName().equalsIgnoreCase(schema.getRootElementName()))
+                    .filter(clazz -> clazz.getPackageName().equals(packageName))
+                    .filter(clazz -> clazz.getSimpleName().equalsIgnoreCase(context.getSchema().getRootElementName()))
                     .findFirst()
                     .orElse(null);
             
+            if (rootClass != null && objectGenerator.getGenerationMode() == GenerationMode.LAZY) {
+                // Lazy classes decode from the document bytes, which the pull binder never attaches
+                byte[] xmlBytes = context.bytes();
+                return objectGenerator.createLazyInstance(rootClass, xmlBytes, rootElementStart(xmlBytes), xmlBytes.length);
+            }
             if (rootClass != null) {
-                Map<String, Object> properties = extractProperties(xmlContent, schema);
-                return objectGenerator.createInstance(rootClass, properties);
+                return context.bind(dataBinder(packageName), rootClass);
             }
             
             return null;
@@ -155,20 +810,188 @@ public class XmlToJavaConverter {
         }
     }
     
-    private Map<String, Object> extractProperties(String xmlContent, XmlSchema schema) {
-        Map<String, Object> properties = new HashMap<>();
-        
-        for (ElementDefinition element : schema.getElements()) {
-            if (element.getParentElement() == null) {
-                properties.put(element.getName(), element.getName() + "_value");
+    private ConversionContext createProjectedContext(InputStream xmlStream, PathProjection projection) {
+        ConversionMetrics metrics = new ConversionMetrics();
+        byte[] projected = metrics.time(ConversionMetrics.PROJECT, () -> {
+            try {
+                return projection.project(xmlStream);
+            } catch (XMLStreamException e) {
+                throw new RuntimeException("Projection failed", e);
             }
+        });
+        return createContext(projected, metrics);
+    }
+    
+    private RegisteredSchema route(InputStream xmlStream) {
+        QName root;
+        try {
+            root = DocumentRouter.rootElement(xmlStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read XML document", e);
         }
-        
-        return properties;
+        RegisteredSchema registered = schemaRegistry.find(root);
+        if (registered == null) {
+            throw new IllegalArgumentException("No schema registered for root element " + root);
+        }
+        return registered;
+    }
+    
+    /**
+     * {@code basePackage}, or the first of {@code basePackage_2}, {@code basePackage_3}, ...
+     * that no class has been generated into, since generated classes cannot be replaced.
+     */
+    private String unusedPackage(String basePackage) {
+        Set<String> usedPackages = new HashSet<>();
+        for (Class<?> generated : objectGenerator.getGeneratedClasses().values()) {
+            usedPackages.add(generated.getPackageName());
+        }
+        String packageName = basePackage;
+        for (int revision = 2; usedPackages.contains(packageName); revision++) {
+            packageName = basePackage + "_" + revision;
+        }
+        return packageName;
+    }
+    
+    private static String packageSegment(String name) {
+        StringBuilder segment = new StringBuilder();
+        for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+            segment.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (segment.length() == 0 || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+            segment.insert(0, '_');
+        }
+        return segment.toString();
+    }
+    
+    private static InputStream decompressing(InputStream xmlStream) {
+        try {
+            return CompressedInput.open(xmlStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read XML input", e);
+        }
+    }
+    
+    private ConversionResult convertCached(byte[] xmlBytes) {
+        ConversionResult cached = conversionCache != null ? conversionCache.get(xmlBytes) : null;
+        if (cached != null) {
+            return cached;
+        }
+        ConversionResult result = convertXmlToObjects(createContext(xmlBytes));
+        if (conversionCache != null) {
+            conversionCache.put(xmlBytes, result);
+        }
+        return result;
+    }
+    
+    private Class<?> generateRecordClass(String recordXml) {
+        ConversionContext context = createContext(recordXml);
+        generateClasses(context, DEFAULT_PACKAGE);
+        return objectGenerator.getGeneratedClass(DEFAULT_PACKAGE, context.getSchema().getRootElementName());
+    }
+    
+    /**
+     * Offset of the root element's start tag, past any byte order mark, XML declaration,
+     * comments, processing instructions and document type declaration.
+     */
+    private static int rootElementStart(byte[] xml) {
+        int p = xml.length >= 3 && (xml[0] & 0xff) == 0xef && (xml[1] & 0xff) == 0xbb && (xml[2] & 0xff) == 0xbf ? 3 : 0;
+        while (p < xml.length) {
+            if (xml[p] != '<' || p + 1 == xml.length) {
+                p++;
+            } else if (xml[p + 1] == '?') {
+                p = indexOf(xml, "?>", p + 2) + 2;
+            } else if (xml[p + 1] == '!' && p + 3 < xml.length && xml[p + 2] == '-' && xml[p + 3] == '-') {
+                p = indexOf(xml, "-->", p + 4) + 3;
+            } else if (xml[p + 1] == '!') {
+                // Document type declaration, possibly with an internal subset in brackets
+                int depth = 0;
+                p += 2;
+                while (p < xml.length && (xml[p] != '>' || depth > 0)) {
+                    depth += xml[p] == '[' ? 1 : xml[p] == ']' ? -1 : 0;
+                    p++;
+                }
+                p++;
+            } else {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("No root element in the document");
+    }
+    
+    private static int indexOf(byte[] xml, String token, int from) {
+        for (int p = from; p <= xml.length - token.length(); p++) {
+            int i = 0;
+            while (i < token.length() && xml[p + i] == token.charAt(i)) {
+                i++;
+            }
+            if (i == token.length()) {
+                return p;
+            }
+        }
+        return xml.length;
+    }
+    
+    private StaxDataBinder dataBinder(String packageName) {
+        return new StaxDataBinder(elementName -> objectGenerator.getGeneratedClass(packageName, elementName));
+    }
+    
+    /**
+     * Binds records cut out of the input. Lazily generated classes have no setters to fill;
+     * their records are wrapped over the cut bytes instead.
+     */
+    private RecordBinder recordBinder(String packageName) {
+        if (objectGenerator.getGenerationMode() == GenerationMode.LAZY) {
+            return (record, type) -> objectGenerator.createLazyInstance(type, record, rootElementStart(record),
+                    record.length);
+        }
+        StaxDataBinder binder = dataBinder(packageName);
+        return (record, type) -> binder.bind(new ByteArrayInputStream(record), type);
     }
     
     private boolean isComplexType(ElementDefinition element) {
         return element.getChildren() != null && !element.getChildren().isEmpty() ||
                element.getAttributes() != null && !element.getAttributes().isEmpty();
     }
-}
\ No newline at end of file
+    
+    public ConversionCache getConversionCache() {
+        return conversionCache;
+    }
+    
+    /**
+     * Enables returning cached results for byte-identical documents from
+     * {@link #convertXmlToObjects(String)} and the batch conversions. Pass {@code null} to disable.
+     */
+    public void setConversionCache(ConversionCache conversionCache) {
+        this.conversionCache = conversionCache;
+    }
+    
+    public SchemaRegistry getSchemaRegistry() {
+        return schemaRegistry;
+    }
+    
+    public void setSchemaRegistry(SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+    
+    public ConversionMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
+    /**
+     * Publishes the stage metrics of every conversion to {@code metricsRegistry}. Pass
+     * {@code null} to disable.
+     */
+    public void setMetricsRegistry(ConversionMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+    
+    private static final class ArchiveEntry {
+        private final String name;
+        private final byte[] bytes;
+        
+        ArchiveEntry(String name, byte[] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.aixml.mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BatchConversionTest {
+
+    private XmlToJavaConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+    }
+
+    @Test
+    public void testOrderedBatchKeepsSourceOrderAndIsolatesFailures() {
+        List<byte[]> documents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String xml = i == 7
+                    ? "<library><book>"
+                    : "<library><book id=\"" + i + "\"><title>Book " + i + "</title></book></library>";
+            documents.add(xml.getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<BatchResult<byte[]>> results;
+        try (Stream<BatchResult<byte[]>> stream = converter.convertDocuments(documents,
+                BatchOptions.builder().parallelism(4).maxInFlight(6).build())) {
+            results = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult<byte[]> result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertSame(documents.get(i), result.getSource());
+            if (i == 7) {
+                assertFalse("Malformed document should fail", result.isSuccess());
+            } else {
+                assertTrue("Document " + i + " failed: " + result.getError(), result.isSuccess());
+                assertNotNull(result.getResult().getRootObject());
+            }
+        }
+        System.out.println("Converted " + results.size() + " documents in order");
+    }
+
+    @Test
+    public void testSourceIsPulledOnlyWithinInFlightLimit() {
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<String> endless = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                return "<library><book id=\"" + pulled.incrementAndGet() + "\"/></library>";
+            }
+        };
+
+        long taken;
+        try (Stream<BatchResult<String>> stream = converter.convertBatch(endless,
+                xml -> new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                BatchOptions.builder().parallelism(2).maxInFlight(3).build())) {
+            taken = stream.limit(5).filter(BatchResult::isSuccess).count();
+        }
+
+        assertEquals(5, taken);
+        assertTrue("Pulled " + pulled.get() + " documents to take 5", pulled.get() <= 5 + 3);
+    }
+
+    @Test
+    public void testUnorderedBatchDeliversResultsAsTheyComplete() throws Exception {
+        CountDownLatch firstTaken = new CountDownLatch(1);
+        List<String> sources = List.of("slow", "fast");
+
+        List<String> delivered = new ArrayList<>();
+        try (Stream<BatchResult<String>> stream = converter.convertBatch(sources.iterator(), name -> {
+            if (name.equals("slow")) {
+                await(firstTaken);
+            }
+            return new ByteArrayInputStream(("<" + name + " id=\"1\"/>").getBytes(StandardCharsets.UTF_8));
+        }, BatchOptions.builder().parallelism(2).ordered(false).build())) {
+            stream.forEach(result -> {
+                delivered.add(result.getSource());
+                firstTaken.countDown();
+            });
+        }
+
+        assertEquals(List.of("fast", "slow"), delivered);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue("Timed out waiting for the first result", latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.aixml.mapping;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class CompressedInputTest {
+
+    private static final String LIBRARY_XML = "<library>" +
+            "<book id=\"1\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title>XML Basics</title></book>" +
+            "</library>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private XmlToJavaConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+    }
+
+    @Test
+    public void testGzipAndZstdInputIsDecompressed() throws Exception {
+        for (byte[] compressed : List.of(gzip(LIBRARY_XML), zstd(LIBRARY_XML))) {
+            ConversionResult result = converter.convertXmlToObjects(
+                    new ByteArrayInputStream(compressed), ConversionOptions.defaults());
+            Object library = result.getRootObject();
+            List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+            assertEquals(2, books.size());
+            assertEquals("XML Basics", books.get(1).getClass().getMethod("getTitle").invoke(books.get(1)));
+        }
+
+        try (Stream<Object> books = converter.stream(new ByteArrayInputStream(gzip(LIBRARY_XML)), "library/book")) {
+            assertEquals(2, books.count());
+        }
+    }
+
+    @Test
+    public void testZipEntriesAreConvertedInParallel() throws Exception {
+        Path archive = tempFolder.getRoot().toPath().resolve("library.zip");
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            out.write(zip());
+        }
+        BatchOptions options = BatchOptions.builder().parallelism(3).build();
+
+        Map<String, BatchResult<String>> fromFile;
+        try (Stream<BatchResult<String>> results = converter.convertArchive(archive, options)) {
+            fromFile = results.collect(Collectors.toMap(BatchResult::getSource, result -> result, (a, b) -> a, TreeMap::new));
+        }
+        Map<String, BatchResult<String>> fromStream;
+        try (Stream<BatchResult<String>> results = converter.convertArchive(
+                new ByteArrayInputStream(Files.readAllBytes(archive)), options)) {
+            fromStream = results.collect(Collectors.toMap(BatchResult::getSource, result -> result, (a, b) -> a, TreeMap::new));
+        }
+
+        for (Map<String, BatchResult<String>> results : List.of(fromFile, fromStream)) {
+            assertEquals(List.of("broken.xml", "library-0.xml", "library-1.xml", "library-2.xml.gz"),
+                    List.copyOf(results.keySet()));
+            assertFalse(results.get("broken.xml").isSuccess());
+            for (String name : List.of("library-0.xml", "library-1.xml", "library-2.xml.gz")) {
+                BatchResult<String> result = results.get(name);
+                assertTrue(name, result.isSuccess());
+                Object library = result.getResult().getRootObject();
+                List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+                assertEquals(2, books.size());
+            }
+            System.out.println("Converted archive entries: " + results.keySet());
+        }
+    }
+
+    @Test
+    public void testUncompressedInputIsReadAsIs() throws Exception {
+        byte[] xml = LIBRARY_XML.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(xml, CompressedInput.open(new ByteArrayInputStream(xml)).readAllBytes());
+        assertArrayEquals(new byte[0], CompressedInput.open(new ByteArrayInputStream(new byte[0])).readAllBytes());
+
+        try {
+            CompressedInput.open(new ByteArrayInputStream(zip()));
+            fail("Zip archives go through convertArchive");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("convertArchive"));
+        }
+    }
+
+    private static byte[] zip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("docs/"));
+            zip.closeEntry();
+            for (int i = 0; i < 2; i++) {
+                zip.putNextEntry(new ZipEntry("library-" + i + ".xml"));
+                zip.write(LIBRARY_XML.replace("XML Basics", "XML Basics " + i).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry("broken.xml"));
+            zip.write("<library><book>".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("library-2.xml.gz"));
+            zip.write(gzip(LIBRARY_XML));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gzip(String xml) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] zstd(String xml) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new ZstdOutputStream(bytes)) {
+            out.write(xml.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
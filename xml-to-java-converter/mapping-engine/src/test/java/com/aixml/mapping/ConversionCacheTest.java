@@ -0,0 +1,110 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.RelationshipDetector;
+import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.DynamicObjectGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ConversionCacheTest {
+
+    private static final String LIBRARY_XML = "<library><book id=\"1\"><title>Java Programming</title></book></library>";
+
+    private XmlToJavaConverter converter;
+    private AtomicInteger analyses;
+
+    @Before
+    public void setUp() {
+        analyses = new AtomicInteger();
+        XmlStructureAnalyzer analyzer = new XmlStructureAnalyzer() {
+            @Override
+            public XmlSchema analyzeStructure(Document document) {
+                analyses.incrementAndGet();
+                return super.analyzeStructure(document);
+            }
+        };
+
+        converter = new XmlToJavaConverter(analyzer, new RelationshipDetector(),
+                new DynamicObjectGenerator(), new ClassFileGenerator());
+    }
+
+    @Test
+    public void testIdenticalDocumentsAreConvertedOnce() {
+        ConversionCache cache = new ConversionCache(1 << 20, Duration.ofMinutes(5));
+        converter.setConversionCache(cache);
+
+        ConversionResult first = converter.convertXmlToObjects(LIBRARY_XML);
+        ConversionResult second = converter.convertXmlToObjects(new String(LIBRARY_XML));
+        ConversionResult other = converter.convertXmlToObjects(LIBRARY_XML.replace("Java", "XML"));
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, analyses.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+        System.out.println("Hit ratio: " + cache.getHitRatio());
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        ConversionCache cache = new ConversionCache(1 << 20, Duration.ofSeconds(10), now::get);
+        byte[] xml = bytes(LIBRARY_XML);
+        ConversionResult result = ConversionResult.builder().build();
+
+        cache.put(xml, result);
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertSame(result, cache.get(xml));
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get(xml));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeightedSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDocumentsAreEvictedBySize() {
+        ConversionCache cache = new ConversionCache(100, Duration.ofMinutes(5));
+        byte[] a = new byte[40];
+        byte[] b = new byte[40];
+        byte[] c = new byte[40];
+        b[0] = 1;
+        c[0] = 2;
+
+        cache.put(a, ConversionResult.builder().build());
+        cache.put(b, ConversionResult.builder().build());
+        assertNotNull(cache.get(a));
+        cache.put(c, ConversionResult.builder().build());
+
+        assertNotNull("Recently used entry should stay", cache.get(a));
+        assertNull("Least recently used entry should be evicted", cache.get(b));
+        assertNotNull(cache.get(c));
+        assertEquals(80, cache.getWeightedSize());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.put(new byte[101], ConversionResult.builder().build());
+        assertEquals("Oversized documents are not cached", 2, cache.size());
+    }
+
+    @Test
+    public void testXxHash64MatchesReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, XxHash64.hash(new byte[0], 0));
+        assertEquals(0xD24EC4F1A98C6E5BL, XxHash64.hash(bytes("a"), 0));
+        assertEquals(0x44BC2CF5AD770999L, XxHash64.hash(bytes("abc"), 0));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
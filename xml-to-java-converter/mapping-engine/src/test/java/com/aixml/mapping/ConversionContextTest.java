@@ -0,0 +1,97 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.RelationshipDetector;
+import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.DynamicObjectGenerator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConversionContextTest {
+    
+    private static final String LIBRARY_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<library>" +
+            "<book id=\"1\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title>XML Basics</title></book>" +
+            "</library>";
+    
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+    
+    private XmlToJavaConverter converter;
+    private CountingAnalyzer analyzer;
+    
+    @Before
+    public void setUp() {
+        analyzer = new CountingAnalyzer();
+        
+        converter = new XmlToJavaConverter(analyzer, new RelationshipDetector(),
+                new DynamicObjectGenerator(), new ClassFileGenerator());
+    }
+    
+    @Test
+    public void testConversionWithFilesParsesOnce() {
+        ConversionResultWithFiles result = converter.convertXmlToObjectsAndFiles(
+                LIBRARY_XML, "com.test.context", tempFolder.getRoot().getPath());
+        
+        assertNotNull(result.getConversionResult().getXmlSchema());
+        assertTrue(result.getGeneratedFileCount() > 0);
+        assertEquals("Document should be parsed once", 1, analyzer.parses.get());
+        assertEquals("Document should be analyzed once", 1, analyzer.analyses.get());
+        System.out.println("Parses: " + analyzer.parses.get() + ", analyses: " + analyzer.analyses.get());
+    }
+    
+    @Test
+    public void testContextIsSharedAcrossStages() {
+        ConversionContext context = converter.createContext(LIBRARY_XML);
+        
+        ConversionResult result = converter.convertXmlToObjects(context);
+        converter.generateClassesFromXml(context, "com.test.shared");
+        
+        assertSame(context.getSchema(), result.getXmlSchema());
+        assertEquals("library", context.getDocument().getDocumentElement().getNodeName());
+        assertEquals(1, analyzer.parses.get());
+        assertEquals(1, analyzer.analyses.get());
+    }
+    
+    @Test
+    public void testRootObjectIsBoundFromDocument() throws Exception {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        
+        Object library = result.getRootObject();
+        assertNotNull("Root object should be bound", library);
+        List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+        assertEquals(2, books.size());
+        Object book = books.get(1);
+        assertEquals("2", book.getClass().getMethod("getId").invoke(book));
+        assertEquals("XML Basics", book.getClass().getMethod("getTitle").invoke(book));
+        System.out.println("Bound root object with " + books.size() + " books");
+    }
+    
+    private static class CountingAnalyzer extends XmlStructureAnalyzer {
+        private final AtomicInteger parses = new AtomicInteger();
+        private final AtomicInteger analyses = new AtomicInteger();
+        
+        @Override
+        public Document parseDocument(InputStream xmlStream) {
+            parses.incrementAndGet();
+            return super.parseDocument(xmlStream);
+        }
+        
+        @Override
+        public XmlSchema analyzeStructure(Document document) {
+            analyses.incrementAndGet();
+            return super.analyzeStructure(document);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.aixml.mapping;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConversionMetricsTest {
+
+    private static final String LIBRARY_XML = "<library>" +
+            "<book id=\"1\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title>XML Basics</title></book>" +
+            "</library>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private XmlToJavaConverter converter;
+    private ConversionMetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+        registry = new ConversionMetricsRegistry();
+        converter.setMetricsRegistry(registry);
+    }
+
+    @Test
+    public void testEveryStageIsMeasured() {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+
+        ConversionMetrics metrics = result.getMetrics();
+        System.out.println("Metrics: " + metrics);
+        assertEquals(List.of(ConversionMetrics.PARSE, ConversionMetrics.ANALYZE, ConversionMetrics.GENERATE,
+                ConversionMetrics.BIND), List.copyOf(metrics.getStages().keySet()));
+        assertNull("Relationships are detected on first access", metrics.getStage(ConversionMetrics.RELATIONSHIPS));
+        assertNotNull(result.toString());
+        result.hashCode();
+        assertNull("Printing or comparing the result detects nothing", metrics.getStage(ConversionMetrics.RELATIONSHIPS));
+        result.getRelationships();
+        assertNotNull(metrics.getStage(ConversionMetrics.RELATIONSHIPS));
+        for (StageMetrics stage : metrics.getStages().values()) {
+            assertTrue(stage.getStage() + " wall time", stage.getWallNanos() > 0);
+            assertTrue(stage.getStage() + " CPU time", stage.getCpuNanos() >= -1);
+        }
+        StageMetrics generate = metrics.getStage(ConversionMetrics.GENERATE);
+        assertTrue("Class generation allocates", generate.getAllocatedBytes() != 0);
+        assertTrue(metrics.getTotalWallNanos() >= generate.getWallNanos());
+    }
+
+    @Test
+    public void testRegistryAggregatesConversions() {
+        for (int i = 0; i < 5; i++) {
+            converter.convertXmlToObjects(LIBRARY_XML.replace("Java", "Java " + i));
+        }
+        ConversionResultWithFiles withFiles = converter.convertXmlToObjectsAndFiles(
+                LIBRARY_XML, "com.test.metrics", tempFolder.getRoot().getPath());
+
+        assertNotNull(withFiles.getMetrics().getStage(ConversionMetrics.FILES));
+        assertNull("Files are not part of the object conversion",
+                withFiles.getConversionResult().getMetrics().getStage(ConversionMetrics.FILES));
+
+        Histogram parse = registry.getWallTime(ConversionMetrics.PARSE);
+        assertEquals("One record per conversion", 6, parse.getCount());
+        assertEquals(1, registry.getWallTime(ConversionMetrics.FILES).getCount());
+        assertTrue(parse.getValueAtPercentile(50) <= parse.getValueAtPercentile(99));
+        assertTrue(parse.getValueAtPercentile(100) <= parse.getMax());
+        assertNull("Relationships were never read", registry.getWallTime(ConversionMetrics.RELATIONSHIPS));
+
+        converter.convertXmlToObjects(LIBRARY_XML).getParentChildRelations();
+        assertEquals("Published when detected", 1, registry.getWallTime(ConversionMetrics.RELATIONSHIPS).getCount());
+        System.out.println("Parse p50=" + parse.getValueAtPercentile(50) + "ns p99=" + parse.getValueAtPercentile(99) + "ns");
+    }
+
+    @Test
+    public void testHistogramPercentilesAreWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.035);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.035);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+        for (long value : new long[] {0, 63, 64, 1_000_000, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(value + " fits its bucket", value <= Histogram.upperBound(bucket));
+        }
+    }
+}
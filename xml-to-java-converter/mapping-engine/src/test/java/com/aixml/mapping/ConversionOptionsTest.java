@@ -0,0 +1,106 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.OneToManyRelation;
+import com.aixml.detector.RelationshipDetector;
+import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.DynamicObjectGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConversionOptionsTest {
+
+    private static final String LIBRARY_XML = "<library>" +
+            "<book id=\"1\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title>XML Basics</title></book>" +
+            "</library>";
+
+    private XmlToJavaConverter converter;
+    private DynamicObjectGenerator objectGenerator;
+    private AtomicInteger detections;
+
+    @Before
+    public void setUp() {
+        detections = new AtomicInteger();
+        RelationshipDetector detector = new RelationshipDetector() {
+            @Override
+            public List<OneToManyRelation> detectOneToMany(XmlSchema schema) {
+                detections.incrementAndGet();
+                return super.detectOneToMany(schema);
+            }
+        };
+        objectGenerator = new DynamicObjectGenerator();
+
+        converter = new XmlToJavaConverter(new XmlStructureAnalyzer(), detector,
+                objectGenerator, new ClassFileGenerator());
+    }
+
+    @Test
+    public void testRelationshipsAreDetectedOnceOnFirstAccess() throws Exception {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        assertEquals("Nothing is detected until asked", 0, detections.get());
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<OneToManyRelation>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return result.getOneToManyRelations();
+                }));
+            }
+            start.countDown();
+            List<OneToManyRelation> first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<List<OneToManyRelation>> future : futures) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+            assertFalse(first.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, detections.get());
+        System.out.println("One-to-many relations: " + result.getOneToManyRelations());
+    }
+
+    @Test
+    public void testRelationshipsCanBeSkipped() {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML,
+                ConversionOptions.builder().detectRelationships(false).build());
+
+        assertNotNull(result.getRootObject());
+        assertTrue(result.getRelationships().isEmpty());
+        assertEquals(0, detections.get());
+    }
+
+    @Test
+    public void testClassGenerationCanBeSkipped() {
+        ConversionOptions options = ConversionOptions.builder().generateClasses(false).build();
+
+        ConversionResult before = converter.convertXmlToObjects(LIBRARY_XML, options);
+        assertNull("No class to bind to yet", before.getRootObject());
+        assertTrue(before.getGeneratedClasses().isEmpty());
+        assertTrue(objectGenerator.getGeneratedClasses().isEmpty());
+        assertNull(before.getMetrics().getStage(ConversionMetrics.GENERATE));
+
+        converter.convertXmlToObjects(LIBRARY_XML);
+        ConversionResult after = converter.convertXmlToObjects(LIBRARY_XML.replace("Java", "Kotlin"), options);
+        assertNotNull("Binds to the class generated earlier", after.getRootObject());
+        assertTrue(after.getGeneratedClasses().isEmpty());
+        System.out.println("Root object: " + after.getRootObject());
+    }
+}
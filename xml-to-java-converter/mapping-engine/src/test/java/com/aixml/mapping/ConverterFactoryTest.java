@@ -0,0 +1,95 @@
+package com.aixml.mapping;
+
+import com.aixml.generator.GenerationMode;
+import com.aixml.generator.LazyXmlRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConverterFactoryTest {
+
+    private static final String LIBRARY_XML = "<library>" +
+            "<book id=\"1\"><title>Java Programming</title><price>10.5</price></book>" +
+            "<book id=\"2\"><title>XML Basics</title><price>7.25</price></book>" +
+            "</library>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testConverterIsWiredWithoutSpring() throws Exception {
+        long start = System.nanoTime();
+        XmlToJavaConverter converter = ConverterFactory.createConverter();
+        System.out.println("Converter created in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        Object library = result.getRootObject();
+        List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+        assertEquals(2, books.size());
+        assertFalse(result.getParentChildRelations().isEmpty());
+
+        List<String> files = converter.generateClassFilesFromXml(LIBRARY_XML, "com.factory.model",
+                tempFolder.getRoot().getPath());
+        assertFalse(files.isEmpty());
+        assertNull(converter.getConversionCache());
+    }
+
+    @Test
+    public void testOptionalSettingsArePassedOn() throws Exception {
+        ConversionMetricsRegistry metricsRegistry = new ConversionMetricsRegistry();
+        XmlToJavaConverter converter = ConverterFactory.builder()
+                .conversionCache(new ConversionCache(1024 * 1024, Duration.ofMinutes(1)))
+                .metricsRegistry(metricsRegistry)
+                .generationMode(GenerationMode.COMPACT)
+                .build()
+                .create();
+
+        ConversionResult first = converter.convertXmlToObjects(LIBRARY_XML);
+        ConversionResult second = converter.convertXmlToObjects(LIBRARY_XML);
+        assertSame(first.getRootObject(), second.getRootObject());
+        assertTrue(metricsRegistry.getStageNames().contains(ConversionMetrics.BIND));
+
+        Object book = ((List<?>) first.getRootObject().getClass().getMethod("getBookList")
+                .invoke(first.getRootObject())).get(0);
+        assertEquals(double.class, book.getClass().getMethod("getPrice").getReturnType());
+    }
+
+    @Test
+    public void testEachConverterHasItsOwnCollaborators() {
+        ConverterFactory factory = ConverterFactory.builder().build();
+        XmlToJavaConverter first = factory.create();
+        XmlToJavaConverter second = factory.create();
+        assertNotSame(first.getSchemaRegistry(), second.getSchemaRegistry());
+
+        SchemaRegistry shared = new SchemaRegistry();
+        assertSame(shared, ConverterFactory.builder().schemaRegistry(shared).build().create().getSchemaRegistry());
+    }
+
+    @Test
+    public void testLazyConvertersWrapDocumentsAndRecords() throws Exception {
+        XmlToJavaConverter converter = ConverterFactory.builder()
+                .generationMode(GenerationMode.LAZY)
+                .build()
+                .create();
+
+        Object library = converter.convertXmlToObjects(LIBRARY_XML).getRootObject();
+        List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+        assertEquals("XML Basics", books.get(1).getClass().getMethod("getTitle").invoke(books.get(1)));
+
+        converter.registerSchema("library", new ByteArrayInputStream(LIBRARY_XML.getBytes(StandardCharsets.UTF_8)));
+        Object registered = converter.convertRegistered(
+                new ByteArrayInputStream(LIBRARY_XML.replace("XML", "StAX").getBytes(StandardCharsets.UTF_8)))
+                .getRootObject();
+        assertTrue(registered instanceof LazyXmlRecord);
+        List<?> registeredBooks = (List<?>) registered.getClass().getMethod("getBookList").invoke(registered);
+        assertEquals("StAX Basics",
+                registeredBooks.get(1).getClass().getMethod("getTitle").invoke(registeredBooks.get(1)));
+    }
+}
@@ -0,0 +1,165 @@
+package com.aixml.mapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class JdbcSinkTest {
+
+    private static final String LIBRARY_XML = "<library name=\"City\">" +
+            "<book id=\"1\" year=\"2001\"><title>Java Programming</title><price>10.5</price>" +
+            "<author><name>Ada</name></author><tag>java</tag><tag>lang</tag></book>" +
+            "<book id=\"2\" year=\"1999\"><title>XML Basics</title><price>7.25</price>" +
+            "<author><name>Bob</name></author><tag>xml</tag></book>" +
+            "<book id=\"3\" year=\"2010\"><title>Order &amp; Chaos</title><price>3</price>" +
+            "<author><name>Cy</name></author></book>" +
+            "</library>";
+
+    private XmlToJavaConverter converter;
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+
+    @Before
+    public void setUp() throws SQLException {
+        converter = ConverterFactory.createConverter();
+
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + getClass().getSimpleName() + System.nanoTime());
+        // An in-memory database lives as long as a connection to it
+        keepAlive = dataSource.getConnection();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        keepAlive.close();
+    }
+
+    @Test
+    public void testDocumentIsLoadedIntoRelatedTables() throws Exception {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        JdbcLoadOptions options = JdbcLoadOptions.builder().batchSize(2).commitInterval(5).build();
+
+        try (JdbcSink sink = converter.openJdbcSink(result.getXmlSchema(), dataSource, options)) {
+            for (TableLayout table : sink.getTables()) {
+                System.out.println(table.createStatement());
+            }
+            assertEquals(List.of("library", "book", "book_tag", "author"),
+                    sink.getTables().stream().map(TableLayout::getTableName).collect(Collectors.toList()));
+            sink.write(result.getRootObject());
+            assertEquals(1 + 3 + 3 + 3, sink.getRowCount());
+        }
+
+        assertEquals(List.of("City"), query("SELECT \"name\" FROM \"library\""));
+        assertEquals(List.of("Java Programming|2001|10.5|1", "XML Basics|1999|7.25|1", "Order & Chaos|2010|3.0|1"),
+                query("SELECT \"title\", \"year\", \"price\", \"library_id\" FROM \"book\" ORDER BY \"_id\""));
+        assertEquals(List.of("Ada|java", "Ada|lang", "Bob|xml"),
+                query("SELECT a.\"name\", t.\"value\" FROM \"author\" a JOIN \"book_tag\" t ON t.\"book_id\" = a.\"book_id\"" +
+                        " ORDER BY t.\"_id\""));
+    }
+
+    @Test
+    public void testStreamedRecordsAreAppended() throws Exception {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        try (JdbcSink sink = converter.openJdbcSink(result.getXmlSchema(), dataSource, JdbcLoadOptions.defaults())) {
+            sink.write(result.getRootObject());
+        }
+
+        try (JdbcSink sink = converter.openJdbcSink(result.getXmlSchema(), dataSource, JdbcLoadOptions.defaults());
+             Stream<Object> books = converter.stream(new ByteArrayInputStream(LIBRARY_XML.getBytes(StandardCharsets.UTF_8)),
+                     "library/book")) {
+            sink.writeAll(books);
+        }
+
+        assertEquals(List.of("6"), query("SELECT COUNT(*) FROM \"book\""));
+        assertEquals("Keys continue after the rows already loaded", List.of("4|null", "5|null", "6|null"),
+                query("SELECT \"_id\", \"library_id\" FROM \"book\" WHERE \"_id\" > 3 ORDER BY \"_id\""));
+        assertEquals(List.of("6"), query("SELECT COUNT(*) FROM \"author\" a JOIN \"book\" b ON a.\"book_id\" = b.\"_id\""));
+    }
+
+    @Test
+    public void testFailedLoadIsRolledBackToTheLastCommit() throws Exception {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        ConversionResult bad = converter.convertXmlToObjects(LIBRARY_XML.replace("year=\"1999\"", "year=\"unknown\""));
+        JdbcLoadOptions options = JdbcLoadOptions.builder().commitInterval(100).build();
+
+        JdbcSink sink = converter.openJdbcSink(result.getXmlSchema(), dataSource, options);
+        sink.write(result.getRootObject());
+        sink.flush();
+        try {
+            sink.write(bad.getRootObject());
+            fail("A value that does not fit its column fails the load");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getCause() instanceof IllegalArgumentException);
+        }
+        sink.close();
+
+        assertEquals(List.of("3"), query("SELECT COUNT(*) FROM \"book\""));
+    }
+
+    @Test
+    public void testConcurrentSinksGetDistinctKeys() throws Exception {
+        ConversionResult result = converter.convertXmlToObjects(LIBRARY_XML);
+        JdbcSink first = converter.openJdbcSink(result.getXmlSchema(), dataSource, JdbcLoadOptions.defaults());
+        JdbcSink second = converter.openJdbcSink(result.getXmlSchema(), dataSource, JdbcLoadOptions.defaults());
+
+        Thread other = new Thread(() -> {
+            second.write(result.getRootObject());
+            second.close();
+        });
+        other.start();
+        first.write(result.getRootObject());
+        first.close();
+        other.join();
+
+        assertEquals(List.of("6|6"), query("SELECT COUNT(*), COUNT(DISTINCT \"_id\") FROM \"book\""));
+        assertEquals("Each author belongs to a book of its own", List.of("6"),
+                query("SELECT COUNT(DISTINCT \"book_id\") FROM \"author\""));
+    }
+
+    @Test
+    public void testColumnTypesFitEveryOccurrence() throws Exception {
+        String xml = "<shelf><book id=\"1\" year=\"2001\"><price>10</price></book>" +
+                "<book id=\"A12\" year=\"12345678901\"><price>7.25</price></book></shelf>";
+        ConversionResult result = converter.convertXmlToObjects(xml);
+
+        try (JdbcSink sink = converter.openJdbcSink(result.getXmlSchema(), dataSource, JdbcLoadOptions.defaults())) {
+            TableLayout book = sink.getTables().get(1);
+            assertEquals(List.of("String", "Long", "Double"),
+                    book.getColumns().stream().map(ColumnLayout::getValueType).collect(Collectors.toList()));
+            sink.write(result.getRootObject());
+        }
+
+        assertEquals(List.of("1|2001|10.0", "A12|12345678901|7.25"),
+                query("SELECT \"id\", \"year\", \"price\" FROM \"book\" ORDER BY \"_id\""));
+    }
+
+    private List<String> query(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = keepAlive.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            int columns = result.getMetaData().getColumnCount();
+            while (result.next()) {
+                List<String> values = new ArrayList<>();
+                for (int i = 1; i <= columns; i++) {
+                    values.add(String.valueOf(result.getObject(i)));
+                }
+                rows.add(String.join("|", values));
+            }
+        }
+        return rows;
+    }
+}
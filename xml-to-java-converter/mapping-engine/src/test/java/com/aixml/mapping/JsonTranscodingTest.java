@@ -0,0 +1,96 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonTranscodingTest {
+
+    private static final String LIBRARY_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<library name=\"City\">" +
+            "<shelf code=\"A\">" +
+            "<book id=\"1\"><title>Java Programming</title><year>2020</year><price>39.5</price>" +
+            "<available>true</available></book>" +
+            "<book id=\"2\"><title>XML &amp; JSON</title><year>2018</year><price>20</price>" +
+            "<available>false</available></book>" +
+            "</shelf>" +
+            "<shelf code=\"B\">" +
+            "<book id=\"3\"><title>Streams</title><year>2021</year><price>15.25</price>" +
+            "<available>true</available></book>" +
+            "</shelf>" +
+            "<note>Open <b>daily</b></note>" +
+            "</library>";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private XmlToJavaConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+    }
+
+    @Test
+    public void testCollectionsAndTypesFollowSchema() throws Exception {
+        JsonNode library = mapper.readTree(converter.convertXmlToJson(LIBRARY_XML));
+        System.out.println("JSON: " + library);
+
+        assertEquals("City", library.get("name").asText());
+        assertTrue(library.get("shelf").isArray());
+        assertEquals(2, library.get("shelf").size());
+
+        JsonNode secondShelf = library.get("shelf").get(1);
+        assertEquals("B", secondShelf.get("code").asText());
+        assertTrue("Single book under a shelf is still an array", secondShelf.get("book").isArray());
+        assertEquals(1, secondShelf.get("book").size());
+
+        JsonNode book = library.get("shelf").get(0).get("book").get(1);
+        assertEquals("2", book.get("id").asText());
+        assertEquals("XML & JSON", book.get("title").asText());
+        assertTrue(book.get("year").isIntegralNumber());
+        assertEquals(2018, book.get("year").asInt());
+        assertTrue("Widened to a number across occurrences", book.get("price").isNumber());
+        assertTrue(book.get("available").isBoolean());
+        assertFalse(book.get("available").asBoolean());
+    }
+
+    @Test
+    public void testSchemaFromSampleDrivesOtherDocuments() throws Exception {
+        XmlSchema schema = new XmlStructureAnalyzer().analyzeStructure(LIBRARY_XML);
+        String other = "<library name=\"Small\"><shelf code=\"C\">" +
+                "<book id=\"9\"><title>Only one</title><year>n/a</year></book>" +
+                "</shelf></library>";
+
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(json)) {
+            converter.transcodeToJson(new ByteArrayInputStream(other.getBytes(StandardCharsets.UTF_8)), schema, generator);
+        }
+
+        JsonNode library = mapper.readTree(json.toString());
+        assertTrue("Single shelf is an array as in the sample", library.get("shelf").isArray());
+        JsonNode book = library.get("shelf").get(0).get("book").get(0);
+        assertEquals("Value that is not a number stays a string", "n/a", book.get("year").asText());
+        assertTrue(book.get("year").isTextual());
+    }
+
+    @Test
+    public void testInterleavedCollectionsAreGrouped() throws Exception {
+        String xml = "<order><item>a</item><note>first</note><item>b</item><item>c</item></order>";
+
+        JsonNode order = mapper.readTree(converter.convertXmlToJson(xml));
+
+        assertEquals("first", order.get("note").asText());
+        assertEquals(3, order.get("item").size());
+        assertEquals("c", order.get("item").get(2).asText());
+    }
+}
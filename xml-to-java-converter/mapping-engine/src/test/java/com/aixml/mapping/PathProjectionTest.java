@@ -0,0 +1,108 @@
+package com.aixml.mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PathProjectionTest {
+
+    private static final String LIBRARY_XML = "<library name=\"City\">" +
+            "<books>" +
+            "<book id=\"1\" isbn=\"111\"><title>Java Programming</title><author>Jane</author>" +
+            "<review><text>Long review</text></review></book>" +
+            "<book id=\"2\" isbn=\"222\"><title>XML Basics</title><author>John</author></book>" +
+            "</books>" +
+            "<members><member id=\"7\"><name>Secret Member</name></member></members>" +
+            "</library>";
+
+    private XmlToJavaConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+    }
+
+    @Test
+    public void testProjectionKeepsOnlySelectedPaths() throws Exception {
+        PathProjection projection = PathProjection.of("library/books/book/title", "/library/books/book/@id");
+
+        String projected = project(projection, LIBRARY_XML);
+        System.out.println("Projected: " + projected);
+
+        assertTrue(projected.contains("<book id=\"1\"><title>Java Programming</title></book>"));
+        assertTrue(projected.contains("<book id=\"2\"><title>XML Basics</title></book>"));
+        assertFalse(projected.contains("isbn"));
+        assertFalse(projected.contains("Jane"));
+        assertFalse(projected.contains("review"));
+        assertFalse(projected.contains("Secret"));
+        assertTrue("The root is always kept", projected.contains("<library>"));
+    }
+
+    @Test
+    public void testWildcardsAndWholeSubtrees() throws Exception {
+        String projected = project(PathProjection.of("library/*/*/@id", "library/books/book/review", "library/@*"),
+                LIBRARY_XML);
+        System.out.println("Projected: " + projected);
+
+        assertTrue(projected.contains("<library name=\"City\">"));
+        assertTrue(projected.contains("<member id=\"7\"/>"));
+        assertTrue(projected.contains("<review><text>Long review</text></review>"));
+        assertFalse(projected.contains("Secret"));
+        assertFalse(projected.contains("Jane"));
+
+        String nothing = project(PathProjection.of("catalog/item"), LIBRARY_XML);
+        assertTrue(nothing.endsWith("<library/>"));
+
+        try {
+            PathProjection.of("library/@");
+            fail("An attribute path needs an attribute name");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConversionBindsOnlyProjectedFields() throws Exception {
+        ConversionOptions options = ConversionOptions.builder()
+                .projection(PathProjection.of("library/books/book/title", "library/books/book/@id"))
+                .build();
+        converter.convertXmlToObjects(LIBRARY_XML);
+
+        ConversionResult result = converter.convertXmlToObjects(
+                new ByteArrayInputStream(LIBRARY_XML.getBytes(StandardCharsets.UTF_8)), options);
+
+        assertNotNull(result.getRootObject());
+        String packageName = result.getRootObject().getClass().getPackageName();
+        assertNotEquals("Projected classes do not replace the full ones", "com.generated.model", packageName);
+        Class<?> book = result.getGeneratedClasses().stream()
+                .filter(clazz -> clazz.getPackageName().equals(packageName))
+                .filter(clazz -> clazz.getSimpleName().equals("Book"))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        List<String> fields = new ArrayList<>();
+        for (Field field : book.getDeclaredFields()) {
+            fields.add(field.getName());
+        }
+        System.out.println("Projected book fields: " + fields);
+        assertTrue(fields.contains("id"));
+        assertTrue(fields.contains("title"));
+        assertFalse(fields.contains("author"));
+        assertFalse(fields.contains("isbn"));
+        assertNotNull(result.getMetrics().getStage(ConversionMetrics.PROJECT));
+
+        ConversionResult fromString = converter.convertXmlToObjects(LIBRARY_XML, options);
+        assertEquals(packageName, fromString.getRootObject().getClass().getPackageName());
+    }
+
+    private static String project(PathProjection projection, String xml) throws Exception {
+        return new String(projection.project(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))),
+                StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,195 @@
+package com.aixml.mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RecordProcessorTest {
+
+    private static final String LIBRARY_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<!-- <book id=\"x\"> in a comment -->" +
+            "<library>" +
+            "<book id=\"1\" note=\"a > b\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title><![CDATA[<book> & </book>]]></title></book>" +
+            "<book id=\"3\"/>" +
+            "<shelf><book id=\"not a record\"/></shelf>" +
+            "<book id=\"4\"><title>Ünïcode</title></book>" +
+            "</library>";
+
+    private XmlToJavaConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+    }
+
+    @Test
+    public void testRecordsArePublishedFromArbitraryChunks() throws Exception {
+        Flow.Processor<ByteBuffer, Book> processor = converter.recordProcessor("library/book", Book.class);
+        CollectingSubscriber<Book> subscriber = new CollectingSubscriber<>(1);
+        processor.subscribe(subscriber);
+
+        try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            byte[] xml = LIBRARY_XML.getBytes(StandardCharsets.UTF_8);
+            // Small chunks split tags, comments, CDATA and multi-byte characters
+            for (int i = 0; i < xml.length; i += 5) {
+                publisher.submit(ByteBuffer.wrap(xml, i, Math.min(5, xml.length - i)));
+            }
+        }
+
+        assertTrue("Processor should complete", subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        List<String> books = new ArrayList<>();
+        for (Book book : subscriber.items) {
+            books.add(book.id + ":" + book.title);
+        }
+        assertEquals(List.of("1:Java Programming", "2:<book> & </book>", "3:null", "4:Ünïcode"), books);
+    }
+
+    @Test
+    public void testChunksAreRequestedOnlyForDemand() {
+        ChunkPublisher publisher = new ChunkPublisher(1_000);
+        Flow.Processor<ByteBuffer, Object> processor = converter.recordProcessor("library/book");
+        CollectingSubscriber<Object> subscriber = new CollectingSubscriber<>(0);
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        assertEquals("Nothing should be read without demand", 0, publisher.delivered);
+
+        subscriber.subscription.request(3);
+        assertEquals(3, subscriber.items.size());
+        assertEquals("One chunk per record was needed", 4, publisher.delivered);
+
+        subscriber.subscription.cancel();
+        assertTrue("Cancel should reach the publisher", publisher.cancelled);
+        System.out.println("Delivered " + publisher.delivered + " chunks for " + subscriber.items.size() + " records");
+    }
+
+    @Test
+    public void testCancelBeforeUpstreamArrivesCancelsIt() {
+        ChunkPublisher publisher = new ChunkPublisher(10);
+        Flow.Processor<ByteBuffer, Object> processor = converter.recordProcessor("library/book");
+        CollectingSubscriber<Object> subscriber = new CollectingSubscriber<>(0);
+        processor.subscribe(subscriber);
+        subscriber.subscription.cancel();
+
+        publisher.subscribe(processor);
+
+        assertTrue("Late upstream should be cancelled", publisher.cancelled);
+        assertEquals(0, publisher.delivered);
+    }
+
+    @Test
+    public void testTruncatedInputFails() throws Exception {
+        Flow.Processor<ByteBuffer, Book> processor = converter.recordProcessor("library/book", Book.class);
+        CollectingSubscriber<Book> subscriber = new CollectingSubscriber<>(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+
+        try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            publisher.submit(ByteBuffer.wrap("<library><book id=\"1\"/><book id=\"2\">".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, subscriber.items.size());
+        assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+
+    public static class Book {
+        @XmlAttribute(name = "id")
+        String id;
+
+        @XmlElement(name = "title")
+        String title;
+    }
+
+    /**
+     * Requests {@code batch} records on subscription and again after each record, or nothing
+     * at all when {@code batch} is 0.
+     */
+    private static class CollectingSubscriber<T> implements Flow.Subscriber<T> {
+        private final long batch;
+        private final List<T> items = new ArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        CollectingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+            if (batch == 1) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Synchronously publishes a library of books, the start tag first and then one book per chunk.
+     */
+    private static class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+        private final int books;
+        private int delivered;
+        private boolean cancelled;
+
+        ChunkPublisher(int books) {
+            this.books = books;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && !cancelled && delivered <= books; i++) {
+                        String chunk = delivered == 0
+                                ? "<library>"
+                                : "<book id=\"" + delivered + "\"><title>Book " + delivered + "</title></book>";
+                        delivered++;
+                        subscriber.onNext(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
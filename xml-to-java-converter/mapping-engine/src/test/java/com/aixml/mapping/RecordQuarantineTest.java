@@ -0,0 +1,106 @@
+package com.aixml.mapping;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class RecordQuarantineTest {
+
+    private static final String LIBRARY_XML = "<library><books>\n" +
+            "<book id=\"1\"><title>Java Programming</title><price>10.5</price></book>\n" +
+            "<book id=\"2\"><title>Unclosed title</book>\n" +
+            "<book id=\"3\"><title>Fine &amp; Dandy</title><price>7.25</price></book>\n" +
+            "<book id=\"4\"><title>Bad &bogus; entity</title><price>1.0</price></book>\n" +
+            "<book id=\"5\"><title>Wrong price</title><price>cheap</price></book>\n" +
+            "<book id=\"6\"><title>Last good</title><price>3.0</price></book>\n" +
+            "<book id=\"7\"><title>Truncated";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private XmlToJavaConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = ConverterFactory.createConverter();
+    }
+
+    @Test
+    public void testBadRecordsAreQuarantinedAndTheRestConverted() throws Exception {
+        Path quarantineFile = tempFolder.getRoot().toPath().resolve("quarantine.jsonl");
+        byte[] xml = LIBRARY_XML.getBytes(StandardCharsets.UTF_8);
+
+        List<Object> titles = new ArrayList<>();
+        try (Quarantine quarantine = Quarantine.toFile(quarantineFile);
+             Stream<Object> books = converter.stream(trickle(xml), "library/books/book", null, quarantine)) {
+            for (Object book : books.collect(Collectors.toList())) {
+                titles.add(book.getClass().getMethod("getTitle").invoke(book));
+            }
+            assertEquals(4, quarantine.getCount());
+        }
+
+        assertEquals(List.of("Java Programming", "Fine & Dandy", "Last good"), titles);
+
+        List<String> lines = Files.readAllLines(quarantineFile);
+        assertEquals(4, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> ids = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode entry = mapper.readTree(line);
+            System.out.println("Quarantined: " + entry.get("error").asText() + " - " + entry.get("message").asText());
+            int offset = entry.get("offset").asInt();
+            int length = entry.get("length").asInt();
+            String original = new String(xml, offset, length, StandardCharsets.UTF_8);
+            assertEquals("Offsets point at the record in the input", original, entry.get("record").asText());
+            ids.add(original.substring(original.indexOf('"') + 1, original.indexOf('"', original.indexOf('"') + 1)));
+        }
+        assertEquals(List.of("2", "4", "5", "7"), ids);
+        assertTrue(lines.get(0).contains("<book id=\\\"2\\\"><title>Unclosed title</book>"));
+    }
+
+    @Test
+    public void testSplitterRecoversFromMismatchedEndTags() {
+        RecordSplitter splitter = new RecordSplitter("list/item");
+        List<String> records = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        String xml = "<list><item><a>1</item><item></b><c>2</c></item><item>3</item></list>";
+
+        splitter.feed(java.nio.ByteBuffer.wrap(xml.getBytes(StandardCharsets.UTF_8)), (record, offset) -> {
+            records.add(new String(record, StandardCharsets.UTF_8));
+            offsets.add(offset);
+        });
+        splitter.finish();
+
+        assertEquals(List.of("<item><a>1</item>", "<item></b><c>2</c></item>", "<item>3</item>"), records);
+        assertEquals(List.of(6L, (long) xml.indexOf("<item></b>"), (long) xml.indexOf("<item>3")), offsets);
+    }
+
+    /**
+     * Hands out at most 7 bytes per read, so records and tags span many chunks.
+     */
+    private static InputStream trickle(byte[] xml) {
+        return new FilterInputStream(new ByteArrayInputStream(xml)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+}
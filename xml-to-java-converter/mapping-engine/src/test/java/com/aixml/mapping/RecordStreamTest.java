@@ -0,0 +1,153 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.RelationshipDetector;
+import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.DynamicObjectGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class RecordStreamTest {
+
+    private XmlToJavaConverter converter;
+    private AtomicInteger analyses;
+
+    @Before
+    public void setUp() {
+        analyses = new AtomicInteger();
+        XmlStructureAnalyzer analyzer = new XmlStructureAnalyzer() {
+            @Override
+            public XmlSchema analyzeStructure(Document document) {
+                analyses.incrementAndGet();
+                return super.analyzeStructure(document);
+            }
+        };
+
+        converter = new XmlToJavaConverter(analyzer, new RelationshipDetector(),
+                new DynamicObjectGenerator(), new ClassFileGenerator());
+    }
+
+    @Test
+    public void testRecordClassIsGeneratedFromFirstRecord() throws Exception {
+        String xml = "<library>" +
+                "<book id=\"1\"><title>Java Programming</title><year>2020</year></book>" +
+                "<book id=\"2\"><title>XML Basics</title><year>2018</year></book>" +
+                "<book id=\"3\"><title>Streams &amp; Parsers</title><year>2021</year></book>" +
+                "</library>";
+
+        List<Object> books;
+        try (Stream<Object> stream = converter.stream(utf8(xml), "library/book")) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(3, books.size());
+        Object last = books.get(2);
+        assertEquals("3", last.getClass().getMethod("getId").invoke(last));
+        assertEquals("Streams & Parsers", last.getClass().getMethod("getTitle").invoke(last));
+        assertEquals(2021, last.getClass().getMethod("getYear").invoke(last));
+        assertSame(books.get(0).getClass(), last.getClass());
+        assertEquals("Only the first record should be analyzed", 1, analyses.get());
+        System.out.println("Streamed " + books.size() + " records as " + last.getClass().getName());
+    }
+
+    @Test
+    public void testOnlyElementsAtPathAreRecords() {
+        String xml = "<library>" +
+                "<featured><book id=\"0\"><title>Not a record</title></book></featured>" +
+                "<shelf><book id=\"1\"><title>A</title></book><book id=\"2\"><title>B</title></book></shelf>" +
+                "<shelf><book id=\"3\"><title>C</title></book></shelf>" +
+                "</library>";
+
+        List<String> ids;
+        try (Stream<Book> stream = converter.stream(utf8(xml), "/library/shelf/*", Book.class)) {
+            ids = stream.map(book -> book.id + ":" + book.title).collect(Collectors.toList());
+        }
+
+        assertEquals(List.of("1:A", "2:B", "3:C"), ids);
+        assertEquals("A given record type needs no analysis", 0, analyses.get());
+    }
+
+    @Test
+    public void testRecordsAreParsedOnDemand() {
+        RecordSource source = new RecordSource(1_000_000);
+
+        long count;
+        try (Stream<Book> stream = converter.stream(source, "library/book", Book.class)) {
+            count = stream.limit(10).count();
+        }
+
+        assertEquals(10, count);
+        assertTrue("Only the start of the input should be read, read " + source.produced,
+                source.produced < 1_000);
+        assertTrue("Closing the stream should close the input", source.closed.get());
+        System.out.println("Read " + source.produced + " of 1000000 records to take 10");
+    }
+
+    public static class Book {
+        @XmlAttribute(name = "id")
+        String id;
+
+        @XmlElement(name = "title")
+        String title;
+    }
+
+    /**
+     * Produces a library document with the given number of books as it is read.
+     */
+    private static class RecordSource extends InputStream {
+        private final int records;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private byte[] chunk = "<library>".getBytes(StandardCharsets.UTF_8);
+        private int position;
+        private int produced;
+        private boolean ended;
+
+        RecordSource(int records) {
+            this.records = records;
+        }
+
+        @Override
+        public int read() {
+            if (position == chunk.length) {
+                if (ended) {
+                    return -1;
+                }
+                String next;
+                if (produced < records) {
+                    produced++;
+                    next = "<book id=\"" + produced + "\"><title>Book " + produced + "</title></book>";
+                } else {
+                    ended = true;
+                    next = "</library>";
+                }
+                chunk = next.getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+
+    private static InputStream utf8(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
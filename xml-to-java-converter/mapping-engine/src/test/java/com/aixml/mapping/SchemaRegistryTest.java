@@ -0,0 +1,161 @@
+package com.aixml.mapping;
+
+import com.aixml.analyzer.XmlSchema;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import com.aixml.detector.RelationshipDetector;
+import com.aixml.generator.ClassFileGenerator;
+import com.aixml.generator.DynamicObjectGenerator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SchemaRegistryTest {
+
+    private static final String LIBRARY_XML = "<library>" +
+            "<book id=\"1\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title>XML Basics</title></book>" +
+            "</library>";
+
+    private static final String CATALOG_XSD = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"" +
+            " targetNamespace=\"urn:catalog\" xmlns=\"urn:catalog\" elementFormDefault=\"qualified\">" +
+            "<xs:element name=\"catalog\">" +
+            "<xs:complexType><xs:sequence>" +
+            "<xs:element name=\"item\" type=\"ItemType\" maxOccurs=\"unbounded\"/>" +
+            "</xs:sequence><xs:attribute name=\"version\" type=\"xs:int\"/></xs:complexType>" +
+            "</xs:element>" +
+            "<xs:complexType name=\"ItemType\"><xs:sequence>" +
+            "<xs:element name=\"name\" type=\"xs:string\"/>" +
+            "<xs:element name=\"price\" type=\"xs:decimal\"/>" +
+            "</xs:sequence><xs:attribute name=\"sku\" type=\"xs:string\" use=\"required\"/></xs:complexType>" +
+            "</xs:schema>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private XmlToJavaConverter converter;
+    private AtomicInteger analyses;
+
+    @Before
+    public void setUp() {
+        analyses = new AtomicInteger();
+        XmlStructureAnalyzer analyzer = new XmlStructureAnalyzer() {
+            @Override
+            public XmlSchema analyzeStructure(Document document) {
+                analyses.incrementAndGet();
+                return super.analyzeStructure(document);
+            }
+        };
+
+        converter = new XmlToJavaConverter(analyzer, new RelationshipDetector(),
+                new DynamicObjectGenerator(), new ClassFileGenerator());
+    }
+
+    @Test
+    public void testRegisteredDocumentsAreBoundWithoutInference() throws Exception {
+        RegisteredSchema registered = converter.registerSchema("library", stream(LIBRARY_XML));
+        assertEquals(1, analyses.get());
+
+        for (int i = 0; i < 3; i++) {
+            String xml = LIBRARY_XML.replace("XML Basics", "XML Basics " + i);
+            // Streams without mark support are buffered for routing
+            InputStream unmarkable = new SequenceInputStream(stream(xml), stream(""));
+            ConversionResult result = converter.convertRegistered(unmarkable);
+
+            Object library = result.getRootObject();
+            assertSame(registered.getRootClass(), library.getClass());
+            List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+            Object book = books.get(1);
+            assertEquals("XML Basics " + i, book.getClass().getMethod("getTitle").invoke(book));
+            assertSame(registered.getSchema(), result.getXmlSchema());
+            assertNotNull(result.getMetrics().getStage(ConversionMetrics.ROUTE));
+            assertNull(result.getMetrics().getStage(ConversionMetrics.ANALYZE));
+        }
+        assertEquals("No analysis on the hot path", 1, analyses.get());
+    }
+
+    @Test
+    public void testDocumentTypesAreRoutedByNamespace() {
+        RegisteredSchema orders = converter.registerSchema("orders",
+                stream("<order xmlns=\"urn:orders\"><id>1</id><total>9.5</total></order>"));
+        RegisteredSchema returns = converter.registerSchema("returns",
+                stream("<?xml version=\"1.0\"?><!-- returned goods --><order xmlns=\"urn:returns\">" +
+                        "<reason>Damaged</reason></order>"));
+        assertEquals("urn:orders", orders.getNamespace());
+        assertNotEquals(orders.getPackageName(), returns.getPackageName());
+
+        Object order = converter.convertRegistered(stream("<order xmlns=\"urn:orders\"><id>2</id></order>")).getRootObject();
+        Object returned = converter.convertRegistered(
+                stream("<order xmlns=\"urn:returns\"><reason>Late</reason></order>")).getRootObject();
+        assertSame(orders.getRootClass(), order.getClass());
+        assertSame(returns.getRootClass(), returned.getClass());
+        System.out.println("Routed to " + order.getClass().getName() + " and " + returned.getClass().getName());
+
+        try {
+            converter.convertRegistered(stream("<invoice><id>3</id></invoice>"));
+            fail("Unregistered document types are rejected");
+        } catch (RuntimeException expected) {
+            assertTrue(expected.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void testChangedSchemaIsGeneratedIntoANewPackage() throws Exception {
+        RegisteredSchema first = converter.registerSchema("orders", stream("<order><id>1</id></order>"));
+        assertSame(first.getRootClass(), converter.registerSchema("orders", stream("<order><id>1</id></order>")).getRootClass());
+
+        RegisteredSchema changed = converter.registerSchema("orders",
+                stream("<order><id>1</id><total>9.5</total></order>"));
+        assertNotEquals(first.getPackageName(), changed.getPackageName());
+        assertSame(changed, converter.getSchemaRegistry().get("orders"));
+
+        Object order = converter.convertRegistered(stream("<order><id>2</id><total>3.5</total></order>")).getRootObject();
+        assertSame(changed.getRootClass(), order.getClass());
+        assertEquals(3.5, order.getClass().getMethod("getTotal").invoke(order));
+    }
+
+    @Test
+    public void testSchemasLoadFromXsdAndJson() throws Exception {
+        Path xsd = tempFolder.newFile("catalog.xsd").toPath();
+        Files.write(xsd, CATALOG_XSD.getBytes(StandardCharsets.UTF_8));
+
+        RegisteredSchema catalog = converter.registerSchema("catalog", xsd);
+        assertEquals("urn:catalog", catalog.getNamespace());
+        assertEquals("catalog", catalog.getRootElementName());
+        assertEquals(0, analyses.get());
+
+        String document = "<catalog xmlns=\"urn:catalog\" version=\"3\">" +
+                "<item sku=\"A1\"><name>Lamp</name><price>19.99</price></item>" +
+                "</catalog>";
+        Object root = converter.convertRegistered(stream(document)).getRootObject();
+        List<?> items = (List<?>) root.getClass().getMethod("getItemList").invoke(root);
+        assertEquals("Declared repeatable, so a list even with one item", 1, items.size());
+        Object item = items.get(0);
+        assertEquals("A1", item.getClass().getMethod("getSku").invoke(item));
+        assertEquals("Lamp", item.getClass().getMethod("getName").invoke(item));
+        assertEquals(19.99, item.getClass().getMethod("getPrice").invoke(item));
+
+        Path json = tempFolder.newFile("catalog.json").toPath();
+        SchemaRegistry.saveSchema(catalog.getSchema(), json);
+        assertEquals(catalog.getSchema(), SchemaRegistry.loadSchema(json));
+        RegisteredSchema reloaded = converter.registerSchema("catalog-v2", json);
+        assertSame(reloaded, converter.getSchemaRegistry().find(new javax.xml.namespace.QName("urn:catalog", "catalog")));
+        assertSame(catalog, converter.getSchemaRegistry().get("catalog"));
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
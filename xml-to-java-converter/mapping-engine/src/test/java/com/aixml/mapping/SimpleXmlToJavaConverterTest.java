@@ -4,9 +4,13 @@ import com.aixml.analyzer.XmlStructureAnalyzer;
 import com.aixml.analyzer.XmlSchema;
 import com.aixml.detector.RelationshipDetector;
 import com.aixml.generator.DynamicObjectGenerator;
+import com.aixml.generator.GenerationMode;
+import com.aixml.generator.LazyXmlRecord;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class SimpleXmlToJavaConverterTest {
@@ -164,6 +168,33 @@ public class SimpleXmlToJavaConverterTest {
         }
     }
     
+    @Test
+    public void testLazyModeBindsTheRootOverTheDocumentBytes() throws Exception {
+        objectGenerator.setGenerationMode(GenerationMode.LAZY);
+        String xml = "<?xml version=\"1.0\"?><!-- catalogue --><library name=\"City\">" +
+                "<book id=\"1\"><title>Java Programming</title></book>" +
+                "<book id=\"2\"><title>XML Basics</title></book>" +
+                "</library>";
+        
+        Object library = converter.convertXmlToObjects(xml).getRootObject();
+        
+        assertTrue(library instanceof LazyXmlRecord);
+        assertEquals("City", library.getClass().getMethod("getName").invoke(library));
+        List<?> books = (List<?>) library.getClass().getMethod("getBookList").invoke(library);
+        assertEquals(2, books.size());
+        assertEquals("XML Basics", books.get(1).getClass().getMethod("getTitle").invoke(books.get(1)));
+        
+        try (java.util.stream.Stream<Object> records =
+                     converter.stream(new java.io.ByteArrayInputStream(xml.getBytes()), "library/book")) {
+            List<Object> streamed = records.collect(java.util.stream.Collectors.toList());
+            
+            assertEquals(2, streamed.size());
+            LazyXmlRecord second = (LazyXmlRecord) streamed.get(1);
+            assertEquals("Each record is a view over its own cut bytes", 0, second.getStart());
+            assertEquals("XML Basics", second.getClass().getMethod("getTitle").invoke(second));
+        }
+    }
+    
     // Helper method to set private fields using reflection
     private void setField(Object target, String fieldName, Object value) {
         try {
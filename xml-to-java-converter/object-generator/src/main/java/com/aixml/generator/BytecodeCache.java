@@ -0,0 +1,125 @@
+package com.aixml.generator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Local on-disk store for generated bytecode. Each entry is a directory named after a
+ * fingerprint of everything that shapes the emitted classes, holding one {@code .class}
+ * file per binary class name. Entries are written to a temporary directory and moved
+ * into place atomically, so concurrent JVMs never observe a half-written entry.
+ */
+@Slf4j
+public class BytecodeCache {
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private final Path directory;
+
+    public BytecodeCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the cached class bytes keyed by binary class name, or {@code null} if the
+     * entry does not exist or cannot be read.
+     */
+    public Map<String, byte[]> load(String key) {
+        Path entry = directory.resolve(key);
+        if (!Files.isDirectory(entry)) {
+            return null;
+        }
+
+        Map<String, byte[]> types = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entry, "*" + CLASS_FILE_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String className = fileName.substring(0, fileName.length() - CLASS_FILE_SUFFIX.length());
+                types.put(className, Files.readAllBytes(file));
+            }
+        } catch (IOException e) {
+            log.warn("Could not read bytecode cache entry: {}", entry, e);
+            return null;
+        }
+
+        return types.isEmpty() ? null : types;
+    }
+
+    public void store(String key, Map<String, byte[]> types) {
+        Path entry = directory.resolve(key);
+        if (Files.isDirectory(entry)) {
+            return;
+        }
+
+        Path staging = directory.resolve(key + ".tmp-" + UUID.randomUUID());
+        try {
+            Files.createDirectories(staging);
+            for (Map.Entry<String, byte[]> type : types.entrySet()) {
+                Files.write(staging.resolve(type.getKey() + CLASS_FILE_SUFFIX), type.getValue());
+            }
+            Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Stored {} classes in bytecode cache entry {}", types.size(), entry);
+        } catch (IOException e) {
+            // Another JVM may have published the same entry first, which is fine
+            if (!Files.isDirectory(entry)) {
+                log.warn("Could not write bytecode cache entry: {}", entry, e);
+            }
+        } finally {
+            deleteQuietly(staging);
+        }
+    }
+
+    /**
+     * Hashes the given canonical descriptions into a hex key suitable as a cache entry name.
+     */
+    public static String fingerprint(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    log.debug("Failed to delete staging file: {}", p);
+                }
+            });
+        } catch (IOException e) {
+            log.debug("Failed to clean staging directory: {}", path);
+        }
+    }
+}
@@ -1,49 +1,191 @@
 package com.aixml.generator;
 
 import com.aixml.analyzer.ElementDefinition;
+import com.aixml.generator.SourceModel.ClassModel;
+import com.aixml.generator.SourceModel.FieldModel;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
 public class ClassFileGenerator {
     
+    private final Map<String, Map<String, Class<?>>> compiledClasses = new ConcurrentHashMap<>();
+    private BytecodeCache bytecodeCache;
+    
+    /**
+     * Writes the sources for all complex elements, touching only files whose content changed.
+     * Sources are rendered in parallel, compared byte for byte with what is on disk, and
+     * written atomically; {@code .java} files in the package directory that no longer
+     * correspond to an element are deleted. Unchanged files keep their timestamps, so IDE
+     * and compiler caches stay valid across regenerations.
+     */
     public List<String> generateClassFiles(List<ElementDefinition> elements, String packageName, String outputDir) {
-        List<String> generatedFiles = new ArrayList<>();
-        
+        return generateClassFiles(elements, packageName, outputDir, GenerationOptions.defaults());
+    }
+    
+    public List<String> generateClassFiles(List<ElementDefinition> elements, String packageName, String outputDir,
+                                           GenerationOptions options) {
         try {
             // Create output directory structure
             Path packagePath = createPackageDirectory(outputDir, packageName);
             
-            // Generate files for complex elements
-            for (ElementDefinition element : elements) {
-                if (isComplexElement(element)) {
-                    String className = capitalize(element.getName());
-                    String fileName = className + ".java";
-                    Path filePath = packagePath.resolve(fileName);
-                    
-                    String classContent = generateClassContent(element, packageName);
-                    writeClassFile(filePath, classContent);
-                    
-                    generatedFiles.add(filePath.toString());
-                    log.info("Generated class file: {}", filePath);
-                }
+            Map<String, String> sources = renderSources(elements, packageName, options);
+            
+            List<Path> filePaths = new ArrayList<>();
+            for (String className : sources.keySet()) {
+                filePaths.add(packagePath.resolve(className + ".java"));
             }
             
+            long written = filePaths.parallelStream()
+                    .filter(filePath -> writeIfChanged(filePath, sources.get(classNameOf(filePath))))
+                    .count();
+            int deleted = deleteOrphans(packagePath, new HashSet<>(filePaths));
+            
+            log.info("Generated {} class files in {} ({} written, {} unchanged, {} orphans deleted)",
+                    filePaths.size(), packagePath, written, filePaths.size() - written, deleted);
+            
+            List<String> generatedFiles = new ArrayList<>();
+            for (Path filePath : filePaths) {
+                generatedFiles.add(filePath.toString());
+            }
+            return generatedFiles;
+            
         } catch (Exception e) {
             log.error("Error generating class files", e);
             throw new RuntimeException("Failed to generate class files", e);
         }
+    }
+    
+    public Map<String, String> renderSources(List<ElementDefinition> elements, String packageName) {
+        return renderSources(elements, packageName, GenerationOptions.defaults());
+    }
+    
+    /**
+     * Renders the source of every complex element in parallel, keyed by simple class name in
+     * schema order. All occurrences of an element are merged into one class. With
+     * {@link GenerationOptions#isGenerateReaders()} a {@code <Root>Reader}, and with
+     * {@link GenerationOptions#isGenerateWriters()} a {@code <Root>Writer}, follows the model
+     * classes for every root element.
+     */
+    public Map<String, String> renderSources(List<ElementDefinition> elements, String packageName,
+                                             GenerationOptions options) {
+        Map<String, ClassModel> classes = SourceModel.build(elements);
+        
+        Map<String, String> rendered = new ConcurrentHashMap<>();
+        classes.values().parallelStream()
+                .forEach(model -> rendered.put(model.className, options.isImmutable()
+                        ? generateValueTypeContent(model, packageName, options.getModelStyle())
+                        : generateClassContent(model, packageName, options)));
         
-        return generatedFiles;
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String className : classes.keySet()) {
+            sources.put(className, rendered.get(className));
+        }
+        if (options.isGenerateReaders()) {
+            for (ClassModel model : classes.values()) {
+                if (model.root) {
+                    sources.put(StaxReaderRenderer.readerName(model),
+                            StaxReaderRenderer.render(model, classes, packageName, options.isImmutable()));
+                }
+            }
+        }
+        if (options.isGenerateWriters()) {
+            for (ClassModel model : classes.values()) {
+                if (model.root) {
+                    sources.put(StreamWriterRenderer.writerName(model),
+                            StreamWriterRenderer.render(model, classes, packageName, options.isImmutable()));
+                }
+            }
+            sources.put(StreamWriterRenderer.OUTPUT_CLASS, StreamWriterRenderer.renderOutput(packageName));
+        }
+        return sources;
+    }
+    
+    /**
+     * Renders the sources as {@link #renderSources(List, String, GenerationOptions)} does,
+     * compiles them in memory and loads them with one class loader, so the generated readers
+     * and writers bind exactly the classes returned. Compiled bytes are cached by a hash of the
+     * sources, in memory and in the {@link BytecodeCache} when one is set; identical sources
+     * give the same classes again. Requires a JDK at runtime.
+     *
+     * @return the loaded classes keyed by simple class name, in source order
+     */
+    public Map<String, Class<?>> compileClasses(List<ElementDefinition> elements, String packageName,
+                                                GenerationOptions options) {
+        try {
+            Map<String, String> sources = renderSources(elements, packageName, options);
+            
+            Map<String, String> units = new LinkedHashMap<>();
+            StringBuilder fingerprint = new StringBuilder();
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                units.put(packageName + "." + source.getKey(), source.getValue());
+                fingerprint.append(source.getKey()).append('\n').append(source.getValue()).append('\n');
+            }
+            String cacheKey = BytecodeCache.fingerprint("javac", System.getProperty("java.specification.version"),
+                    fingerprint.toString());
+            
+            Map<String, Class<?>> loaded = compiledClasses.computeIfAbsent(cacheKey, key -> loadCompiled(key, units));
+            
+            Map<String, Class<?>> classes = new LinkedHashMap<>();
+            for (String className : sources.keySet()) {
+                classes.put(className, loaded.get(packageName + "." + className));
+            }
+            return classes;
+            
+        } catch (Exception e) {
+            log.error("Error compiling generated classes", e);
+            throw new RuntimeException("Failed to compile classes", e);
+        }
+    }
+    
+    private Map<String, Class<?>> loadCompiled(String cacheKey, Map<String, String> units) {
+        Map<String, byte[]> types = bytecodeCache != null ? bytecodeCache.load(cacheKey) : null;
+        if (types == null || !types.keySet().containsAll(units.keySet())) {
+            long started = System.nanoTime();
+            types = SourceCompiler.compile(units);
+            log.info("Compiled {} generated sources in memory in {} ms",
+                    units.size(), (System.nanoTime() - started) / 1_000_000);
+            if (bytecodeCache != null) {
+                bytecodeCache.store(cacheKey, types);
+            }
+        }
+        
+        try {
+            ClassLoader classLoader = new ByteArrayClassLoader(getClass().getClassLoader(), types);
+            Map<String, Class<?>> loaded = new HashMap<>();
+            for (String className : types.keySet()) {
+                loaded.put(className, classLoader.loadClass(className));
+            }
+            return loaded;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Compiled class could not be loaded", e);
+        }
+    }
+    
+    public BytecodeCache getBytecodeCache() {
+        return bytecodeCache;
+    }
+    
+    /**
+     * Persists the bytes of classes compiled by {@link #compileClasses} so later JVMs skip
+     * the compiler for unchanged sources. Pass {@code null} to disable.
+     */
+    public void setBytecodeCache(BytecodeCache bytecodeCache) {
+        this.bytecodeCache = bytecodeCache;
     }
     
     private Path createPackageDirectory(String outputDir, String packageName) throws IOException {
@@ -57,8 +199,10 @@ public class ClassFileGenerator {
         return fullPath;
     }
     
-    private String generateClassContent(ElementDefinition element, String packageName) {
+    private String generateClassContent(ClassModel model, String packageName, GenerationOptions options) {
         StringBuilder sb = new StringBuilder();
+        // Generated readers and writers access fields directly, so they need package access
+        String fieldModifier = options.needsFieldAccess() ? "" : "private ";
         
         // Package declaration
         sb.append("package ").append(packageName).append(";\n\n");
@@ -68,167 +212,171 @@ public class ClassFileGenerator {
         sb.append("import java.util.List;\n\n");
         
         // Class declaration with annotations
-        String className = capitalize(element.getName());
-        if (element.getParentElement() == null) {
-            sb.append("@XmlRootElement(name = \"").append(element.getName()).append("\")\n");
+        if (model.root) {
+            sb.append("@XmlRootElement(name = \"").append(model.xmlName).append("\")\n");
         }
         sb.append("@XmlAccessorType(XmlAccessType.FIELD)\n");
-        sb.append("public class ").append(className).append(" {\n\n");
-        
-        // Fields for attributes
-        if (element.getAttributes() != null && !element.getAttributes().isEmpty()) {
-            for (Map.Entry<String, String> attr : element.getAttributes().entrySet()) {
-                sb.append("    @XmlAttribute\n");
-                sb.append("    private String ").append(attr.getKey()).append(";\n\n");
-            }
-        }
+        sb.append("public class ").append(model.className).append(" {\n\n");
         
-        // Fields for child elements
-        if (element.getChildren() != null && !element.getChildren().isEmpty()) {
-            Map<String, Integer> childCounts = countChildren(element.getChildren());
-            
-            for (Map.Entry<String, Integer> entry : childCounts.entrySet()) {
-                String childName = entry.getKey();
-                int count = entry.getValue();
-                
-                sb.append("    @XmlElement(name = \"").append(childName).append("\")\n");
-                
-                // HARDCODED FIX: Directly map field types for objects
-                String fieldType;
-                if (childName.equals("author")) {
-                    fieldType = "Author";
-                } else if (childName.equals("book")) {
-                    fieldType = "Book"; 
-                } else if (childName.equals("category")) {
-                    fieldType = "Category";
+        for (FieldModel field : model.fields) {
+            if (field.attribute) {
+                if (field.name.equals(field.xmlName)) {
+                    sb.append("    @XmlAttribute\n");
                 } else {
-                    fieldType = getFieldType(childName);
+                    sb.append("    @XmlAttribute(name = \"").append(field.xmlName).append("\")\n");
                 }
-                
-                if (count > 1) {
-                    // Collection field for repeated elements
-                    sb.append("    private List<").append(fieldType).append("> ");
-                    sb.append(childName).append("List;\n\n");
-                } else {
-                    // Single field - check if it's a container element
-                    if (isContainerElement(childName)) {
-                        // Container elements like "books", "authors", "categories" should be collections
-                        // For Library class: books -> List<Book>, authors -> List<Author>
-                        String collectionType = fieldType;
-                        if (childName.equals("books")) {
-                            collectionType = "Book";
-                        } else if (childName.equals("authors")) {
-                            collectionType = "Author";
-                        } else if (childName.equals("categories")) {
-                            collectionType = "Category";
-                        }
-                        sb.append("    private List<").append(collectionType).append("> ");
-                        sb.append(childName).append(";\n\n");
-                    } else if (isComplexObjectElement(childName)) {
-                        // Individual complex objects like "book", "author" 
-                        sb.append("    private ").append(fieldType).append(" ");
-                        sb.append(childName).append(";\n\n");
-                    } else {
-                        // Simple string fields
-                        sb.append("    private ").append(fieldType).append(" ");
-                        sb.append(childName).append(";\n\n");
-                    }
+            } else {
+                if (field.wrapperXmlName != null) {
+                    // Container element such as <books>, flattened into a list of its items
+                    sb.append("    @XmlElementWrapper(name = \"").append(field.wrapperXmlName).append("\")\n");
                 }
+                sb.append("    @XmlElement(name = \"").append(field.xmlName).append("\")\n");
             }
+            sb.append("    ").append(fieldModifier).append(field.javaType()).append(" ").append(field.name).append(";\n\n");
         }
         
         // Default constructor
-        sb.append("    public ").append(className).append("() {\n");
+        sb.append("    public ").append(model.className).append("() {\n");
         sb.append("    }\n\n");
         
         // toString method
         sb.append("    @Override\n");
         sb.append("    public String toString() {\n");
-        sb.append("        return \"").append(className).append("{\" +\n");
-        
-        // Add attributes to toString
-        if (element.getAttributes() != null) {
-            for (String attr : element.getAttributes().keySet()) {
-                sb.append("                \"").append(attr).append("='\" + ").append(attr).append(" + '\\'' +\n");
+        sb.append("        return \"").append(model.className).append("{\" +\n");
+        String separator = "";
+        for (FieldModel field : model.fields) {
+            if (field.attribute) {
+                sb.append("                \"").append(separator).append(field.name).append("='\" + ")
+                  .append(field.name).append(" + '\\'' +\n");
+            } else {
+                sb.append("                \"").append(separator).append(field.name).append("=\" + ")
+                  .append(field.name).append(" +\n");
             }
+            separator = ", ";
+        }
+        sb.append("                '}';\n");
+        sb.append("    }\n");
+        
+        sb.append("}\n");
+        
+        return sb.toString();
+    }
+    
+    /**
+     * Renders an immutable value type: repeated children are exact-size arrays and required
+     * numeric leaves are primitives. Accessors hand out the arrays without copying, so the
+     * generated reader and writer stay allocation-free; callers must not modify them.
+     */
+    private String generateValueTypeContent(ClassModel model, String packageName, ModelStyle style) {
+        StringBuilder sb = new StringBuilder();
+        List<String> components = new ArrayList<>();
+        boolean hasArrays = false;
+        for (FieldModel field : model.fields) {
+            components.add(field.valueJavaType() + " " + field.name);
+            hasArrays |= field.repeated;
+        }
+        
+        sb.append("package ").append(packageName).append(";\n\n");
+        if (hasArrays && style == ModelStyle.FINAL_CLASS) {
+            sb.append("import java.util.Arrays;\n\n");
         }
         
-        // Add children to toString
-        if (element.getChildren() != null) {
-            Map<String, Integer> childCounts = countChildren(element.getChildren());
-            for (Map.Entry<String, Integer> entry : childCounts.entrySet()) {
-                String childName = entry.getKey();
-                int count = entry.getValue();
-                String fieldName = count > 1 ? childName + "List" : (isContainerElement(childName) ? childName : childName);
-                sb.append("                \", ").append(fieldName).append("=\" + ").append(fieldName).append(" +\n");
+        sb.append("/**\n");
+        sb.append(" * Immutable value of {@code <").append(model.xmlName).append(">}. Array components are shared, not copied.\n");
+        sb.append(" */\n");
+        
+        if (style == ModelStyle.RECORD) {
+            sb.append("public record ").append(model.className).append("(");
+            for (int i = 0; i < components.size(); i++) {
+                sb.append(i == 0 ? "\n        " : ",\n        ").append(components.get(i));
             }
+            sb.append(") {\n");
+            sb.append("}\n");
+            return sb.toString();
+        }
+        
+        sb.append("public final class ").append(model.className).append(" {\n\n");
+        for (String component : components) {
+            sb.append("    private final ").append(component).append(";\n");
         }
+        sb.append("\n");
         
+        // All-args constructor
+        sb.append("    public ").append(model.className).append("(");
+        for (int i = 0; i < components.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(components.get(i));
+        }
+        sb.append(") {\n");
+        for (FieldModel field : model.fields) {
+            sb.append("        this.").append(field.name).append(" = ").append(field.name).append(";\n");
+        }
+        sb.append("    }\n\n");
+        
+        // Record-style accessors
+        for (FieldModel field : model.fields) {
+            sb.append("    public ").append(field.valueJavaType()).append(" ").append(field.name).append("() {\n");
+            sb.append("        return ").append(field.name).append(";\n");
+            sb.append("    }\n\n");
+        }
+        
+        // toString method
+        sb.append("    @Override\n");
+        sb.append("    public String toString() {\n");
+        sb.append("        return \"").append(model.className).append("{\" +\n");
+        String separator = "";
+        for (FieldModel field : model.fields) {
+            String value = field.repeated ? "Arrays.toString(" + field.name + ")" : field.name;
+            sb.append("                \"").append(separator).append(field.name).append("=\" + ")
+              .append(value).append(" +\n");
+            separator = ", ";
+        }
         sb.append("                '}';\n");
         sb.append("    }\n");
-        
         sb.append("}\n");
         
         return sb.toString();
     }
     
-    private Map<String, Integer> countChildren(List<ElementDefinition> children) {
-        Map<String, Integer> counts = new HashMap<>();
-        for (ElementDefinition child : children) {
-            counts.merge(child.getName(), 1, Integer::sum);
+    private boolean writeIfChanged(Path filePath, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (Files.exists(filePath) && Files.size(filePath) == bytes.length
+                    && Arrays.equals(Files.readAllBytes(filePath), bytes)) {
+                return false;
+            }
+            
+            // Write next to the target and rename, so readers never see a partial file
+            Path tempFile = Files.createTempFile(filePath.getParent(), classNameOf(filePath), ".tmp");
+            try {
+                Files.write(tempFile, bytes);
+                Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            log.debug("Wrote class file: {}", filePath);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write class file " + filePath, e);
         }
-        return counts;
     }
     
-    private String getFieldType(String elementName) {
-        // FIXED: Always return proper object types instead of String
-        if (elementName.equals("books")) {
-            return "Book";
-        } else if (elementName.equals("authors")) {
-            return "Author"; 
-        } else if (elementName.equals("categories")) {
-            return "Category";
-        } else if (elementName.equals("book")) {
-            return "Book";
-        } else if (elementName.equals("author")) {
-            return "Author";
-        } else if (elementName.equals("category")) {
-            return "Category";
-        } else if (elementName.equals("title") || elementName.equals("name") || elementName.equals("email") || elementName.equals("biography")) {
-            return "String";
-        }
-        // For unknown elements, capitalize first letter as class name
-        return capitalize(elementName);
-    }
-    
-    private boolean isContainerElement(String elementName) {
-        // Container elements that hold collections of other elements
-        return elementName.equals("books") || elementName.equals("authors") || elementName.equals("categories");
-    }
-    
-    private boolean isComplexObjectElement(String elementName) {
-        // Individual complex objects (not primitives)
-        return elementName.equals("book") || elementName.equals("author") || elementName.equals("category");
-    }
-    
-    private boolean isComplexElement(ElementDefinition element) {
-        // Consider an element complex if it has attributes or children
-        return (element.getAttributes() != null && !element.getAttributes().isEmpty()) ||
-               (element.getChildren() != null && !element.getChildren().isEmpty()) ||
-               element.getParentElement() == null; // Root elements are always generated
-    }
-    
-    private void writeClassFile(Path filePath, String content) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath.toFile())) {
-            writer.write(content);
+    private int deleteOrphans(Path packagePath, Set<Path> generated) throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> javaFiles = Files.newDirectoryStream(packagePath, "*.java")) {
+            for (Path path : javaFiles) {
+                if (!generated.contains(path)) {
+                    Files.delete(path);
+                    log.info("Deleted orphaned file: {}", path);
+                    deleted++;
+                }
+            }
         }
+        return deleted;
     }
     
-    private String capitalize(String str) {
-        if (str == null || str.isEmpty()) {
-            return str;
-        }
-        return str.substring(0, 1).toUpperCase() + str.substring(1);
+    private String classNameOf(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ".java".length());
     }
     
     public void cleanGeneratedDirectory(String outputDir, String packageName) {
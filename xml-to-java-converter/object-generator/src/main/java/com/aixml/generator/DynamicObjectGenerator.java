@@ -1,38 +1,162 @@
 package com.aixml.generator;
 
 import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XmlStructureAnalyzer;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.FieldPersistence;
 import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
 import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlAttribute;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class DynamicObjectGenerator {
     
+    /**
+     * Bump whenever the emitted bytecode changes shape so stale cache entries are ignored.
+     */
+    public static final String GENERATOR_VERSION = "1";
+    
     private final ByteBuddy byteBuddy = new ByteBuddy();
-    private final Map<String, Class<?>> generatedClasses = new HashMap<>();
+    private final Map<String, Class<?>> generatedClasses = new ConcurrentHashMap<>();
+    private final Map<Class<?>, XmlRecordWriter> writers = new ConcurrentHashMap<>();
+    private final Object generationLock = new Object();
+    private BytecodeCache bytecodeCache;
+    private GenerationMode generationMode = GenerationMode.STANDARD;
     
     public Class<?> generateClass(ElementDefinition definition, String packageName) {
-        String className = packageName + "." + capitalize(definition.getName());
+        return generateClasses(Collections.singletonList(definition), packageName).get(0);
+    }
+    
+    /**
+     * Generates the classes for a whole schema at once. The types are built concurrently and
+     * defined together by a single class loader, so fields can refer to other types of the
+     * same batch (e.g. {@code Library.books -> Books}, {@code Books.bookList -> List<Book>}).
+     * References to classes from earlier batches fall back to {@code Object} and raw
+     * {@code List}, as each batch lives in its own class loader. The first definition per
+     * class name gives its fields, whose value types are widened across every definition of
+     * the class; classes generated before are returned as they are.
+     */
+    public List<Class<?>> generateClasses(List<ElementDefinition> definitions, String packageName) {
+        Map<String, ElementDefinition> requested = new LinkedHashMap<>();
+        Map<String, List<ElementDefinition>> occurrences = new HashMap<>();
+        for (ElementDefinition definition : definitions) {
+            String className = className(definition, packageName);
+            requested.putIfAbsent(className, definition);
+            occurrences.computeIfAbsent(className, k -> new ArrayList<>()).add(definition);
+        }
         
-        if (generatedClasses.containsKey(className)) {
-            return generatedClasses.get(className);
+        synchronized (generationLock) {
+            Map<String, ElementDefinition> pending = new LinkedHashMap<>();
+            for (Map.Entry<String, ElementDefinition> entry : requested.entrySet()) {
+                if (!generatedClasses.containsKey(entry.getKey())) {
+                    pending.put(entry.getKey(), entry.getValue());
+                }
+            }
+            
+            if (!pending.isEmpty()) {
+                try {
+                    generatedClasses.putAll(generateBatch(pending, occurrences, packageName));
+                } catch (Exception e) {
+                    log.error("Error generating classes for elements: " + pending.keySet(), e);
+                    throw new RuntimeException("Failed to generate class", e);
+                }
+            }
         }
         
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : requested.keySet()) {
+            classes.add(generatedClasses.get(className));
+        }
+        return classes;
+    }
+    
+    private Map<String, Class<?>> generateBatch(Map<String, ElementDefinition> pending,
+                                                Map<String, List<ElementDefinition>> occurrences, String packageName) {
+        boolean lazy = generationMode == GenerationMode.LAZY;
+        // Descriptions of the not yet defined types, so fields can refer to each other
+        Map<String, TypeDescription> batchTypes = new HashMap<>();
+        for (String className : pending.keySet()) {
+            batchTypes.put(className, byteBuddy
+                    .subclass(lazy ? LazyXmlRecord.class : Object.class)
+                    .name(className)
+                    .toTypeDescription());
+        }
+        
+        Map<String, List<FieldSpec>> fieldsByClass = new LinkedHashMap<>();
+        List<String> classKeys = new ArrayList<>();
+        for (Map.Entry<String, ElementDefinition> entry : pending.entrySet()) {
+            List<FieldSpec> fields = resolveFields(entry.getValue(), occurrences.get(entry.getKey()),
+                    packageName, batchTypes);
+            fieldsByClass.put(entry.getKey(), fields);
+            classKeys.add(classKey(entry.getKey(), entry.getValue(), fields));
+        }
+        
+        String cacheKey = bytecodeCache != null
+                ? BytecodeCache.fingerprint(GENERATOR_VERSION, String.join("\n", classKeys))
+                : null;
+        
+        Map<String, Class<?>> loaded = cacheKey != null ? loadCached(cacheKey, pending.keySet()) : null;
+        if (loaded == null) {
+            // Builders are immutable, so the types of a batch can be made concurrently
+            List<DynamicType.Unloaded<?>> unloaded = pending.entrySet().parallelStream()
+                    .map(entry -> makeType(entry.getKey(), entry.getValue(), fieldsByClass.get(entry.getKey()), lazy))
+                    .collect(Collectors.toList());
+            
+            Map<TypeDescription, byte[]> types = new LinkedHashMap<>();
+            for (DynamicType.Unloaded<?> type : unloaded) {
+                types.putAll(type.getAllTypes());
+            }
+            if (cacheKey != null) {
+                bytecodeCache.store(cacheKey, toBinaryNames(types));
+            }
+            
+            loaded = new HashMap<>();
+            for (Map.Entry<TypeDescription, Class<?>> type : ClassLoadingStrategy.Default.WRAPPER
+                    .load(getClass().getClassLoader(), types).entrySet()) {
+                loaded.put(type.getKey().getName(), type.getValue());
+            }
+            log.debug("Generated {} classes in package {}", pending.size(), packageName);
+        }
+        
+        Map<String, Class<?>> batch = new LinkedHashMap<>();
+        for (String className : pending.keySet()) {
+            Class<?> generatedClass = loaded.get(className);
+            if (lazy) {
+                LazyXmlRecord.register(generatedClass, lazyLayout(fieldsByClass.get(className), packageName));
+            }
+            batch.put(className, generatedClass);
+        }
+        return batch;
+    }
+    
+    private DynamicType.Unloaded<?> makeType(String className, ElementDefinition definition,
+                                             List<FieldSpec> fields, boolean lazy) {
         try {
-            DynamicType.Builder<?> builder = byteBuddy
-                    .subclass(Object.class)
-                    .name(className);
+            DynamicType.Builder<?> builder = lazy
+                    ? byteBuddy.subclass(LazyXmlRecord.class, ConstructorStrategy.Default.IMITATE_SUPER_CLASS_OPENING)
+                    : byteBuddy.subclass(Object.class);
+            builder = builder.name(className);
             
             if (definition.getParentElement() == null) {
                 builder = builder.annotateType(AnnotationDescription.Builder
@@ -41,15 +165,8 @@ public class DynamicObjectGenerator {
                         .build());
             }
             
-            builder = addFields(builder, definition);
-            
-            Class<?> generatedClass = builder
-                    .make()
-                    .load(getClass().getClassLoader())
-                    .getLoaded();
-            
-            generatedClasses.put(className, generatedClass);
-            return generatedClass;
+            builder = lazy ? addLazyAccessors(builder, fields) : addFields(builder, fields);
+            return builder.make();
             
         } catch (Exception e) {
             log.error("Error generating class for element: " + definition.getName(), e);
@@ -57,6 +174,22 @@ public class DynamicObjectGenerator {
         }
     }
     
+    /**
+     * Wraps one record element of {@code xml}, spanning {@code start} to {@code end}, in a
+     * class generated in {@link GenerationMode#LAZY}. Fields are decoded on first access.
+     */
+    public <T> T createLazyInstance(Class<T> clazz, byte[] xml, int start, int end) {
+        return LazyXmlRecord.wrap(clazz, xml, start, end);
+    }
+    
+    /**
+     * Returns the streaming writer for a generated class; the write plan is built on first use
+     * and shared afterwards.
+     */
+    public XmlRecordWriter createWriter(Class<?> clazz) {
+        return writers.computeIfAbsent(clazz, XmlRecordWriter::forClass);
+    }
+    
     public Object createInstance(Class<?> clazz, Map<String, Object> properties) {
         try {
             Object instance = clazz.getDeclaredConstructor().newInstance();
@@ -82,19 +215,33 @@ public class DynamicObjectGenerator {
         }
     }
     
-    private DynamicType.Builder<?> addFields(DynamicType.Builder<?> builder, ElementDefinition definition) {
+    private List<FieldSpec> resolveFields(ElementDefinition definition, List<ElementDefinition> occurrences,
+                                          String packageName, Map<String, TypeDescription> batchTypes) {
+        List<FieldSpec> fields = new ArrayList<>();
+        
+        boolean compact = generationMode == GenerationMode.COMPACT;
+        
+        // A value typed from one occurrence would reject the others, e.g. id="1" then id="A12"
+        Map<String, String> attributeTypes = new HashMap<>();
+        Map<String, String> childTypes = new HashMap<>();
+        for (ElementDefinition occurrence : occurrences) {
+            if (occurrence.getAttributes() != null) {
+                for (Map.Entry<String, String> attr : occurrence.getAttributes().entrySet()) {
+                    attributeTypes.merge(attr.getKey(), XmlStructureAnalyzer.inferValueType(attr.getValue()),
+                            XmlStructureAnalyzer::widenValueType);
+                }
+            }
+            if (occurrence.getChildren() != null) {
+                for (ElementDefinition child : occurrence.getChildren()) {
+                    childTypes.merge(child.getName(), child.getType(), XmlStructureAnalyzer::widenValueType);
+                }
+            }
+        }
+        
         if (definition.getAttributes() != null) {
-            for (Map.Entry<String, String> attr : definition.getAttributes().entrySet()) {
-                builder = builder
-                        .defineField(attr.getKey(), String.class, Visibility.PRIVATE)
-                        .annotateField(AnnotationDescription.Builder
-                                .ofType(XmlAttribute.class)
-                                .build())
-                        .defineMethod("get" + capitalize(attr.getKey()), String.class, Visibility.PUBLIC)
-                        .intercept(FieldAccessor.ofField(attr.getKey()))
-                        .defineMethod("set" + capitalize(attr.getKey()), void.class, Visibility.PUBLIC)
-                        .withParameters(String.class)
-                        .intercept(FieldAccessor.ofField(attr.getKey()));
+            for (String attribute : definition.getAttributes().keySet()) {
+                String valueType = compact ? attributeTypes.get(attribute) : "String";
+                fields.add(new FieldSpec(attribute, attribute, primitiveOrString(valueType), true, valueType));
             }
         }
         
@@ -110,42 +257,168 @@ public class DynamicObjectGenerator {
                 String childName = entry.getKey();
                 List<ElementDefinition> childList = entry.getValue();
                 
-                Class<?> fieldType;
-                String fieldName;
+                TypeDescription reference = batchTypes.get(packageName + "." + capitalize(childName));
                 
-                if (childList.size() > 1) {
-                    // Multiple children with same name - create a List field
-                    fieldType = List.class;
-                    fieldName = childName + "List";
+                if (reference != null) {
+                    // Complex child generated in the same batch - refer to its type directly
+                    TypeDefinition fieldType = childList.size() > 1
+                            ? TypeDescription.Generic.Builder.parameterizedType(
+                                    TypeDescription.ForLoadedType.of(List.class), reference).build()
+                            : reference;
+                    String fieldName = childList.size() > 1 ? childName + "List" : childName;
+                    fields.add(new FieldSpec(fieldName, childName, fieldType, false, "Object"));
+                } else if (childList.size() > 1) {
+                    // Multiple children with same name - create a List field, or a
+                    // primitive array when compact and every occurrence is a number/flag
+                    Class<?> fieldType = List.class;
+                    if (compact) {
+                        Class<?> componentType = primitiveOrString(childTypes.get(childName));
+                        if (componentType.isPrimitive()) {
+                            fieldType = java.lang.reflect.Array.newInstance(componentType, 0).getClass();
+                        }
+                    }
+                    fields.add(new FieldSpec(childName + "List", childName, fieldType, false, childTypes.get(childName)));
                 } else {
                     // Single child - create individual field
-                    fieldType = determineFieldType(childList.get(0));
-                    fieldName = childName;
+                    String valueType = childTypes.get(childName);
+                    Class<?> fieldType = compact ? compactFieldType(valueType) : determineFieldType(valueType);
+                    fields.add(new FieldSpec(childName, childName, fieldType, false, valueType));
                 }
-                
+            }
+        }
+        
+        if (compact) {
+            int bit = 0;
+            for (FieldSpec field : fields) {
+                if (field.type.isPrimitive()) {
+                    field.presenceBit = bit++;
+                }
+            }
+        }
+        
+        return fields;
+    }
+    
+    private DynamicType.Builder<?> addFields(DynamicType.Builder<?> builder, List<FieldSpec> fields) {
+        int presenceFields = 0;
+        for (FieldSpec field : fields) {
+            if (field.presenceBit >= 0) {
+                presenceFields = field.presenceBit / PresenceBits.BITS_PER_FIELD + 1;
+            }
+        }
+        for (int i = 0; i < presenceFields; i++) {
+            builder = builder.defineField(PresenceBits.fieldName(i * PresenceBits.BITS_PER_FIELD),
+                    long.class, Visibility.PRIVATE, FieldPersistence.TRANSIENT);
+        }
+        
+        for (FieldSpec field : fields) {
+            AnnotationDescription annotation = field.attribute
+                    ? AnnotationDescription.Builder.ofType(XmlAttribute.class).build()
+                    : AnnotationDescription.Builder.ofType(XmlElement.class).define("name", field.xmlName).build();
+            
+            Implementation setter = field.presenceBit >= 0
+                    ? FieldAccessor.ofField(field.name).setsArgumentAt(0).andThen(PresenceBits.mark(field.presenceBit))
+                    : FieldAccessor.ofField(field.name);
+            
+            builder = builder
+                    .defineField(field.name, field.type, Visibility.PRIVATE)
+                    .annotateField(annotation)
+                    .defineMethod("get" + capitalize(field.name), field.type, Visibility.PUBLIC)
+                    .intercept(FieldAccessor.ofField(field.name))
+                    .defineMethod("set" + capitalize(field.name), void.class, Visibility.PUBLIC)
+                    .withParameters(field.type)
+                    .intercept(setter);
+            
+            if (field.presenceBit >= 0) {
                 builder = builder
-                        .defineField(fieldName, fieldType, Visibility.PRIVATE)
-                        .annotateField(AnnotationDescription.Builder
-                                .ofType(XmlElement.class)
-                                .define("name", childName)
-                                .build())
-                        .defineMethod("get" + capitalize(fieldName), fieldType, Visibility.PUBLIC)
-                        .intercept(FieldAccessor.ofField(fieldName))
-                        .defineMethod("set" + capitalize(fieldName), void.class, Visibility.PUBLIC)
-                        .withParameters(fieldType)
-                        .intercept(FieldAccessor.ofField(fieldName));
+                        .defineMethod("has" + capitalize(field.name), boolean.class, Visibility.PUBLIC)
+                        .intercept(PresenceBits.test(field.presenceBit));
             }
         }
         
         return builder;
     }
     
-    private Class<?> determineFieldType(ElementDefinition definition) {
-        switch (definition.getType()) {
+    private DynamicType.Builder<?> addLazyAccessors(DynamicType.Builder<?> builder, List<FieldSpec> fields) throws NoSuchMethodException {
+        Method decode = LazyXmlRecord.class.getDeclaredMethod("decode", int.class);
+        
+        for (int slot = 0; slot < fields.size(); slot++) {
+            FieldSpec field = fields.get(slot);
+            builder = builder
+                    .defineMethod("get" + capitalize(field.name), field.type, Visibility.PUBLIC)
+                    .intercept(MethodCall.invoke(decode)
+                            .with(slot)
+                            .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC));
+        }
+        
+        return builder;
+    }
+    
+    private LazyXmlRecord.Layout lazyLayout(List<FieldSpec> fields, String packageName) {
+        List<String> names = new ArrayList<>();
+        boolean[] attributes = new boolean[fields.size()];
+        boolean[] repeated = new boolean[fields.size()];
+        String[] valueTypes = new String[fields.size()];
+        
+        for (int slot = 0; slot < fields.size(); slot++) {
+            FieldSpec field = fields.get(slot);
+            names.add(field.xmlName);
+            attributes[slot] = field.attribute;
+            repeated[slot] = !field.attribute
+                    && (field.type.asErasure().represents(List.class) || field.type.isArray());
+            valueTypes[slot] = field.valueType;
+        }
+        
+        return new LazyXmlRecord.Layout(names, attributes, repeated, valueTypes,
+                elementName -> generatedClasses.get(packageName + "." + capitalize(elementName)));
+    }
+    
+    private String classKey(String className, ElementDefinition definition, List<FieldSpec> fields) {
+        StringBuilder shape = new StringBuilder(className);
+        shape.append(';').append(generationMode);
+        shape.append(';').append(definition.getParentElement() == null ? "root" : "nested");
+        for (FieldSpec field : fields) {
+            shape.append(';').append(field);
+        }
+        return shape.toString();
+    }
+    
+    private Map<String, Class<?>> loadCached(String cacheKey, Set<String> classNames) {
+        Map<String, byte[]> types = bytecodeCache.load(cacheKey);
+        if (types == null || !types.keySet().containsAll(classNames)) {
+            return null;
+        }
+        
+        try {
+            ClassLoader classLoader = new ByteArrayClassLoader(getClass().getClassLoader(), types);
+            Map<String, Class<?>> cached = new HashMap<>();
+            for (String className : classNames) {
+                cached.put(className, classLoader.loadClass(className));
+            }
+            log.debug("Loaded {} classes from bytecode cache", cached.size());
+            return cached;
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.warn("Ignoring unusable bytecode cache entry {}", cacheKey, e);
+            return null;
+        }
+    }
+    
+    private Map<String, byte[]> toBinaryNames(Map<TypeDescription, byte[]> types) {
+        Map<String, byte[]> binaryTypes = new HashMap<>();
+        for (Map.Entry<TypeDescription, byte[]> type : types.entrySet()) {
+            binaryTypes.put(type.getKey().getName(), type.getValue());
+        }
+        return binaryTypes;
+    }
+    
+    private Class<?> determineFieldType(String type) {
+        switch (type) {
             case "String":
                 return String.class;
             case "Integer":
                 return Integer.class;
+            case "Long":
+                return Long.class;
             case "Double":
                 return Double.class;
             case "Boolean":
@@ -157,6 +430,30 @@ public class DynamicObjectGenerator {
         }
     }
     
+    private Class<?> compactFieldType(String type) {
+        Class<?> primitive = primitiveOrString(type);
+        return primitive.isPrimitive() ? primitive : determineFieldType(type);
+    }
+    
+    private Class<?> primitiveOrString(String type) {
+        switch (type) {
+            case "Integer":
+                return int.class;
+            case "Long":
+                return long.class;
+            case "Double":
+                return double.class;
+            case "Boolean":
+                return boolean.class;
+            default:
+                return String.class;
+        }
+    }
+        
+    private String className(ElementDefinition definition, String packageName) {
+        return packageName + "." + capitalize(definition.getName());
+    }
+    
     private String capitalize(String str) {
         if (str == null || str.isEmpty()) {
             return str;
@@ -164,7 +461,65 @@ public class DynamicObjectGenerator {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
+    /**
+     * Looks up the class generated for an element, or returns {@code null}.
+     */
+    public Class<?> getGeneratedClass(String packageName, String elementName) {
+        return generatedClasses.get(packageName + "." + capitalize(elementName));
+    }
+    
     public Map<String, Class<?>> getGeneratedClasses() {
         return new HashMap<>(generatedClasses);
     }
+    
+    public GenerationMode getGenerationMode() {
+        return generationMode;
+    }
+    
+    /**
+     * Selects the field layout for classes generated from now on. Classes already generated
+     * by this instance are kept as they are.
+     */
+    public void setGenerationMode(GenerationMode generationMode) {
+        this.generationMode = generationMode;
+    }
+    
+    public BytecodeCache getBytecodeCache() {
+        return bytecodeCache;
+    }
+    
+    /**
+     * Enables persisting generated bytecode so later JVMs can define classes straight
+     * from cached bytes instead of running ByteBuddy again. Pass {@code null} to disable.
+     */
+    public void setBytecodeCache(BytecodeCache bytecodeCache) {
+        this.bytecodeCache = bytecodeCache;
+    }
+    
+    private static final class FieldSpec {
+        private final String name;
+        private final String xmlName;
+        private final TypeDefinition type;
+        private final boolean attribute;
+        private final String valueType;
+        private int presenceBit = -1;
+        
+        private FieldSpec(String name, String xmlName, Type type, boolean attribute, String valueType) {
+            this(name, xmlName, TypeDefinition.Sort.describe(type), attribute, valueType);
+        }
+        
+        private FieldSpec(String name, String xmlName, TypeDefinition type, boolean attribute, String valueType) {
+            this.name = name;
+            this.xmlName = xmlName;
+            this.type = type;
+            this.attribute = attribute;
+            this.valueType = valueType;
+        }
+        
+        @Override
+        public String toString() {
+            return (attribute ? "@" : "") + name + "=" + xmlName + ":" + type.getTypeName()
+                    + (presenceBit >= 0 ? "#" + presenceBit : "");
+        }
+    }
 }
\ No newline at end of file
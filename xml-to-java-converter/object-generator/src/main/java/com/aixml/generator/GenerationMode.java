@@ -0,0 +1,24 @@
+package com.aixml.generator;
+
+/**
+ * Field layout used by {@link DynamicObjectGenerator} for the classes it emits.
+ */
+public enum GenerationMode {
+
+    /**
+     * Boxed leaf types, {@code String} attributes and raw {@code List} fields for repeated children.
+     */
+    STANDARD,
+
+    /**
+     * Primitive leaf and attribute fields tracked by presence bitsets, and typed primitive
+     * arrays for repeated primitive children. Cuts per-record heap for large bound feeds.
+     */
+    COMPACT,
+
+    /**
+     * Read-only flyweights extending {@link LazyXmlRecord} that decode each field from the
+     * original XML bytes on first access, for consumers that read only a few fields.
+     */
+    LAZY
+}
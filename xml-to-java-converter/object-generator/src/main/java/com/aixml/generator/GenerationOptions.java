@@ -0,0 +1,43 @@
+package com.aixml.generator;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Options for the sources emitted by {@link ClassFileGenerator}.
+ */
+@Data
+@Builder
+public class GenerationOptions {
+
+    /**
+     * Also emit a {@code <Root>Reader} per root type: a StAX based unmarshaller that assigns
+     * fields directly instead of going through reflective JAXB. Model fields become
+     * package-private so the reader can reach them.
+     */
+    private boolean generateReaders;
+
+    /**
+     * Also emit a {@code <Root>Writer} per root type that serialises the model straight to
+     * UTF-8 bytes with pre-encoded tags, plus the output class the writers share.
+     */
+    private boolean generateWriters;
+
+    @Builder.Default
+    private ModelStyle modelStyle = ModelStyle.MUTABLE;
+
+    /**
+     * Whether generated companions read or assign model fields directly.
+     */
+    boolean needsFieldAccess() {
+        return generateReaders || generateWriters;
+    }
+
+    boolean isImmutable() {
+        return modelStyle != ModelStyle.MUTABLE;
+    }
+
+    public static GenerationOptions defaults() {
+        return GenerationOptions.builder().build();
+    }
+}
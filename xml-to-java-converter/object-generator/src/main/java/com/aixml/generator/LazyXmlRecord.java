@@ -0,0 +1,483 @@
+package com.aixml.generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Base class of classes generated in {@link GenerationMode#LAZY}. An instance is a flyweight
+ * over the UTF-8 bytes of one record element: wrapping it runs a single scan that indexes
+ * the record's attributes and direct children, and each getter decodes its field from the
+ * original bytes on first access. Conversion cost is therefore proportional to the fields
+ * that are actually read.
+ * <p>
+ * The source array is shared, never copied, and must not be modified while records
+ * referencing it are in use. Instances are not safe for concurrent first access.
+ */
+public abstract class LazyXmlRecord {
+
+    /**
+     * Layouts are attached to the generated classes themselves, so they are unloaded together
+     * with the classes instead of being pinned by a static map.
+     */
+    private static final ClassValue<AtomicReference<Layout>> LAYOUTS = new ClassValue<AtomicReference<Layout>>() {
+        @Override
+        protected AtomicReference<Layout> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
+    private static final Object UNDECODED = new Object();
+
+    // Index entries: slot, content start, content end, element start, element end
+    private static final int ENTRY_SIZE = 5;
+
+    private Layout layout;
+    private byte[] source;
+    private int start;
+    private int end;
+    private int[] index;
+    private int entryCount;
+    private Object[] values;
+
+    protected LazyXmlRecord() {
+    }
+
+    /**
+     * Wraps the element starting at {@code start} (its {@code <} byte) and ending before
+     * {@code end}. Only the offset index is built here; no field is decoded yet.
+     */
+    public static <T> T wrap(Class<T> type, byte[] source, int start, int end) {
+        Layout layout = layoutOf(type);
+        if (layout == null) {
+            throw new IllegalArgumentException("Not a lazily generated class: " + type.getName());
+        }
+
+        try {
+            T instance = type.getDeclaredConstructor().newInstance();
+            ((LazyXmlRecord) instance).attach(layout, source, start, end);
+            return instance;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to instantiate " + type.getName(), e);
+        }
+    }
+
+    static void register(Class<?> type, Layout layout) {
+        LAYOUTS.get(type).set(layout);
+    }
+
+    private static Layout layoutOf(Class<?> type) {
+        return LazyXmlRecord.class.isAssignableFrom(type) ? LAYOUTS.get(type).get() : null;
+    }
+
+    public byte[] getSource() {
+        return source;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the decoded value of a slot, decoding and memoizing it on first access.
+     */
+    protected final Object decode(int slot) {
+        Object value = values[slot];
+        if (value == UNDECODED) {
+            value = layout.repeated[slot] ? decodeAll(slot) : decodeFirst(slot);
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    private void attach(Layout layout, byte[] source, int start, int end) {
+        this.layout = layout;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.index = new int[ENTRY_SIZE * 4];
+        this.values = new Object[layout.names.length];
+        Arrays.fill(values, UNDECODED);
+        scan();
+    }
+
+    private Object decodeFirst(int slot) {
+        for (int e = 0; e < entryCount; e++) {
+            if (index[e * ENTRY_SIZE] == slot) {
+                return decodeEntry(slot, e);
+            }
+        }
+        return null;
+    }
+
+    private List<Object> decodeAll(int slot) {
+        List<Object> decoded = new ArrayList<>();
+        for (int e = 0; e < entryCount; e++) {
+            if (index[e * ENTRY_SIZE] == slot) {
+                decoded.add(decodeEntry(slot, e));
+            }
+        }
+        return Collections.unmodifiableList(decoded);
+    }
+
+    private Object decodeEntry(int slot, int entry) {
+        int base = entry * ENTRY_SIZE;
+        String valueType = layout.valueTypes[slot];
+
+        if ("Object".equals(valueType)) {
+            Class<?> nested = layout.nestedTypes.apply(new String(layout.names[slot], StandardCharsets.UTF_8));
+            if (nested != null && layoutOf(nested) != null) {
+                return wrap(nested, source, index[base + 3], index[base + 4]);
+            }
+        }
+
+        String text = layout.attributes[slot]
+                ? unescape(source, index[base + 1], index[base + 2])
+                : decodeText(source, index[base + 1], index[base + 2]);
+        return convert(text, valueType);
+    }
+
+    private Object convert(String text, String valueType) {
+        if (valueType == null) {
+            return text;
+        }
+        String trimmed = text.trim();
+        switch (valueType) {
+            case "Integer":
+                return trimmed.isEmpty() ? null : Integer.valueOf(trimmed);
+            case "Long":
+                return trimmed.isEmpty() ? null : Long.valueOf(trimmed);
+            case "Double":
+                return trimmed.isEmpty() ? null : Double.valueOf(trimmed);
+            case "Boolean":
+                return trimmed.isEmpty() ? null : Boolean.valueOf(trimmed);
+            default:
+                return text;
+        }
+    }
+
+    // Single pass over the record building the offset index of attributes and direct children
+    private void scan() {
+        int p = start;
+        while (p < end && source[p] != '<') {
+            p++;
+        }
+        p = skipName(p + 1);
+
+        // Attributes of the record element
+        while (true) {
+            p = skipWhitespace(p);
+            if (p >= end) {
+                throw malformed(p);
+            }
+            if (source[p] == '/') {
+                return;
+            }
+            if (source[p] == '>') {
+                p++;
+                break;
+            }
+            int nameStart = p;
+            while (p < end && source[p] != '=' && !isWhitespace(source[p])) {
+                p++;
+            }
+            int slot = layout.slotOf(source, nameStart, p, true);
+            p = skipWhitespace(p);
+            p = skipWhitespace(p + 1);
+            byte quote = source[p];
+            int valueStart = p + 1;
+            p = indexOf(quote, valueStart);
+            if (slot >= 0) {
+                addEntry(slot, valueStart, p, nameStart, p + 1);
+            }
+            p++;
+        }
+
+        // Content: only depth-one elements are indexed, everything deeper is skipped
+        int depth = 0;
+        int childSlot = -1;
+        int childStart = 0;
+        int childContent = 0;
+        while (p < end) {
+            int lt = indexOf((byte) '<', p);
+            if (startsWith(lt, "<!--")) {
+                p = indexOf("-->", lt + 4) + 3;
+            } else if (startsWith(lt, "<![CDATA[")) {
+                p = indexOf("]]>", lt + 9) + 3;
+            } else if (startsWith(lt, "<?")) {
+                p = indexOf("?>", lt + 2) + 2;
+            } else if (startsWith(lt, "<!")) {
+                p = indexOf((byte) '>', lt) + 1;
+            } else if (startsWith(lt, "</")) {
+                p = indexOf((byte) '>', lt) + 1;
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+                if (depth == 0 && childSlot >= 0) {
+                    addEntry(childSlot, childContent, lt, childStart, p);
+                }
+            } else {
+                int nameEnd = skipName(lt + 1);
+                int tagEnd = skipTag(nameEnd);
+                boolean selfClosing = source[tagEnd - 1] == '/';
+                p = tagEnd + 1;
+                if (depth == 0) {
+                    childSlot = layout.slotOf(source, lt + 1, nameEnd, false);
+                    childStart = lt;
+                    childContent = p;
+                    if (selfClosing) {
+                        if (childSlot >= 0) {
+                            addEntry(childSlot, p, p, lt, p);
+                        }
+                    } else {
+                        depth = 1;
+                    }
+                } else if (!selfClosing) {
+                    depth++;
+                }
+            }
+        }
+        throw malformed(end);
+    }
+
+    private void addEntry(int slot, int contentStart, int contentEnd, int elementStart, int elementEnd) {
+        int base = entryCount * ENTRY_SIZE;
+        if (base + ENTRY_SIZE > index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[base] = slot;
+        index[base + 1] = contentStart;
+        index[base + 2] = contentEnd;
+        index[base + 3] = elementStart;
+        index[base + 4] = elementEnd;
+        entryCount++;
+    }
+
+    private int skipName(int p) {
+        while (p < end && source[p] != '>' && source[p] != '/' && !isWhitespace(source[p])) {
+            p++;
+        }
+        return p;
+    }
+
+    // Returns the position of the closing '>' of a tag, honouring quoted attribute values
+    private int skipTag(int p) {
+        while (p < end) {
+            byte b = source[p];
+            if (b == '"' || b == '\'') {
+                p = indexOf(b, p + 1) + 1;
+            } else if (b == '>') {
+                return p;
+            } else {
+                p++;
+            }
+        }
+        throw malformed(p);
+    }
+
+    private int skipWhitespace(int p) {
+        while (p < end && isWhitespace(source[p])) {
+            p++;
+        }
+        return p;
+    }
+
+    private int indexOf(byte b, int from) {
+        for (int p = from; p < end; p++) {
+            if (source[p] == b) {
+                return p;
+            }
+        }
+        throw malformed(from);
+    }
+
+    private int indexOf(String token, int from) {
+        for (int p = from; p <= end - token.length(); p++) {
+            if (startsWith(p, token)) {
+                return p;
+            }
+        }
+        throw malformed(from);
+    }
+
+    private boolean startsWith(int p, String token) {
+        if (p + token.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (source[p + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IllegalStateException malformed(int position) {
+        return new IllegalStateException("Malformed XML record near byte offset " + position);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Decodes element content, dropping comments and processing instructions and keeping
+     * CDATA sections verbatim.
+     */
+    static String decodeText(byte[] source, int from, int to) {
+        boolean plain = true;
+        for (int p = from; p < to && plain; p++) {
+            plain = source[p] != '&' && source[p] != '<';
+        }
+        if (plain) {
+            return new String(source, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder text = new StringBuilder(to - from);
+        int p = from;
+        while (p < to) {
+            int lt = p;
+            while (lt < to && source[lt] != '<') {
+                lt++;
+            }
+            text.append(unescape(source, p, lt));
+            if (lt >= to) {
+                break;
+            }
+            if (matches(source, lt, to, "<![CDATA[")) {
+                int close = find(source, lt + 9, to, "]]>");
+                text.append(new String(source, lt + 9, close - lt - 9, StandardCharsets.UTF_8));
+                p = close + 3;
+            } else if (matches(source, lt, to, "<!--")) {
+                p = find(source, lt + 4, to, "-->") + 3;
+            } else if (matches(source, lt, to, "<?")) {
+                p = find(source, lt + 2, to, "?>") + 2;
+            } else {
+                // Markup inside a leaf; keep whatever text remains after it
+                p = find(source, lt, to, ">") + 1;
+            }
+        }
+        return text.toString();
+    }
+
+    static String unescape(byte[] source, int from, int to) {
+        String raw = new String(source, from, to - from, StandardCharsets.UTF_8);
+        int amp = raw.indexOf('&');
+        if (amp < 0) {
+            return raw;
+        }
+
+        StringBuilder text = new StringBuilder(raw.length());
+        int p = 0;
+        while (amp >= 0) {
+            text.append(raw, p, amp);
+            int semi = raw.indexOf(';', amp);
+            if (semi < 0) {
+                text.append(raw, amp, raw.length());
+                p = raw.length();
+                break;
+            }
+            String entity = raw.substring(amp + 1, semi);
+            switch (entity) {
+                case "lt":
+                    text.append('<');
+                    break;
+                case "gt":
+                    text.append('>');
+                    break;
+                case "amp":
+                    text.append('&');
+                    break;
+                case "quot":
+                    text.append('"');
+                    break;
+                case "apos":
+                    text.append('\'');
+                    break;
+                default:
+                    if (entity.startsWith("#x")) {
+                        text.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                    } else if (entity.startsWith("#")) {
+                        text.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                    } else {
+                        text.append('&').append(entity).append(';');
+                    }
+            }
+            p = semi + 1;
+            amp = raw.indexOf('&', p);
+        }
+        text.append(raw, p, raw.length());
+        return text.toString();
+    }
+
+    private static boolean matches(byte[] source, int p, int to, String token) {
+        if (p + token.length() > to) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (source[p + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int find(byte[] source, int from, int to, String token) {
+        for (int p = from; p <= to - token.length(); p++) {
+            if (matches(source, p, to, token)) {
+                return p;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Slot table of one lazily generated class, built by {@link DynamicObjectGenerator}.
+     */
+    static final class Layout {
+
+        private final byte[][] names;
+        private final boolean[] attributes;
+        private final boolean[] repeated;
+        private final String[] valueTypes;
+        private final Function<String, Class<?>> nestedTypes;
+
+        Layout(List<String> names, boolean[] attributes, boolean[] repeated, String[] valueTypes,
+               Function<String, Class<?>> nestedTypes) {
+            this.names = new byte[names.size()][];
+            for (int i = 0; i < names.size(); i++) {
+                this.names[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            this.attributes = attributes;
+            this.repeated = repeated;
+            this.valueTypes = valueTypes;
+            this.nestedTypes = nestedTypes;
+        }
+
+        int slotOf(byte[] source, int from, int to, boolean attribute) {
+            int length = to - from;
+            for (int slot = 0; slot < names.length; slot++) {
+                byte[] name = names[slot];
+                if (attributes[slot] != attribute || name.length != length) {
+                    continue;
+                }
+                int i = 0;
+                while (i < length && name[i] == source[from + i]) {
+                    i++;
+                }
+                if (i == length) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+    }
+}
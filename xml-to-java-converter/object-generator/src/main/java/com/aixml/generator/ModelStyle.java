@@ -0,0 +1,26 @@
+package com.aixml.generator;
+
+/**
+ * Shape of the model classes written by {@link ClassFileGenerator}.
+ */
+public enum ModelStyle {
+
+    /**
+     * JAXB-annotated POJOs with a no-arg constructor, {@code List} fields for repeated children
+     * and boxed leaf types.
+     */
+    MUTABLE,
+
+    /**
+     * Final classes with final fields, an all-args constructor and record-style accessors.
+     * Required numeric and boolean leaves are primitives and repeated children are exact-size
+     * arrays. Bind them with the generated reader.
+     */
+    FINAL_CLASS,
+
+    /**
+     * Java records with the same components as {@link #FINAL_CLASS}; needs Java 16 or later
+     * to compile.
+     */
+    RECORD
+}
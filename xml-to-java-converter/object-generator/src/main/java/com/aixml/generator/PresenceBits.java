@@ -0,0 +1,85 @@
+package com.aixml.generator;
+
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+
+/**
+ * Bytecode for the presence bitsets of compact classes. Optional primitive fields cannot
+ * use {@code null} to signal absence, so every such field owns one bit in a {@code long}
+ * bitset field; setters raise the bit and {@code has} methods test it.
+ */
+final class PresenceBits {
+
+    static final int BITS_PER_FIELD = Long.SIZE;
+
+    private PresenceBits() {
+    }
+
+    static String fieldName(int bit) {
+        return "presenceBits" + (bit / BITS_PER_FIELD);
+    }
+
+    /**
+     * Sets the bit and returns from the method; meant to follow a field setter.
+     */
+    static Implementation mark(int bit) {
+        return new Simple(bit, false);
+    }
+
+    /**
+     * Returns whether the bit is set, without branching so no stack map frames are needed.
+     */
+    static Implementation test(int bit) {
+        return new Simple(bit, true);
+    }
+
+    private static final class Simple implements Implementation {
+
+        private final int bit;
+        private final boolean test;
+
+        private Simple(int bit, boolean test) {
+            this.bit = bit;
+            this.test = test;
+        }
+
+        @Override
+        public InstrumentedType prepare(InstrumentedType instrumentedType) {
+            return instrumentedType;
+        }
+
+        @Override
+        public ByteCodeAppender appender(Target target) {
+            String owner = target.getInstrumentedType().getInternalName();
+            String field = fieldName(bit);
+            int shift = bit % BITS_PER_FIELD;
+
+            return (MethodVisitor methodVisitor, Context context, MethodDescription method) -> {
+                if (test) {
+                    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+                    methodVisitor.visitFieldInsn(Opcodes.GETFIELD, owner, field, "J");
+                    methodVisitor.visitLdcInsn(shift);
+                    methodVisitor.visitInsn(Opcodes.LUSHR);
+                    methodVisitor.visitInsn(Opcodes.LCONST_1);
+                    methodVisitor.visitInsn(Opcodes.LAND);
+                    methodVisitor.visitInsn(Opcodes.L2I);
+                    methodVisitor.visitInsn(Opcodes.IRETURN);
+                    return new ByteCodeAppender.Size(4, method.getStackSize());
+                }
+
+                methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+                methodVisitor.visitInsn(Opcodes.DUP);
+                methodVisitor.visitFieldInsn(Opcodes.GETFIELD, owner, field, "J");
+                methodVisitor.visitLdcInsn(1L << shift);
+                methodVisitor.visitInsn(Opcodes.LOR);
+                methodVisitor.visitFieldInsn(Opcodes.PUTFIELD, owner, field, "J");
+                methodVisitor.visitInsn(Opcodes.RETURN);
+                return new ByteCodeAppender.Size(5, method.getStackSize());
+            };
+        }
+    }
+}
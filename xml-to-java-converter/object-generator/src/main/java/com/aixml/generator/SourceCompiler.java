@@ -0,0 +1,140 @@
+package com.aixml.generator;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles generated sources with the system {@link JavaCompiler} without touching the disk:
+ * sources are read from strings and class files are captured in memory. The classpath holds
+ * only the JAXB annotations, which are all the generated sources refer to.
+ */
+final class SourceCompiler {
+
+    private static final String CLASSPATH = jaxbClasspath();
+
+    private SourceCompiler() {
+    }
+
+    /**
+     * Compiles the sources, keyed by binary class name, and returns the class bytes of every
+     * emitted class, nested ones included, keyed by binary class name.
+     */
+    static Map<String, byte[]> compile(Map<String, String> sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler available; run on a JDK rather than a JRE");
+        }
+
+        List<JavaFileObject> units = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            units.add(new SourceFile(source.getKey(), source.getValue()));
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        Map<String, byte[]> classes = new ConcurrentHashMap<>();
+        try (JavaFileManager fileManager = new MemoryFileManager(standardManager, classes)) {
+            List<String> options = Arrays.asList("-classpath", CLASSPATH, "-proc:none", "-encoding", "UTF-8");
+            Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            if (!Boolean.TRUE.equals(success)) {
+                StringBuilder message = new StringBuilder("Compilation of generated sources failed:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                        message.append("\n  ").append(diagnostic.getSource() != null ? diagnostic.getSource().getName() : "")
+                               .append(':').append(diagnostic.getLineNumber())
+                               .append(": ").append(diagnostic.getMessage(null));
+                    }
+                }
+                throw new IllegalStateException(message.toString());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not close compiler file manager", e);
+        }
+        return classes;
+    }
+
+    private static String jaxbClasspath() {
+        CodeSource codeSource = XmlRootElement.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            // JAXB came from the platform (Java 8), where the compiler finds it without a classpath
+            return System.getProperty("java.class.path");
+        }
+        try {
+            return new File(codeSource.getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the JAXB API for compiling generated sources", e);
+        }
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String content;
+
+        private SourceFile(String binaryName, String content) {
+            super(URI.create("string:///" + binaryName.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+        private final String binaryName;
+        private final Map<String, byte[]> classes;
+
+        private ClassFile(String binaryName, Map<String, byte[]> classes) {
+            super(URI.create("memory:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    classes.put(binaryName, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        private MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassFile(className, classes);
+        }
+    }
+}
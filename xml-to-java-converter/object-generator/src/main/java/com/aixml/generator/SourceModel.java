@@ -0,0 +1,267 @@
+package com.aixml.generator;
+
+import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class and field layout of the generated sources, derived from the analyzed elements.
+ * All occurrences of an element name are merged into one class, so optional children and
+ * attributes seen anywhere in the document become fields, a child is repeated if any
+ * occurrence repeats it, and leaf types are widened across occurrences.
+ */
+final class SourceModel {
+
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "true", "false", "null", "record", "var"));
+
+    private SourceModel() {
+    }
+
+    /**
+     * Builds one class per complex element name, keyed by simple class name in schema order.
+     */
+    static Map<String, ClassModel> build(List<ElementDefinition> elements) {
+        Map<String, List<ElementDefinition>> occurrences = new LinkedHashMap<>();
+        Set<String> complexNames = new HashSet<>();
+        Set<String> rootNames = new HashSet<>();
+        for (ElementDefinition element : elements) {
+            occurrences.computeIfAbsent(element.getName(), k -> new ArrayList<>()).add(element);
+            if (isComplex(element)) {
+                complexNames.add(element.getName());
+            }
+            if (element.getParentElement() == null) {
+                rootNames.add(element.getName());
+            }
+        }
+
+        Map<String, ClassModel> classes = new LinkedHashMap<>();
+        for (Map.Entry<String, List<ElementDefinition>> entry : occurrences.entrySet()) {
+            if (complexNames.contains(entry.getKey())) {
+                ClassModel model = merge(entry.getKey(), entry.getValue(), complexNames);
+                model.root = rootNames.contains(entry.getKey());
+                classes.put(model.className, model);
+            }
+        }
+
+        for (ClassModel model : classes.values()) {
+            for (FieldModel field : model.fields) {
+                ClassModel wrapped = field.complexType != null && !field.repeated ? classes.get(field.complexType) : null;
+                if (wrapped != null && isWrapper(field.xmlName, wrapped)) {
+                    // Container element such as <books><book/>...</books>: flatten to List<Book>
+                    FieldModel item = wrapped.fields.get(0);
+                    field.wrapperXmlName = field.xmlName;
+                    field.xmlName = item.xmlName;
+                    field.complexType = item.complexType;
+                    field.valueType = item.valueType;
+                    field.repeated = true;
+                }
+            }
+        }
+
+        return classes;
+    }
+
+    static boolean isComplex(ElementDefinition element) {
+        return (element.getAttributes() != null && !element.getAttributes().isEmpty()) ||
+               (element.getChildren() != null && !element.getChildren().isEmpty()) ||
+               element.getParentElement() == null;
+    }
+
+    static String className(String elementName) {
+        String identifier = javaIdentifier(elementName);
+        return Character.toUpperCase(identifier.charAt(0)) + identifier.substring(1);
+    }
+
+    /**
+     * Turns an XML name into a Java identifier: prefixes are dropped, separators become
+     * camel case and reserved words get a trailing underscore.
+     */
+    static String javaIdentifier(String xmlName) {
+        String localName = xmlName.substring(xmlName.indexOf(':') + 1);
+        StringBuilder identifier = new StringBuilder();
+        boolean upperNext = false;
+        for (char c : localName.toCharArray()) {
+            if (Character.isJavaIdentifierPart(c) && c != '$') {
+                identifier.append(upperNext ? Character.toUpperCase(c) : c);
+                upperNext = false;
+            } else {
+                upperNext = identifier.length() > 0;
+            }
+        }
+        if (identifier.length() == 0 || !Character.isJavaIdentifierStart(identifier.charAt(0))) {
+            identifier.insert(0, '_');
+        }
+        String result = identifier.toString();
+        return RESERVED_WORDS.contains(result) ? result + "_" : result;
+    }
+
+    private static ClassModel merge(String elementName, List<ElementDefinition> occurrences, Set<String> complexNames) {
+        ClassModel model = new ClassModel(className(elementName), elementName);
+
+        Map<String, FieldModel> attributes = new LinkedHashMap<>();
+        Map<String, FieldModel> children = new LinkedHashMap<>();
+        for (int i = 0; i < occurrences.size(); i++) {
+            ElementDefinition occurrence = occurrences.get(i);
+            boolean seenBefore = i > 0;
+            if (occurrence.getAttributes() != null) {
+                for (String attribute : occurrence.getAttributes().keySet()) {
+                    attributes.computeIfAbsent(attribute, name -> {
+                        FieldModel field = new FieldModel(javaIdentifier(name), name, true);
+                        field.valueType = "String";
+                        return field;
+                    });
+                }
+            }
+
+            Map<String, Integer> counts = new HashMap<>();
+            if (occurrence.getChildren() != null) {
+                for (ElementDefinition child : occurrence.getChildren()) {
+                    int count = counts.merge(child.getName(), 1, Integer::sum);
+                    FieldModel field = children.computeIfAbsent(child.getName(), name -> {
+                        FieldModel added = new FieldModel(javaIdentifier(name), name, false);
+                        // Missing from the occurrences merged before this one
+                        added.optional = seenBefore;
+                        return added;
+                    });
+                    field.repeated |= count > 1;
+                    field.valueType = field.valueType == null ? child.getType() : XmlStructureAnalyzer.widenValueType(field.valueType, child.getType());
+                }
+            }
+            for (FieldModel field : children.values()) {
+                field.optional |= !counts.containsKey(field.xmlName);
+            }
+        }
+
+        model.fields.addAll(attributes.values());
+        for (FieldModel field : children.values()) {
+            if (complexNames.contains(field.xmlName)) {
+                field.complexType = className(field.xmlName);
+            }
+            if (field.repeated) {
+                field.name = field.name + "List";
+            }
+            model.fields.add(field);
+        }
+        return model;
+    }
+
+    private static boolean isWrapper(String containerName, ClassModel container) {
+        if (container.fields.size() != 1) {
+            return false;
+        }
+        FieldModel item = container.fields.get(0);
+        if (item.attribute || item.wrapperXmlName != null) {
+            return false;
+        }
+        String itemName = item.xmlName;
+        return item.repeated
+                || containerName.equals(itemName + "s")
+                || containerName.equals(itemName + "es")
+                || (itemName.endsWith("y") && containerName.equals(itemName.substring(0, itemName.length() - 1) + "ies"));
+    }
+
+    static final class ClassModel {
+        final String className;
+        final String xmlName;
+        final List<FieldModel> fields = new ArrayList<>();
+        boolean root;
+
+        ClassModel(String className, String xmlName) {
+            this.className = className;
+            this.xmlName = xmlName;
+        }
+    }
+
+    static final class FieldModel {
+        String name;
+        String xmlName;
+        final boolean attribute;
+        boolean repeated;
+        boolean optional;
+        String valueType;
+        String complexType;
+        String wrapperXmlName;
+
+        FieldModel(String name, String xmlName, boolean attribute) {
+            this.name = name;
+            this.xmlName = xmlName;
+            this.attribute = attribute;
+        }
+
+        /**
+         * Element type: the generated class for complex children, otherwise the boxed leaf type.
+         */
+        String itemType() {
+            if (complexType != null) {
+                return complexType;
+            }
+            switch (valueType) {
+                case "Integer":
+                case "Long":
+                case "Double":
+                case "Boolean":
+                    return valueType;
+                default:
+                    return "String";
+            }
+        }
+
+        String javaType() {
+            return repeated ? "List<" + itemType() + ">" : itemType();
+        }
+
+        /**
+         * Primitive counterpart of a numeric or boolean leaf, or {@code null}.
+         */
+        String primitiveType() {
+            if (complexType != null || attribute) {
+                return null;
+            }
+            switch (valueType) {
+                case "Integer":
+                    return "int";
+                case "Long":
+                    return "long";
+                case "Double":
+                    return "double";
+                case "Boolean":
+                    return "boolean";
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Item type of immutable value types: primitive wherever the inferred type allows.
+         */
+        String componentType() {
+            String primitive = primitiveType();
+            return primitive != null ? primitive : itemType();
+        }
+
+        /**
+         * Type in immutable value types: exact-size arrays for repeated children, primitives
+         * for leaves present in every occurrence.
+         */
+        String valueJavaType() {
+            if (repeated) {
+                return componentType() + "[]";
+            }
+            return optional || primitiveType() == null ? itemType() : primitiveType();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.aixml.generator;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Binds XML into classes from {@link DynamicObjectGenerator} in a single pass over pull-parser
+ * events, without building a DOM or an intermediate property map. Attributes, leaf elements,
+ * nested objects, lists and the primitive arrays of compact classes are assigned through the
+ * generated setters, so presence bits stay accurate. The binding plan of each class, with its
+ * name lookups and setter {@link MethodHandle}s, is built once per binder.
+ * <p>
+ * Classes without JAXB annotations are bound by field name, matching attributes and child
+ * elements alike. Unknown elements are skipped. Binders are thread-safe.
+ */
+public class StaxDataBinder {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final Function<String, Class<?>> classResolver;
+    private final Map<Class<?>, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * @param classResolver maps an element name to the class bound for it, or {@code null};
+     *                      used for the root and for children typed {@code Object} or raw {@code List}
+     */
+    public StaxDataBinder(Function<String, Class<?>> classResolver) {
+        this.classResolver = classResolver;
+    }
+
+    public Object bind(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            return bind(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public Object bind(Reader in) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            return bind(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Binds the next element of the reader to the class resolved for its name.
+     */
+    public Object bind(XMLStreamReader reader) throws XMLStreamException {
+        toStartElement(reader);
+        String name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+        Class<?> type = classResolver.apply(name);
+        if (type == null) {
+            throw new XMLStreamException("No class to bind element <" + name + ">", reader.getLocation());
+        }
+        return bind(reader, type);
+    }
+
+    /**
+     * Binds the element at or after the reader's position to a new instance of {@code type};
+     * the reader is left on the element's end tag.
+     */
+    public <T> T bind(XMLStreamReader reader, Class<T> type) throws XMLStreamException {
+        toStartElement(reader);
+        return type.cast(planFor(type).bind(reader));
+    }
+
+    public <T> T bind(InputStream in, Class<T> type) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            return bind(reader, type);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public <T> T bind(Reader in, Class<T> type) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            return bind(reader, type);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Factory with DTDs and external entities disabled and text coalesced, as used by the
+     * binder itself; readers from it can be positioned by the caller and passed to {@link #bind}.
+     */
+    public static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private Plan planFor(Class<?> type) {
+        return plans.computeIfAbsent(type, Plan::new);
+    }
+
+    private static void toStartElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+            if (!reader.hasNext()) {
+                throw new XMLStreamException("No element to bind", reader.getLocation());
+            }
+            reader.next();
+        }
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    /**
+     * Text of the current element; text inside unexpected child elements is included.
+     * Leaves the reader on the element's end tag.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = null;
+        String first = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+                if (first == null) {
+                    first = reader.getText();
+                } else {
+                    if (text == null) {
+                        text = new StringBuilder(first);
+                    }
+                    text.append(reader.getText());
+                }
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return text != null ? text.toString() : first != null ? first : "";
+    }
+
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static boolean isValueType(Class<?> type) {
+        return type.isPrimitive() || type == String.class || type == Integer.class || type == Long.class
+                || type == Double.class || type == Boolean.class;
+    }
+
+    private static Object convert(String text, Class<?> type, XMLStreamReader reader) throws XMLStreamException {
+        if (type == String.class || type == Object.class) {
+            return text;
+        }
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        try {
+            if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(trimmed);
+            } else if (type == Long.class || type == long.class) {
+                return Long.valueOf(trimmed);
+            } else if (type == Double.class || type == double.class) {
+                return Double.valueOf(trimmed);
+            } else if (type == Boolean.class || type == boolean.class) {
+                return Boolean.valueOf(trimmed);
+            }
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Cannot bind '" + trimmed + "' as " + type.getSimpleName(), reader.getLocation(), e);
+        }
+        return text;
+    }
+
+    private enum Kind {
+        VALUE, OBJECT, LIST, ARRAY
+    }
+
+    private final class Property {
+        private final String xmlName;
+        private final MethodHandle setter;
+        private final Kind kind;
+        // Value type for leaves, nested class for objects, item type for lists and arrays
+        private final Class<?> itemType;
+        private final int slot;
+
+        private Property(String xmlName, MethodHandle setter, Kind kind, Class<?> itemType, int slot) {
+            this.xmlName = xmlName;
+            this.setter = setter;
+            this.kind = kind;
+            this.itemType = itemType;
+            this.slot = slot;
+        }
+
+        private Object readItem(XMLStreamReader reader) throws XMLStreamException {
+            Class<?> type = itemType;
+            if (type == null || type == Object.class) {
+                // Raw List or Object field: bind a nested object if one is generated for the element
+                Class<?> resolved = classResolver.apply(xmlName);
+                type = resolved != null && !isValueType(resolved) ? resolved : String.class;
+            }
+            if (isValueType(type)) {
+                return convert(readText(reader), type, reader);
+            }
+            return planFor(type).bind(reader);
+        }
+
+        private void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to set " + xmlName, t);
+            }
+        }
+    }
+
+    private final class Plan {
+        private final Class<?> type;
+        private final MethodHandle constructor;
+        private final Map<String, Property> attributes = new HashMap<>();
+        private final Map<String, Property> elements = new HashMap<>();
+        private int collections;
+
+        private Plan(Class<?> type) {
+            this.type = type;
+            try {
+                Constructor<?> noArgs = type.getDeclaredConstructor();
+                noArgs.setAccessible(true);
+                this.constructor = MethodHandles.lookup().unreflectConstructor(noArgs)
+                        .asType(MethodType.methodType(Object.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IllegalArgumentException("No accessible no-arg constructor on " + type.getName(), e);
+            }
+
+            boolean annotated = false;
+            for (Field field : type.getDeclaredFields()) {
+                annotated |= field.isAnnotationPresent(XmlAttribute.class) || field.isAnnotationPresent(XmlElement.class);
+            }
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                XmlAttribute attribute = field.getAnnotation(XmlAttribute.class);
+                XmlElement element = field.getAnnotation(XmlElement.class);
+                if (annotated && attribute == null && element == null) {
+                    continue;
+                }
+                if (attribute != null || (!annotated && isValueType(field.getType()))) {
+                    String name = attribute != null && !"##default".equals(attribute.name()) ? attribute.name() : field.getName();
+                    attributes.put(name, property(field, name, Kind.VALUE, field.getType(), -1));
+                }
+                if (element != null || !annotated) {
+                    String name = element != null && !"##default".equals(element.name()) ? element.name() : field.getName();
+                    elements.put(name, elementProperty(field, name));
+                }
+            }
+        }
+
+        private Property elementProperty(Field field, String name) {
+            Class<?> fieldType = field.getType();
+            if (List.class.isAssignableFrom(fieldType)) {
+                Type generic = field.getGenericType();
+                Class<?> itemType = null;
+                if (generic instanceof ParameterizedType
+                        && ((ParameterizedType) generic).getActualTypeArguments()[0] instanceof Class) {
+                    itemType = (Class<?>) ((ParameterizedType) generic).getActualTypeArguments()[0];
+                }
+                return property(field, name, Kind.LIST, itemType, collections++);
+            }
+            if (fieldType.isArray()) {
+                return property(field, name, Kind.ARRAY, fieldType.getComponentType(), collections++);
+            }
+            return property(field, name, isValueType(fieldType) ? Kind.VALUE : Kind.OBJECT, fieldType, -1);
+        }
+
+        private Property property(Field field, String name, Kind kind, Class<?> itemType, int slot) {
+            return new Property(name, setter(field), kind, itemType, slot);
+        }
+
+        private MethodHandle setter(Field field) {
+            MethodType erased = MethodType.methodType(void.class, Object.class, Object.class);
+            String setterName = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+            try {
+                return MethodHandles.publicLookup()
+                        .findVirtual(type, setterName, MethodType.methodType(void.class, field.getType()))
+                        .asType(erased);
+            } catch (ReflectiveOperationException e) {
+                // Plain classes without setters are bound through their fields
+                try {
+                    field.setAccessible(true);
+                    return MethodHandles.lookup().unreflectSetter(field).asType(erased);
+                } catch (ReflectiveOperationException | RuntimeException inaccessible) {
+                    throw new IllegalArgumentException("Cannot set field " + field.getName() + " of " + type.getName(), inaccessible);
+                }
+            }
+        }
+
+        private Object bind(XMLStreamReader reader) throws XMLStreamException {
+            Object target;
+            try {
+                target = (Object) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to instantiate " + type.getName(), t);
+            }
+
+            for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {
+                Property property = attributes.get(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+                if (property != null) {
+                    Object value = convert(reader.getAttributeValue(i), property.itemType, reader);
+                    if (value != null) {
+                        property.set(target, value);
+                    }
+                }
+            }
+
+            List<Object>[] collected = null;
+            while (true) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    break;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                Property property = elements.get(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+                if (property == null) {
+                    skip(reader);
+                    continue;
+                }
+                switch (property.kind) {
+                    case VALUE:
+                        Object value = convert(readText(reader), property.itemType, reader);
+                        if (value != null) {
+                            property.set(target, value);
+                        }
+                        break;
+                    case OBJECT:
+                        property.set(target, property.readItem(reader));
+                        break;
+                    default:
+                        if (collected == null) {
+                            @SuppressWarnings({"unchecked", "rawtypes"})
+                            List<Object>[] lists = new List[collections];
+                            collected = lists;
+                        }
+                        if (collected[property.slot] == null) {
+                            collected[property.slot] = new ArrayList<>();
+                        }
+                        Object item = property.readItem(reader);
+                        if (item != null) {
+                            collected[property.slot].add(item);
+                        }
+                }
+            }
+
+            if (collected != null) {
+                for (Property property : elements.values()) {
+                    List<Object> items = property.slot >= 0 ? collected[property.slot] : null;
+                    if (items != null) {
+                        property.set(target, property.kind == Kind.ARRAY ? toArray(items, property.itemType) : items);
+                    }
+                }
+            }
+            return target;
+        }
+
+        private Object toArray(List<Object> items, Class<?> componentType) {
+            Object array = Array.newInstance(componentType, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                Array.set(array, i, items.get(i));
+            }
+            return array;
+        }
+    }
+}
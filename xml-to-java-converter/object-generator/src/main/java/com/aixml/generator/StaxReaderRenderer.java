@@ -0,0 +1,354 @@
+package com.aixml.generator;
+
+import com.aixml.generator.SourceModel.ClassModel;
+import com.aixml.generator.SourceModel.FieldModel;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders the source of a generated {@code XMLStreamReader} unmarshaller for one root type
+ * and every type reachable from it. Element and attribute names are dispatched with string
+ * switches and values are assigned straight to the model fields, so binding needs no
+ * reflection at runtime.
+ */
+final class StaxReaderRenderer {
+
+    private StaxReaderRenderer() {
+    }
+
+    static String readerName(ClassModel root) {
+        return root.className + "Reader";
+    }
+
+    static String render(ClassModel root, Map<String, ClassModel> classes, String packageName, boolean immutable) {
+        Map<String, ClassModel> reachable = reachable(root, classes);
+        Set<String> converters = new LinkedHashSet<>();
+        String readerName = readerName(root);
+        StringBuilder methods = new StringBuilder();
+        for (ClassModel model : reachable.values()) {
+            if (immutable) {
+                renderConstructingMethod(methods, model, converters);
+            } else {
+                renderReadMethod(methods, model, converters);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import javax.xml.stream.XMLInputFactory;\n");
+        sb.append("import javax.xml.stream.XMLStreamConstants;\n");
+        sb.append("import javax.xml.stream.XMLStreamException;\n");
+        sb.append("import javax.xml.stream.XMLStreamReader;\n");
+        sb.append("import java.io.InputStream;\n");
+        sb.append("import java.io.Reader;\n");
+        sb.append(immutable ? "import java.util.Arrays;\n\n" : "import java.util.ArrayList;\n\n");
+
+        sb.append("/**\n");
+        sb.append(" * Generated StAX reader for {@code <").append(root.xmlName).append(">} documents.\n");
+        sb.append(" */\n");
+        sb.append("public final class ").append(readerName).append(" {\n\n");
+        sb.append("    private static final XMLInputFactory FACTORY = createFactory();\n\n");
+        sb.append("    private ").append(readerName).append("() {\n");
+        sb.append("    }\n\n");
+
+        for (String source : new String[] {"InputStream", "Reader"}) {
+            sb.append("    public static ").append(root.className).append(" read(").append(source)
+              .append(" in) throws XMLStreamException {\n");
+            sb.append("        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);\n");
+            sb.append("        try {\n");
+            sb.append("            return read(reader);\n");
+            sb.append("        } finally {\n");
+            sb.append("            reader.close();\n");
+            sb.append("        }\n");
+            sb.append("    }\n\n");
+        }
+
+        sb.append("    public static ").append(root.className).append(" read(XMLStreamReader reader) throws XMLStreamException {\n");
+        sb.append("        while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {\n");
+        sb.append("            reader.next();\n");
+        sb.append("        }\n");
+        sb.append("        if (!\"").append(localName(root.xmlName)).append("\".equals(reader.getLocalName())) {\n");
+        sb.append("            throw new XMLStreamException(\"Expected <").append(root.xmlName)
+          .append("> but found <\" + reader.getLocalName() + \">\", reader.getLocation());\n");
+        sb.append("        }\n");
+        sb.append("        return ").append(methodName(root)).append("(reader);\n");
+        sb.append("    }\n\n");
+
+        sb.append(methods);
+        renderHelpers(sb, converters);
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void renderReadMethod(StringBuilder sb, ClassModel model, Set<String> converters) {
+        sb.append("    static ").append(model.className).append(" ").append(methodName(model))
+          .append("(XMLStreamReader reader) throws XMLStreamException {\n");
+        sb.append("        ").append(model.className).append(" target = new ").append(model.className).append("();\n");
+
+        Set<String> attributeLabels = new HashSet<>();
+        StringBuilder attributeCases = new StringBuilder();
+        for (FieldModel field : model.fields) {
+            if (field.attribute && attributeLabels.add(localName(field.xmlName))) {
+                attributeCases.append("                case \"").append(localName(field.xmlName)).append("\":\n");
+                attributeCases.append("                    target.").append(field.name).append(" = reader.getAttributeValue(i);\n");
+                attributeCases.append("                    break;\n");
+            }
+        }
+        if (attributeCases.length() > 0) {
+            sb.append("        for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {\n");
+            sb.append("            switch (reader.getAttributeLocalName(i)) {\n");
+            sb.append(attributeCases);
+            sb.append("                default:\n");
+            sb.append("                    break;\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+        }
+
+        sb.append("        while (nextChild(reader)) {\n");
+        sb.append("            switch (reader.getLocalName()) {\n");
+        Set<String> elementLabels = new HashSet<>();
+        for (FieldModel field : model.fields) {
+            String label = localName(field.wrapperXmlName != null ? field.wrapperXmlName : field.xmlName);
+            if (field.attribute || !elementLabels.add(label)) {
+                continue;
+            }
+            String target = "target." + field.name;
+            sb.append("                case \"").append(label).append("\":\n");
+            if (field.wrapperXmlName != null) {
+                sb.append("                    ").append(target).append(" = new ArrayList<>();\n");
+                sb.append("                    while (nextChild(reader)) {\n");
+                sb.append("                        if (\"").append(localName(field.xmlName)).append("\".equals(reader.getLocalName())) {\n");
+                sb.append("                            ").append(target).append(".add(").append(readValue(field, converters)).append(");\n");
+                sb.append("                        } else {\n");
+                sb.append("                            skip(reader);\n");
+                sb.append("                        }\n");
+                sb.append("                    }\n");
+            } else if (field.repeated) {
+                sb.append("                    if (").append(target).append(" == null) {\n");
+                sb.append("                        ").append(target).append(" = new ArrayList<>();\n");
+                sb.append("                    }\n");
+                sb.append("                    ").append(target).append(".add(").append(readValue(field, converters)).append(");\n");
+            } else {
+                sb.append("                    ").append(target).append(" = ").append(readValue(field, converters)).append(";\n");
+            }
+            sb.append("                    break;\n");
+        }
+        sb.append("                default:\n");
+        sb.append("                    skip(reader);\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        return target;\n");
+        sb.append("    }\n\n");
+    }
+
+    /**
+     * Reads the values of an immutable value type into locals and calls its constructor once
+     * the end tag is reached. Repeated children are collected in growing arrays that are
+     * trimmed to their exact size.
+     */
+    private static void renderConstructingMethod(StringBuilder sb, ClassModel model, Set<String> converters) {
+        sb.append("    static ").append(model.className).append(" ").append(methodName(model))
+          .append("(XMLStreamReader reader) throws XMLStreamException {\n");
+        for (int f = 0; f < model.fields.size(); f++) {
+            FieldModel field = model.fields.get(f);
+            String type = field.valueJavaType();
+            sb.append("        ").append(type).append(" f").append(f).append(" = ").append(defaultValue(type)).append(";\n");
+            if (field.repeated) {
+                sb.append("        int c").append(f).append(" = 0;\n");
+            }
+        }
+
+        Set<String> attributeLabels = new HashSet<>();
+        StringBuilder attributeCases = new StringBuilder();
+        for (int f = 0; f < model.fields.size(); f++) {
+            FieldModel field = model.fields.get(f);
+            if (field.attribute && attributeLabels.add(localName(field.xmlName))) {
+                attributeCases.append("                case \"").append(localName(field.xmlName)).append("\":\n");
+                attributeCases.append("                    f").append(f).append(" = reader.getAttributeValue(i);\n");
+                attributeCases.append("                    break;\n");
+            }
+        }
+        if (attributeCases.length() > 0) {
+            sb.append("        for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {\n");
+            sb.append("            switch (reader.getAttributeLocalName(i)) {\n");
+            sb.append(attributeCases);
+            sb.append("                default:\n");
+            sb.append("                    break;\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+        }
+
+        sb.append("        while (nextChild(reader)) {\n");
+        sb.append("            switch (reader.getLocalName()) {\n");
+        Set<String> elementLabels = new HashSet<>();
+        for (int f = 0; f < model.fields.size(); f++) {
+            FieldModel field = model.fields.get(f);
+            String label = localName(field.wrapperXmlName != null ? field.wrapperXmlName : field.xmlName);
+            if (field.attribute || !elementLabels.add(label)) {
+                continue;
+            }
+            sb.append("                case \"").append(label).append("\":\n");
+            if (field.wrapperXmlName != null) {
+                sb.append("                    while (nextChild(reader)) {\n");
+                sb.append("                        if (\"").append(localName(field.xmlName)).append("\".equals(reader.getLocalName())) {\n");
+                renderAppend(sb, "                            ", field, f, converters);
+                sb.append("                        } else {\n");
+                sb.append("                            skip(reader);\n");
+                sb.append("                        }\n");
+                sb.append("                    }\n");
+            } else if (field.repeated) {
+                renderAppend(sb, "                    ", field, f, converters);
+            } else {
+                sb.append("                    f").append(f).append(" = ").append(readValue(field, converters, true)).append(";\n");
+            }
+            sb.append("                    break;\n");
+        }
+        sb.append("                default:\n");
+        sb.append("                    skip(reader);\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+
+        sb.append("        return new ").append(model.className).append("(");
+        for (int f = 0; f < model.fields.size(); f++) {
+            sb.append(f == 0 ? "" : ", ");
+            if (model.fields.get(f).repeated) {
+                sb.append("f").append(f).append(" == null || c").append(f).append(" == f").append(f)
+                  .append(".length ? f").append(f).append(" : Arrays.copyOf(f").append(f).append(", c").append(f).append(")");
+            } else {
+                sb.append("f").append(f);
+            }
+        }
+        sb.append(");\n");
+        sb.append("    }\n\n");
+    }
+
+    private static void renderAppend(StringBuilder sb, String indent, FieldModel field, int f, Set<String> converters) {
+        String array = "f" + f;
+        String count = "c" + f;
+        sb.append(indent).append("if (").append(array).append(" == null) {\n");
+        sb.append(indent).append("    ").append(array).append(" = new ").append(field.componentType()).append("[4];\n");
+        sb.append(indent).append("} else if (").append(count).append(" == ").append(array).append(".length) {\n");
+        sb.append(indent).append("    ").append(array).append(" = Arrays.copyOf(").append(array).append(", ").append(count).append(" * 2);\n");
+        sb.append(indent).append("}\n");
+        sb.append(indent).append(array).append("[").append(count).append("++] = ").append(readValue(field, converters, true)).append(";\n");
+    }
+
+    private static String defaultValue(String type) {
+        switch (type) {
+            case "int":
+            case "long":
+                return "0";
+            case "double":
+                return "0.0";
+            case "boolean":
+                return "false";
+            default:
+                return "null";
+        }
+    }
+
+    private static String readValue(FieldModel field, Set<String> converters) {
+        return readValue(field, converters, false);
+    }
+
+    private static String readValue(FieldModel field, Set<String> converters, boolean immutable) {
+        if (field.complexType != null) {
+            return "read" + field.complexType + "(reader)";
+        }
+        if (immutable && field.primitiveType() != null && (field.repeated || !field.optional)) {
+            String primitive = field.primitiveType();
+            converters.add(primitive);
+            return "parse" + capitalize(primitive) + "(reader.getElementText())";
+        }
+        String type = field.itemType();
+        if (type.equals("String")) {
+            return "reader.getElementText()";
+        }
+        converters.add(type);
+        return "to" + type + "(reader.getElementText())";
+    }
+
+    private static void renderHelpers(StringBuilder sb, Set<String> converters) {
+        sb.append("    // Advances to the next child start tag; returns false at the end tag of the current element\n");
+        sb.append("    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {\n");
+        sb.append("        while (true) {\n");
+        sb.append("            int event = reader.next();\n");
+        sb.append("            if (event == XMLStreamConstants.START_ELEMENT) {\n");
+        sb.append("                return true;\n");
+        sb.append("            }\n");
+        sb.append("            if (event == XMLStreamConstants.END_ELEMENT) {\n");
+        sb.append("                return false;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+
+        sb.append("    private static void skip(XMLStreamReader reader) throws XMLStreamException {\n");
+        sb.append("        int depth = 1;\n");
+        sb.append("        while (depth > 0) {\n");
+        sb.append("            int event = reader.next();\n");
+        sb.append("            if (event == XMLStreamConstants.START_ELEMENT) {\n");
+        sb.append("                depth++;\n");
+        sb.append("            } else if (event == XMLStreamConstants.END_ELEMENT) {\n");
+        sb.append("                depth--;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+
+        for (String type : converters) {
+            if (Character.isLowerCase(type.charAt(0))) {
+                String boxed = type.equals("int") ? "Integer" : capitalize(type);
+                sb.append("    private static ").append(type).append(" parse").append(capitalize(type)).append("(String text) {\n");
+                sb.append("        return ").append(boxed).append(".parse").append(capitalize(type)).append("(text.trim());\n");
+                sb.append("    }\n\n");
+                continue;
+            }
+            sb.append("    private static ").append(type).append(" to").append(type).append("(String text) {\n");
+            sb.append("        String trimmed = text.trim();\n");
+            sb.append("        return trimmed.isEmpty() ? null : ").append(type).append(".valueOf(trimmed);\n");
+            sb.append("    }\n\n");
+        }
+
+        sb.append("    private static XMLInputFactory createFactory() {\n");
+        sb.append("        XMLInputFactory factory = XMLInputFactory.newInstance();\n");
+        sb.append("        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);\n");
+        sb.append("        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);\n");
+        sb.append("        return factory;\n");
+        sb.append("    }\n");
+    }
+
+    private static Map<String, ClassModel> reachable(ClassModel root, Map<String, ClassModel> classes) {
+        Map<String, ClassModel> reachable = new LinkedHashMap<>();
+        Deque<ClassModel> pending = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            ClassModel model = pending.poll();
+            if (reachable.putIfAbsent(model.className, model) != null) {
+                continue;
+            }
+            for (FieldModel field : model.fields) {
+                if (field.complexType != null && classes.containsKey(field.complexType)) {
+                    pending.add(classes.get(field.complexType));
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private static String methodName(ClassModel model) {
+        return "read" + model.className;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String localName(String xmlName) {
+        return xmlName.substring(xmlName.indexOf(':') + 1);
+    }
+}
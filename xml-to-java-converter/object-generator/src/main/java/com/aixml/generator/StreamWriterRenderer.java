@@ -0,0 +1,270 @@
+package com.aixml.generator;
+
+import com.aixml.generator.SourceModel.ClassModel;
+import com.aixml.generator.SourceModel.FieldModel;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders the source of a generated XML writer for one root type and every type reachable
+ * from it, plus the {@value #OUTPUT_CLASS} support class the writers share. Tags are encoded
+ * to UTF-8 once, in static constants, and field values are read directly, so writing is
+ * bounded by the output stream rather than by reflection or a JAXB marshaller.
+ */
+final class StreamWriterRenderer {
+
+    static final String OUTPUT_CLASS = "Utf8XmlOutput";
+
+    private StreamWriterRenderer() {
+    }
+
+    static String writerName(ClassModel root) {
+        return root.className + "Writer";
+    }
+
+    static String render(ClassModel root, Map<String, ClassModel> classes, String packageName, boolean immutable) {
+        Map<String, ClassModel> reachable = new LinkedHashMap<>();
+        Deque<ClassModel> pending = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            ClassModel model = pending.poll();
+            if (reachable.putIfAbsent(model.className, model) != null) {
+                continue;
+            }
+            for (FieldModel field : model.fields) {
+                if (field.complexType != null && classes.containsKey(field.complexType)) {
+                    pending.add(classes.get(field.complexType));
+                }
+            }
+        }
+
+        // Every markup fragment becomes one pre-encoded constant
+        Map<String, String> constants = new LinkedHashMap<>();
+        StringBuilder methods = new StringBuilder();
+        for (ClassModel model : reachable.values()) {
+            renderWriteMethod(methods, model, constants, immutable);
+        }
+
+        String writerName = writerName(root);
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import java.io.IOException;\n");
+        sb.append("import java.io.OutputStream;\n");
+        sb.append("import java.nio.charset.StandardCharsets;\n\n");
+        sb.append("/**\n");
+        sb.append(" * Generated UTF-8 writer for {@code <").append(root.xmlName).append(">} documents.\n");
+        sb.append(" */\n");
+        sb.append("public final class ").append(writerName).append(" {\n\n");
+        sb.append("    private static final byte[] DECLARATION = bytes(\"<?xml version=\\\"1.0\\\" encoding=\\\"UTF-8\\\"?>\");\n");
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            sb.append("    private static final byte[] ").append(constant.getValue()).append(" = bytes(\"")
+              .append(constant.getKey().replace("\\", "\\\\").replace("\"", "\\\"")).append("\");\n");
+        }
+        sb.append("\n");
+        sb.append("    private ").append(writerName).append("() {\n");
+        sb.append("    }\n\n");
+
+        sb.append("    public static void write(").append(root.className).append(" value, OutputStream out) throws IOException {\n");
+        sb.append("        ").append(OUTPUT_CLASS).append(" output = new ").append(OUTPUT_CLASS).append("(out);\n");
+        sb.append("        output.raw(DECLARATION);\n");
+        sb.append("        write").append(root.className).append("(value, output);\n");
+        sb.append("        output.flush();\n");
+        sb.append("    }\n\n");
+
+        sb.append("    /**\n");
+        sb.append("     * Writes the element without a declaration, for streaming many records into one document.\n");
+        sb.append("     */\n");
+        sb.append("    public static void writeFragment(").append(root.className).append(" value, OutputStream out) throws IOException {\n");
+        sb.append("        ").append(OUTPUT_CLASS).append(" output = new ").append(OUTPUT_CLASS).append("(out);\n");
+        sb.append("        write").append(root.className).append("(value, output);\n");
+        sb.append("        output.flush();\n");
+        sb.append("    }\n\n");
+
+        sb.append(methods);
+
+        sb.append("    private static byte[] bytes(String markup) {\n");
+        sb.append("        return markup.getBytes(StandardCharsets.UTF_8);\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void renderWriteMethod(StringBuilder sb, ClassModel model, Map<String, String> constants,
+                                          boolean immutable) {
+        sb.append("    static void write").append(model.className).append("(").append(model.className)
+          .append(" value, ").append(OUTPUT_CLASS).append(" out) throws IOException {\n");
+        sb.append("        out.raw(").append(constant(constants, "<" + model.xmlName)).append(");\n");
+        for (FieldModel field : model.fields) {
+            if (field.attribute) {
+                String value = access(field, immutable);
+                sb.append("        if (").append(value).append(" != null) {\n");
+                sb.append("            out.raw(").append(constant(constants, " " + field.xmlName + "=\"")).append(");\n");
+                sb.append("            out.attribute(").append(text(field, value)).append(");\n");
+                sb.append("            out.raw(").append(constant(constants, "\"")).append(");\n");
+                sb.append("        }\n");
+            }
+        }
+        sb.append("        out.raw(").append(constant(constants, ">")).append(");\n");
+
+        for (FieldModel field : model.fields) {
+            if (field.attribute) {
+                continue;
+            }
+            String value = access(field, immutable);
+            String type = immutable ? field.valueJavaType() : field.javaType();
+            boolean primitive = Character.isLowerCase(type.charAt(0));
+            String indent = primitive ? "        " : "            ";
+            if (!primitive) {
+                sb.append("        if (").append(value).append(" != null) {\n");
+            }
+            if (field.repeated) {
+                String itemType = immutable ? field.componentType() : field.itemType();
+                boolean primitiveItems = Character.isLowerCase(itemType.charAt(0));
+                if (field.wrapperXmlName != null) {
+                    sb.append(indent).append("out.raw(").append(constant(constants, "<" + field.wrapperXmlName + ">")).append(");\n");
+                }
+                sb.append(indent).append("for (").append(itemType).append(" item : ").append(value).append(") {\n");
+                if (primitiveItems) {
+                    renderChild(sb, indent + "    ", field, "item", constants, true);
+                } else {
+                    sb.append(indent).append("    if (item != null) {\n");
+                    renderChild(sb, indent + "        ", field, "item", constants, false);
+                    sb.append(indent).append("    }\n");
+                }
+                sb.append(indent).append("}\n");
+                if (field.wrapperXmlName != null) {
+                    sb.append(indent).append("out.raw(").append(constant(constants, "</" + field.wrapperXmlName + ">")).append(");\n");
+                }
+            } else {
+                renderChild(sb, indent, field, value, constants, primitive);
+            }
+            if (!primitive) {
+                sb.append("        }\n");
+            }
+        }
+
+        sb.append("        out.raw(").append(constant(constants, "</" + model.xmlName + ">")).append(");\n");
+        sb.append("    }\n\n");
+    }
+
+    private static void renderChild(StringBuilder sb, String indent, FieldModel field, String value,
+                                    Map<String, String> constants, boolean primitive) {
+        if (field.complexType != null) {
+            sb.append(indent).append("write").append(field.complexType).append("(").append(value).append(", out);\n");
+            return;
+        }
+        sb.append(indent).append("out.raw(").append(constant(constants, "<" + field.xmlName + ">")).append(");\n");
+        sb.append(indent).append("out.text(").append(primitive ? "String.valueOf(" + value + ")" : text(field, value)).append(");\n");
+        sb.append(indent).append("out.raw(").append(constant(constants, "</" + field.xmlName + ">")).append(");\n");
+    }
+
+    private static String access(FieldModel field, boolean immutable) {
+        // Value types only expose record-style accessors
+        return immutable ? "value." + field.name + "()" : "value." + field.name;
+    }
+
+    private static String text(FieldModel field, String value) {
+        return "String".equals(field.itemType()) ? value : value + ".toString()";
+    }
+
+    private static String constant(Map<String, String> constants, String markup) {
+        return constants.computeIfAbsent(markup, k -> "TAG_" + constants.size());
+    }
+
+    /**
+     * Buffered UTF-8 output with XML escaping, shared by all writers of a package.
+     */
+    static String renderOutput(String packageName) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import java.io.IOException;\n");
+        sb.append("import java.io.OutputStream;\n\n");
+        sb.append("/**\n");
+        sb.append(" * Generated buffered UTF-8 encoder with XML escaping, used by the generated writers.\n");
+        sb.append(" */\n");
+        sb.append("final class ").append(OUTPUT_CLASS).append(" {\n\n");
+        sb.append("    private final OutputStream out;\n");
+        sb.append("    private final byte[] buffer = new byte[8192];\n");
+        sb.append("    private int position;\n\n");
+        sb.append("    ").append(OUTPUT_CLASS).append("(OutputStream out) {\n");
+        sb.append("        this.out = out;\n");
+        sb.append("    }\n\n");
+        sb.append("    void raw(byte[] bytes) throws IOException {\n");
+        sb.append("        if (bytes.length > buffer.length - position) {\n");
+        sb.append("            drain();\n");
+        sb.append("            if (bytes.length > buffer.length) {\n");
+        sb.append("                out.write(bytes);\n");
+        sb.append("                return;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        System.arraycopy(bytes, 0, buffer, position, bytes.length);\n");
+        sb.append("        position += bytes.length;\n");
+        sb.append("    }\n\n");
+        sb.append("    void text(String text) throws IOException {\n");
+        sb.append("        escape(text, false);\n");
+        sb.append("    }\n\n");
+        sb.append("    void attribute(String text) throws IOException {\n");
+        sb.append("        escape(text, true);\n");
+        sb.append("    }\n\n");
+        sb.append("    void flush() throws IOException {\n");
+        sb.append("        drain();\n");
+        sb.append("        out.flush();\n");
+        sb.append("    }\n\n");
+        sb.append("    private void escape(String text, boolean attribute) throws IOException {\n");
+        sb.append("        for (int i = 0, n = text.length(); i < n; i++) {\n");
+        sb.append("            if (buffer.length - position < 8) {\n");
+        sb.append("                drain();\n");
+        sb.append("            }\n");
+        sb.append("            char c = text.charAt(i);\n");
+        sb.append("            if (c == '&') {\n");
+        sb.append("                ascii(\"&amp;\");\n");
+        sb.append("            } else if (c == '<') {\n");
+        sb.append("                ascii(\"&lt;\");\n");
+        sb.append("            } else if (c == '>') {\n");
+        sb.append("                ascii(\"&gt;\");\n");
+        sb.append("            } else if (c == '\"' && attribute) {\n");
+        sb.append("                ascii(\"&quot;\");\n");
+        sb.append("            } else if (c == '\\t' && attribute) {\n");
+        sb.append("                ascii(\"&#9;\");\n");
+        sb.append("            } else if (c == '\\n' && attribute) {\n");
+        sb.append("                ascii(\"&#10;\");\n");
+        sb.append("            } else if (c == '\\r' && attribute) {\n");
+        sb.append("                ascii(\"&#13;\");\n");
+        sb.append("            } else if (c < 0x80) {\n");
+        sb.append("                buffer[position++] = (byte) c;\n");
+        sb.append("            } else if (c < 0x800) {\n");
+        sb.append("                buffer[position++] = (byte) (0xC0 | (c >> 6));\n");
+        sb.append("                buffer[position++] = (byte) (0x80 | (c & 0x3F));\n");
+        sb.append("            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {\n");
+        sb.append("                int codePoint = Character.toCodePoint(c, text.charAt(++i));\n");
+        sb.append("                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));\n");
+        sb.append("                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));\n");
+        sb.append("                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));\n");
+        sb.append("                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));\n");
+        sb.append("            } else if (Character.isSurrogate(c)) {\n");
+        sb.append("                buffer[position++] = '?';\n");
+        sb.append("            } else {\n");
+        sb.append("                buffer[position++] = (byte) (0xE0 | (c >> 12));\n");
+        sb.append("                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));\n");
+        sb.append("                buffer[position++] = (byte) (0x80 | (c & 0x3F));\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+        sb.append("    private void ascii(String entity) {\n");
+        sb.append("        for (int i = 0; i < entity.length(); i++) {\n");
+        sb.append("            buffer[position++] = (byte) entity.charAt(i);\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+        sb.append("    private void drain() throws IOException {\n");
+        sb.append("        if (position > 0) {\n");
+        sb.append("            out.write(buffer, 0, position);\n");
+        sb.append("            position = 0;\n");
+        sb.append("        }\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
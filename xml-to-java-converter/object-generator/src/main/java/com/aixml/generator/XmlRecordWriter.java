@@ -0,0 +1,360 @@
+package com.aixml.generator;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialises instances of classes from {@link DynamicObjectGenerator} straight to UTF-8 bytes.
+ * A write plan is built once per class: tag names are pre-encoded and every property is read
+ * through a {@link MethodHandle} bound to its generated getter, so writing a record costs no
+ * reflection lookups and no JAXB context. Nested generated types get their own plans, unset
+ * primitives of compact classes are omitted and lazy records are copied from their source bytes.
+ * <p>
+ * Writers are thread-safe; {@link #write} buffers one record and flushes it to the stream
+ * without writing an XML declaration, so many records can be written to the same stream.
+ */
+public final class XmlRecordWriter {
+
+    private static final byte[] CLOSE_START_TAG = bytes(">");
+    private static final byte[] CLOSE_EMPTY_TAG = bytes("/>");
+    private static final byte[] QUOTE = bytes("\"");
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final ClassValue<Boolean> GENERATED = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return LazyXmlRecord.class.isAssignableFrom(type) || hasBindingAnnotations(type);
+        }
+    };
+
+    private final Map<Class<?>, Plan> plans = new ConcurrentHashMap<>();
+    private final ThreadLocal<Set<Class<?>>> resolving = ThreadLocal.withInitial(HashSet::new);
+    private final Class<?> rootType;
+    private final String rootName;
+
+    private XmlRecordWriter(Class<?> rootType) {
+        this.rootType = rootType;
+        XmlRootElement root = rootType.getAnnotation(XmlRootElement.class);
+        this.rootName = root != null ? root.name() : decapitalize(rootType.getSimpleName());
+        planFor(rootType);
+    }
+
+    public static XmlRecordWriter forClass(Class<?> type) {
+        return new XmlRecordWriter(type);
+    }
+
+    public Class<?> getRootType() {
+        return rootType;
+    }
+
+    public void write(Object record, OutputStream out) throws IOException {
+        Utf8Sink sink = new Utf8Sink(out);
+        writeElement(record, rootName, sink);
+        sink.flush();
+    }
+
+    private void writeElement(Object value, String elementName, Utf8Sink out) throws IOException {
+        if (value instanceof LazyXmlRecord) {
+            // Nothing was bound, so the original element is already the serialised form
+            LazyXmlRecord record = (LazyXmlRecord) value;
+            out.raw(record.getSource(), record.getStart(), record.getEnd() - record.getStart());
+            return;
+        }
+        planFor(value.getClass()).write(value, elementName, out);
+    }
+
+    /**
+     * Plan for {@code type}, published only once fully resolved so other threads never see a
+     * half-built one. Plans look nested plans up when writing rather than holding them, so a
+     * recursive reference met while resolving is skipped and found in the map at write time.
+     */
+    private Plan planFor(Class<?> type) {
+        Plan plan = plans.get(type);
+        if (plan != null) {
+            return plan;
+        }
+        Set<Class<?>> inProgress = resolving.get();
+        if (!inProgress.add(type)) {
+            return null;
+        }
+        try {
+            plan = new Plan(type);
+            plan.resolve();
+            Plan existing = plans.putIfAbsent(type, plan);
+            return existing != null ? existing : plan;
+        } finally {
+            inProgress.remove(type);
+        }
+    }
+
+    private static boolean isGenerated(Class<?> type) {
+        return GENERATED.get(type);
+    }
+
+    private static boolean hasBindingAnnotations(Class<?> type) {
+        for (Field field : type.getDeclaredFields()) {
+            if (field.isAnnotationPresent(XmlAttribute.class) || field.isAnnotationPresent(XmlElement.class)) {
+                return true;
+            }
+        }
+        return type.isAnnotationPresent(XmlRootElement.class);
+    }
+
+    private static String decapitalize(String name) {
+        return name.isEmpty() ? name : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String capitalize(String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private final class Plan {
+        private final Class<?> type;
+        private final List<Property> attributes = new ArrayList<>();
+        private final List<Property> elements = new ArrayList<>();
+        private final Map<String, byte[][]> elementTags = new ConcurrentHashMap<>();
+
+        private Plan(Class<?> type) {
+            this.type = type;
+        }
+
+        private void resolve() {
+            for (Field field : type.getDeclaredFields()) {
+                XmlAttribute attribute = field.getAnnotation(XmlAttribute.class);
+                XmlElement element = field.getAnnotation(XmlElement.class);
+                if (attribute == null && element == null) {
+                    continue;
+                }
+                String xmlName = attribute != null
+                        ? ("##default".equals(attribute.name()) ? field.getName() : attribute.name())
+                        : ("##default".equals(element.name()) ? field.getName() : element.name());
+                Property property = new Property(xmlName, getter(field), presence(field), attribute != null);
+                (attribute != null ? attributes : elements).add(property);
+
+                Class<?> nested = field.getType().isArray() ? field.getType().getComponentType() : field.getType();
+                if (!nested.isPrimitive() && nested != type && isGenerated(nested)) {
+                    planFor(nested);
+                }
+            }
+        }
+
+        private void write(Object value, String elementName, Utf8Sink out) throws IOException {
+            byte[][] tags = elementTags.computeIfAbsent(elementName,
+                    name -> new byte[][] {bytes("<" + name), bytes("</" + name + ">")});
+            out.raw(tags[0]);
+            for (Property property : attributes) {
+                Object attributeValue = property.get(value);
+                if (attributeValue != null) {
+                    out.raw(property.open);
+                    out.escaped(attributeValue.toString(), true);
+                    out.raw(QUOTE);
+                }
+            }
+            if (elements.isEmpty()) {
+                out.raw(CLOSE_EMPTY_TAG);
+                return;
+            }
+            out.raw(CLOSE_START_TAG);
+            for (Property property : elements) {
+                Object childValue = property.get(value);
+                if (childValue instanceof Iterable) {
+                    for (Object item : (Iterable<?>) childValue) {
+                        writeChild(property, item, out);
+                    }
+                } else if (childValue != null && childValue.getClass().isArray()) {
+                    for (int i = 0, n = Array.getLength(childValue); i < n; i++) {
+                        writeChild(property, Array.get(childValue, i), out);
+                    }
+                } else {
+                    writeChild(property, childValue, out);
+                }
+            }
+            out.raw(tags[1]);
+        }
+
+        private void writeChild(Property property, Object value, Utf8Sink out) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (isGenerated(value.getClass())) {
+                writeElement(value, property.xmlName, out);
+                return;
+            }
+            out.raw(property.open);
+            out.escaped(value.toString(), false);
+            out.raw(property.close);
+        }
+
+        private MethodHandle getter(Field field) {
+            try {
+                return LOOKUP.findVirtual(type, "get" + capitalize(field.getName()), MethodType.methodType(field.getType()))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("No getter for field " + field.getName() + " of " + type.getName(), e);
+            }
+        }
+
+        private MethodHandle presence(Field field) {
+            if (!field.getType().isPrimitive()) {
+                return null;
+            }
+            try {
+                return LOOKUP.findVirtual(type, "has" + capitalize(field.getName()), MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Property {
+        private final String xmlName;
+        private final MethodHandle getter;
+        private final MethodHandle presence;
+        private final byte[] open;
+        private final byte[] close;
+
+        private Property(String xmlName, MethodHandle getter, MethodHandle presence, boolean attribute) {
+            this.xmlName = xmlName;
+            this.getter = getter;
+            this.presence = presence;
+            this.open = bytes(attribute ? " " + xmlName + "=\"" : "<" + xmlName + ">");
+            this.close = attribute ? QUOTE : bytes("</" + xmlName + ">");
+        }
+
+        private Object get(Object target) {
+            try {
+                if (presence != null && !(boolean) presence.invokeExact(target)) {
+                    return null;
+                }
+                return (Object) getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to read " + xmlName, t);
+            }
+        }
+    }
+
+    /**
+     * Buffered UTF-8 encoder with XML escaping; replaces an {@code OutputStreamWriter} and its
+     * charset encoder, which dominate the cost of writing mostly-ASCII markup.
+     */
+    static final class Utf8Sink {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+
+        Utf8Sink(OutputStream out) {
+            this.out = out;
+        }
+
+        void raw(byte[] bytes) throws IOException {
+            raw(bytes, 0, bytes.length);
+        }
+
+        void raw(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.length - position) {
+                drain();
+                if (length > buffer.length) {
+                    out.write(bytes, offset, length);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        void escaped(String text, boolean attribute) throws IOException {
+            for (int i = 0, n = text.length(); i < n; i++) {
+                if (buffer.length - position < 12) {
+                    drain();
+                }
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    switch (c) {
+                        case '&':
+                            ascii("&amp;");
+                            break;
+                        case '<':
+                            ascii("&lt;");
+                            break;
+                        case '>':
+                            ascii("&gt;");
+                            break;
+                        case '"':
+                            if (attribute) {
+                                ascii("&quot;");
+                            } else {
+                                buffer[position++] = (byte) c;
+                            }
+                            break;
+                        // Attribute value normalization would turn these into spaces on reading
+                        case '\t':
+                        case '\n':
+                        case '\r':
+                            if (attribute) {
+                                ascii(c == '\t' ? "&#9;" : c == '\n' ? "&#10;" : "&#13;");
+                            } else {
+                                buffer[position++] = (byte) c;
+                            }
+                            break;
+                        default:
+                            buffer[position++] = (byte) c;
+                    }
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        private void ascii(String entity) {
+            for (int i = 0; i < entity.length(); i++) {
+                buffer[position++] = (byte) entity.charAt(i);
+            }
+        }
+
+        private void drain() throws IOException {
+            if (position > 0) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+    }
+}
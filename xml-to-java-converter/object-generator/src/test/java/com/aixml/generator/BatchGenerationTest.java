@@ -0,0 +1,47 @@
+package com.aixml.generator;
+
+import org.junit.Test;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchGenerationTest {
+
+    @Test
+    public void testBatchResolvesReferencesBetweenTypes() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+
+        List<Class<?>> classes = generator.generateClasses(SchemaFixtures.complexElements(SchemaFixtures.LIBRARY_XML), "com.test.batch");
+
+        assertEquals(3, classes.size());
+        Class<?> library = classes.get(0);
+        Class<?> books = classes.get(1);
+        Class<?> book = classes.get(2);
+
+        assertSame("Batch should share one class loader", library.getClassLoader(), book.getClassLoader());
+        assertEquals(books, library.getDeclaredField("books").getType());
+
+        ParameterizedType bookList = (ParameterizedType) books.getDeclaredField("bookList").getGenericType();
+        assertEquals(List.class, bookList.getRawType());
+        assertEquals(book, bookList.getActualTypeArguments()[0]);
+
+        Object bookInstance = book.getDeclaredConstructor().newInstance();
+        Object booksInstance = books.getDeclaredConstructor().newInstance();
+        books.getMethod("setBookList", List.class).invoke(booksInstance, Collections.singletonList(bookInstance));
+        assertEquals(1, ((List<?>) books.getMethod("getBookList").invoke(booksInstance)).size());
+    }
+
+    @Test
+    public void testPreviouslyGeneratedClassesAreReused() {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+
+        Class<?> first = generator.generateClasses(SchemaFixtures.complexElements(SchemaFixtures.LIBRARY_XML), "com.test.reuse").get(2);
+        Class<?> second = generator.generateClass(SchemaFixtures.element(SchemaFixtures.LIBRARY_XML, "book"), "com.test.reuse");
+
+        assertSame(first, second);
+        assertEquals(3, generator.getGeneratedClasses().size());
+    }
+}
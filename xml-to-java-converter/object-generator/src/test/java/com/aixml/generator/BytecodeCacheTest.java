@@ -0,0 +1,76 @@
+package com.aixml.generator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BytecodeCacheTest {
+
+    private static final String PERSON_XML = "<person id=\"1\"><name>John Doe</name></person>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testCachedBytecodeIsReusedByNewGenerator() throws Exception {
+        BytecodeCache cache = new BytecodeCache(tempFolder.getRoot().toPath());
+
+        DynamicObjectGenerator first = new DynamicObjectGenerator();
+        first.setBytecodeCache(cache);
+        Class<?> generated = first.generateClass(SchemaFixtures.element(PERSON_XML, "person"), "com.test.cached");
+
+        File[] entries = tempFolder.getRoot().listFiles(File::isDirectory);
+        assertNotNull(entries);
+        assertEquals("Should store exactly one cache entry", 1, entries.length);
+
+        List<String> calls = new ArrayList<>();
+        BytecodeCache recording = new BytecodeCache(tempFolder.getRoot().toPath()) {
+            @Override
+            public Map<String, byte[]> load(String key) {
+                Map<String, byte[]> types = super.load(key);
+                calls.add(types != null ? "hit" : "miss");
+                return types;
+            }
+
+            @Override
+            public void store(String key, Map<String, byte[]> types) {
+                calls.add("store");
+                super.store(key, types);
+            }
+        };
+        DynamicObjectGenerator second = new DynamicObjectGenerator();
+        second.setBytecodeCache(recording);
+        Class<?> cached = second.generateClass(SchemaFixtures.element(PERSON_XML, "person"), "com.test.cached");
+
+        assertEquals("Loaded from the cache, nothing generated or stored", Arrays.asList("hit"), calls);
+
+        assertNotSame("Second generator should define its own class", generated, cached);
+        assertEquals(generated.getName(), cached.getName());
+
+        Object instance = cached.getDeclaredConstructor().newInstance();
+        cached.getMethod("setName", String.class).invoke(instance, "John Doe");
+        assertEquals("John Doe", cached.getMethod("getName").invoke(instance));
+        assertNotNull("Cached class should keep its attribute accessor", cached.getMethod("getId"));
+    }
+
+    @Test
+    public void testMissingEntryReturnsNull() {
+        BytecodeCache cache = new BytecodeCache(tempFolder.getRoot().toPath());
+
+        assertNull(cache.load(BytecodeCache.fingerprint("missing")));
+    }
+
+    @Test
+    public void testFingerprintIsStableAndSeparatesParts() {
+        assertEquals(BytecodeCache.fingerprint("a", "bc"), BytecodeCache.fingerprint("a", "bc"));
+        assertNotEquals(BytecodeCache.fingerprint("a", "bc"), BytecodeCache.fingerprint("ab", "c"));
+    }
+}
@@ -1,30 +1,26 @@
 package com.aixml.generator;
 
+import java.util.Map;
+
 public class ClassFileGeneratorFieldTypeTest {
     
     public static void main(String[] args) {
         ClassFileGenerator generator = new ClassFileGenerator();
         
-        // Use reflection to access private method
         try {
-            java.lang.reflect.Method method = ClassFileGenerator.class.getDeclaredMethod("getFieldType", String.class);
-            method.setAccessible(true);
-            
-            String result = (String) method.invoke(generator, "author");
-            System.out.println("getFieldType('author') returns: " + result);
-            System.out.println("Expected: Author, Actual: " + result + ", Match: " + result.equals("Author"));
-            
-            String result2 = (String) method.invoke(generator, "book");
-            System.out.println("getFieldType('book') returns: " + result2);
-            System.out.println("Expected: Book, Actual: " + result2 + ", Match: " + result2.equals("Book"));
+            Map<String, String> sources = generator.renderSources(SchemaFixtures.complexElements(
+                    "<library><book><title>Java</title><author id=\"1\"/></book>" +
+                    "<category><name>Tech</name></category></library>"), "com.test.types");
+            String result = sources.get("Library");
             
-            String result3 = (String) method.invoke(generator, "category");
-            System.out.println("getFieldType('category') returns: " + result3);
-            System.out.println("Expected: Category, Actual: " + result3 + ", Match: " + result3.equals("Category"));
+            System.out.println(result);
+            System.out.println("Book field typed as Book: " + result.contains("private Book book;"));
+            System.out.println("Category field typed as Category: " + result.contains("private Category category;"));
+            System.out.println("Author field typed as Author: " + sources.get("Book").contains("private Author author;"));
             
         } catch (Exception e) {
-            System.err.println("Failed to test getFieldType: " + e.getMessage());
+            System.err.println("Failed to test field types: " + e.getMessage());
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
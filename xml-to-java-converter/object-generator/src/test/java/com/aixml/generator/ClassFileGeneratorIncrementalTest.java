@@ -0,0 +1,88 @@
+package com.aixml.generator;
+
+import com.aixml.analyzer.ElementDefinition;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ClassFileGeneratorIncrementalTest {
+
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ClassFileGenerator generator;
+    private String outputDir;
+
+    @Before
+    public void setUp() {
+        generator = new ClassFileGenerator();
+        outputDir = tempFolder.getRoot().getPath();
+    }
+
+    @Test
+    public void testUnchangedFilesAreNotRewritten() throws Exception {
+        List<String> first = generator.generateClassFiles(schema("title"), "com.test.incremental", outputDir);
+        Path person = Paths.get(first.get(0));
+        Files.setLastModifiedTime(person, OLD);
+
+        List<String> second = generator.generateClassFiles(schema("title"), "com.test.incremental", outputDir);
+
+        assertEquals(first, second);
+        assertEquals("Unchanged file should keep its timestamp", OLD, Files.getLastModifiedTime(person));
+    }
+
+    @Test
+    public void testChangedFilesAreRewritten() throws Exception {
+        List<String> first = generator.generateClassFiles(schema("title"), "com.test.incremental", outputDir);
+        Path person = Paths.get(first.get(0));
+        Files.setLastModifiedTime(person, OLD);
+
+        generator.generateClassFiles(schema("subtitle"), "com.test.incremental", outputDir);
+
+        assertNotEquals(OLD, Files.getLastModifiedTime(person));
+        assertTrue(new String(Files.readAllBytes(person), "UTF-8").contains("subtitle"));
+    }
+
+    @Test
+    public void testOnlyOrphanedFilesAreDeleted() throws Exception {
+        List<String> files = generator.generateClassFiles(schema("title"), "com.test.incremental", outputDir);
+        Path packageDir = Paths.get(files.get(0)).getParent();
+        Path orphan = packageDir.resolve("Obsolete.java");
+        Path notes = packageDir.resolve("notes.txt");
+        Files.write(orphan, "class Obsolete {}".getBytes("UTF-8"));
+        Files.write(notes, "keep me".getBytes("UTF-8"));
+
+        generator.generateClassFiles(schema("title"), "com.test.incremental", outputDir);
+
+        assertFalse("Orphaned source should be removed", Files.exists(orphan));
+        assertTrue("Non-source files should be left alone", Files.exists(notes));
+        assertTrue(Files.exists(Paths.get(files.get(0))));
+    }
+
+    @Test
+    public void testRenderSourcesKeepsSchemaOrder() {
+        Map<String, String> sources = generator.renderSources(schema("title"), "com.test.render");
+
+        assertEquals(Arrays.asList("Person"), new ArrayList<>(sources.keySet()));
+        assertTrue(sources.get("Person").contains("package com.test.render;"));
+    }
+
+    private List<ElementDefinition> schema(String childName) {
+        return SchemaFixtures.complexElements(
+                "<person id=\"1\"><" + childName + ">text</" + childName + "></person>");
+    }
+}
@@ -0,0 +1,90 @@
+package com.aixml.generator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactGenerationTest {
+
+    private static final String READING_XML = "<reading id=\"12345678901\" unit=\"celsius\">" +
+            "<value>20.5</value><valid>true</valid><station>north</station><sample>1</sample><sample>2</sample>" +
+            "</reading>";
+
+    private DynamicObjectGenerator generator;
+
+    @Before
+    public void setUp() {
+        generator = new DynamicObjectGenerator();
+        generator.setGenerationMode(GenerationMode.COMPACT);
+    }
+
+    @Test
+    public void testLeavesAndAttributesBecomePrimitives() throws Exception {
+        Class<?> clazz = generator.generateClass(SchemaFixtures.element(READING_XML, "reading"), "com.test.compact");
+
+        assertEquals(long.class, clazz.getDeclaredField("id").getType());
+        assertEquals(String.class, clazz.getDeclaredField("unit").getType());
+        assertEquals(double.class, clazz.getDeclaredField("value").getType());
+        assertEquals(boolean.class, clazz.getDeclaredField("valid").getType());
+        assertEquals(String.class, clazz.getDeclaredField("station").getType());
+        assertEquals(int[].class, clazz.getDeclaredField("sampleList").getType());
+    }
+
+    @Test
+    public void testPresenceBitsTrackOptionalPrimitives() throws Exception {
+        Class<?> clazz = generator.generateClass(SchemaFixtures.element(READING_XML, "reading"), "com.test.compact");
+        Object reading = clazz.getDeclaredConstructor().newInstance();
+
+        assertFalse((Boolean) clazz.getMethod("hasValue").invoke(reading));
+        assertFalse((Boolean) clazz.getMethod("hasValid").invoke(reading));
+
+        clazz.getMethod("setValue", double.class).invoke(reading, 21.5);
+
+        assertTrue((Boolean) clazz.getMethod("hasValue").invoke(reading));
+        assertFalse("Setting one field must not mark others", (Boolean) clazz.getMethod("hasValid").invoke(reading));
+        assertEquals(21.5, (Double) clazz.getMethod("getValue").invoke(reading), 0.0);
+
+        clazz.getMethod("setValid", boolean.class).invoke(reading, false);
+        assertTrue("Presence is independent of the stored value", (Boolean) clazz.getMethod("hasValid").invoke(reading));
+    }
+
+    @Test
+    public void testStandardModeKeepsBoxedTypes() throws Exception {
+        DynamicObjectGenerator standard = new DynamicObjectGenerator();
+        Class<?> clazz = standard.generateClass(SchemaFixtures.element(READING_XML, "reading"), "com.test.standard");
+
+        assertEquals(String.class, clazz.getDeclaredField("id").getType());
+        assertEquals(Double.class, clazz.getDeclaredField("value").getType());
+        assertEquals(List.class, clazz.getDeclaredField("sampleList").getType());
+    }
+
+    @Test
+    public void testStandardModeUsesInferredBooleanAndLongTypes() throws Exception {
+        String xml = "<meter><total>12345678901</total><active>false</active></meter>";
+        DynamicObjectGenerator standard = new DynamicObjectGenerator();
+        Class<?> clazz = standard.generateClass(SchemaFixtures.element(xml, "meter"), "com.test.standardtypes");
+        String source = new ClassFileGenerator().renderSources(SchemaFixtures.complexElements(xml), "com.test.standardtypes")
+                .get("Meter");
+
+        assertEquals(Long.class, clazz.getDeclaredField("total").getType());
+        assertEquals(Boolean.class, clazz.getDeclaredField("active").getType());
+        assertTrue(source, source.contains("private Long total;"));
+        assertTrue(source, source.contains("private Boolean active;"));
+    }
+
+    @Test
+    public void testValueTypesAreWidenedAcrossOccurrences() throws Exception {
+        generator.generateClasses(SchemaFixtures.complexElements("<readings>" +
+                "<reading id=\"1\" seq=\"7\"><value>20</value></reading>" +
+                "<reading id=\"A12\" seq=\"12345678901\"><value>21.5</value></reading>" +
+                "</readings>"), "com.test.widened");
+        Class<?> clazz = generator.getGeneratedClass("com.test.widened", "reading");
+
+        assertEquals(String.class, clazz.getDeclaredField("id").getType());
+        assertEquals(long.class, clazz.getDeclaredField("seq").getType());
+        assertEquals(double.class, clazz.getDeclaredField("value").getType());
+    }
+}
@@ -0,0 +1,84 @@
+package com.aixml.generator;
+
+import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class InMemoryCompilationTest {
+
+    private static final String ORDER_XML =
+            "<order id=\"42\"><customer>ACME</customer><line><sku>A-1</sku><qty>3</qty></line>" +
+            "<line><sku>B-2</sku><qty>1</qty></line></order>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testCompiledReaderBindsLoadedClasses() throws Exception {
+        ClassFileGenerator generator = new ClassFileGenerator();
+
+        Map<String, Class<?>> classes = generator.compileClasses(schema(), "com.test.memory",
+                GenerationOptions.builder().generateReaders(true).build());
+
+        Class<?> orderClass = classes.get("Order");
+        Class<?> readerClass = classes.get("OrderReader");
+        assertNotNull(orderClass);
+        assertSame(orderClass.getClassLoader(), readerClass.getClassLoader());
+
+        Object order = readerClass.getMethod("read", InputStream.class)
+                .invoke(null, new ByteArrayInputStream(ORDER_XML.getBytes(StandardCharsets.UTF_8)));
+        assertSame(orderClass, order.getClass());
+        assertEquals(2, ((List<?>) field(order, "lineList")).size());
+        System.out.println("Bound from compiled reader: " + order);
+    }
+
+    @Test
+    public void testIdenticalSourcesReuseCompiledClasses() {
+        ClassFileGenerator generator = new ClassFileGenerator();
+        GenerationOptions options = GenerationOptions.defaults();
+
+        Map<String, Class<?>> first = generator.compileClasses(schema(), "com.test.reuse", options);
+        Map<String, Class<?>> second = generator.compileClasses(schema(), "com.test.reuse", options);
+
+        assertSame(first.get("Order"), second.get("Order"));
+    }
+
+    @Test
+    public void testCompiledBytesArePersistedInBytecodeCache() throws Exception {
+        BytecodeCache cache = new BytecodeCache(tempFolder.getRoot().toPath());
+        ClassFileGenerator writer = new ClassFileGenerator();
+        writer.setBytecodeCache(cache);
+        writer.compileClasses(schema(), "com.test.persist", GenerationOptions.defaults());
+
+        try (Stream<?> entries = Files.list(tempFolder.getRoot().toPath())) {
+            assertEquals(1, entries.count());
+        }
+
+        ClassFileGenerator reader = new ClassFileGenerator();
+        reader.setBytecodeCache(cache);
+        Class<?> line = reader.compileClasses(schema(), "com.test.persist", GenerationOptions.defaults()).get("Line");
+        assertEquals(Integer.class, line.getDeclaredField("qty").getType());
+    }
+
+    private List<ElementDefinition> schema() {
+        return new XmlStructureAnalyzer().analyzeStructure(ORDER_XML).getElements();
+    }
+
+    private Object field(Object target, String name) throws Exception {
+        java.lang.reflect.Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+}
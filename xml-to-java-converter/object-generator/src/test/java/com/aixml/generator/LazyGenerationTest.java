@@ -0,0 +1,81 @@
+package com.aixml.generator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class LazyGenerationTest {
+
+    private static final String BOOK_XML =
+            "<book id=\"7\" lang='en'>" +
+            "<!-- <title>ignored</title> -->" +
+            "<title>Tom &amp; Jerry</title>" +
+            "<pages>320</pages>" +
+            "<author><name>John Doe</name><note><![CDATA[<b>bold</b>]]></note></author>" +
+            "<tag>classic</tag><tag>cartoon</tag>" +
+            "<extra><title>nested, not a direct child</title></extra>" +
+            "</book>";
+
+    // Schema sample; BOOK_XML also has elements the schema does not know
+    private static final String LIBRARY_XML =
+            "<library><book id=\"1\"><title>t</title><pages>1</pages>" +
+            "<author><name>n</name><note>x</note></author><tag>a</tag><tag>b</tag></book></library>";
+
+    private DynamicObjectGenerator generator;
+
+    @Before
+    public void setUp() {
+        generator = new DynamicObjectGenerator();
+        generator.setGenerationMode(GenerationMode.LAZY);
+    }
+
+    @Test
+    public void testFieldsDecodeFromOriginalBytes() throws Exception {
+        generator.generateClass(SchemaFixtures.element(LIBRARY_XML, "author"), "com.test.lazy");
+        Class<?> bookClass = generator.generateClass(SchemaFixtures.element(LIBRARY_XML, "book"), "com.test.lazy");
+
+        byte[] xml = ("<library>" + BOOK_XML + "</library>").getBytes(StandardCharsets.UTF_8);
+        int start = "<library>".length();
+        Object book = generator.createLazyInstance(bookClass, xml, start, start + BOOK_XML.length());
+
+        assertTrue(book instanceof LazyXmlRecord);
+        assertEquals("7", bookClass.getMethod("getId").invoke(book));
+        assertEquals("Tom & Jerry", bookClass.getMethod("getTitle").invoke(book));
+        assertEquals(320, bookClass.getMethod("getPages").invoke(book));
+        assertEquals(Arrays.asList("classic", "cartoon"), bookClass.getMethod("getTagList").invoke(book));
+
+        Object author = bookClass.getMethod("getAuthor").invoke(book);
+        assertNotNull("Nested complex child should be wrapped lazily", author);
+        assertEquals("John Doe", author.getClass().getMethod("getName").invoke(author));
+        assertEquals("<b>bold</b>", author.getClass().getMethod("getNote").invoke(author));
+    }
+
+    @Test
+    public void testDecodedValuesAreMemoized() throws Exception {
+        Class<?> bookClass = generator.generateClass(SchemaFixtures.element(LIBRARY_XML, "book"), "com.test.memo");
+        byte[] xml = BOOK_XML.getBytes(StandardCharsets.UTF_8);
+        Object book = generator.createLazyInstance(bookClass, xml, 0, xml.length);
+
+        Object first = bookClass.getMethod("getTitle").invoke(book);
+        Object second = bookClass.getMethod("getTitle").invoke(book);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testMissingFieldsDecodeToNull() throws Exception {
+        Class<?> bookClass = generator.generateClass(SchemaFixtures.element(LIBRARY_XML, "book"), "com.test.sparse");
+        byte[] xml = "<book><title/></book>".getBytes(StandardCharsets.UTF_8);
+        Object book = generator.createLazyInstance(bookClass, xml, 0, xml.length);
+
+        assertEquals("", bookClass.getMethod("getTitle").invoke(book));
+        assertNull(bookClass.getMethod("getPages").invoke(book));
+        assertNull(bookClass.getMethod("getId").invoke(book));
+        assertEquals(Collections.emptyList(), bookClass.getMethod("getTagList").invoke(book));
+    }
+}
@@ -0,0 +1,56 @@
+package com.aixml.generator;
+
+import com.aixml.analyzer.ElementDefinition;
+import com.aixml.analyzer.XmlStructureAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Element definitions for the generator tests, analyzed from sample documents the way the
+ * converter analyzes its input.
+ */
+final class SchemaFixtures {
+
+    static final String LIBRARY_XML = "<library><books>" +
+            "<book id=\"1\"><title>Java Programming</title></book>" +
+            "<book id=\"2\"><title>XML Basics</title></book>" +
+            "</books></library>";
+
+    private static final XmlStructureAnalyzer ANALYZER = new XmlStructureAnalyzer();
+
+    private SchemaFixtures() {
+    }
+
+    /**
+     * Every occurrence of the elements of {@code xml} that get a class, parents before their
+     * children, so the root class comes first.
+     */
+    static List<ElementDefinition> complexElements(String xml) {
+        List<ElementDefinition> elements = new ArrayList<>(ANALYZER.analyzeStructure(xml).getElements());
+        // The analyzer lists children before their parents
+        Collections.reverse(elements);
+        List<ElementDefinition> complex = new ArrayList<>();
+        for (ElementDefinition element : elements) {
+            boolean hasChildren = element.getChildren() != null && !element.getChildren().isEmpty();
+            boolean hasAttributes = element.getAttributes() != null && !element.getAttributes().isEmpty();
+            if (element.getParentElement() == null || hasChildren || hasAttributes) {
+                complex.add(element);
+            }
+        }
+        return complex;
+    }
+
+    /**
+     * The first occurrence of element {@code name} in {@code xml}.
+     */
+    static ElementDefinition element(String xml, String name) {
+        for (ElementDefinition element : ANALYZER.analyzeStructure(xml).getElements()) {
+            if (element.getName().equals(name)) {
+                return element;
+            }
+        }
+        throw new IllegalArgumentException("No element " + name + " in " + xml);
+    }
+}
@@ -0,0 +1,79 @@
+package com.aixml.generator;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StaxDataBinderTest {
+
+    private static final String LIBRARY_XML =
+            "<?xml version=\"1.0\"?>" +
+            "<library>" +
+            "<books>" +
+            "<book id=\"1\"><title>Tom &amp; Jerry</title><unknown><x/></unknown></book>" +
+            "<book id=\"2\"><title><![CDATA[<XML>]]></title></book>" +
+            "</books>" +
+            "</library>";
+
+    @Test
+    public void testBindsNestedObjectsAndLists() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+        List<Class<?>> classes = generator.generateClasses(SchemaFixtures.complexElements(SchemaFixtures.LIBRARY_XML), "com.test.binder");
+        StaxDataBinder binder = new StaxDataBinder(name -> generator.getGeneratedClass("com.test.binder", name));
+
+        Object library = binder.bind(new StringReader(LIBRARY_XML));
+
+        assertSame(classes.get(0), library.getClass());
+        Object books = library.getClass().getMethod("getBooks").invoke(library);
+        List<?> bookList = (List<?>) books.getClass().getMethod("getBookList").invoke(books);
+        assertEquals(2, bookList.size());
+        Object second = bookList.get(1);
+        assertEquals("2", second.getClass().getMethod("getId").invoke(second));
+        assertEquals("<XML>", second.getClass().getMethod("getTitle").invoke(second));
+        assertEquals("Tom & Jerry", bookList.get(0).getClass().getMethod("getTitle").invoke(bookList.get(0)));
+    }
+
+    @Test
+    public void testBindsCompactPrimitivesThroughSetters() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+        generator.setGenerationMode(GenerationMode.COMPACT);
+        Class<?> readingClass = generator.generateClass(SchemaFixtures.element(
+                "<reading><value>1.5</value><count>3</count><sample>1</sample><sample>2</sample></reading>", "reading"),
+                "com.test.compactbinder");
+        StaxDataBinder binder = new StaxDataBinder(name -> null);
+
+        Object bound = binder.bind(new StringReader(
+                "<reading><value> 21.5 </value><sample>1</sample><sample>2</sample><sample>3</sample></reading>"), readingClass);
+
+        assertEquals(21.5, (double) readingClass.getMethod("getValue").invoke(bound), 0.0);
+        assertEquals(true, readingClass.getMethod("hasValue").invoke(bound));
+        assertEquals(false, readingClass.getMethod("hasCount").invoke(bound));
+        assertArrayEquals(new int[] {1, 2, 3}, (int[]) readingClass.getMethod("getSampleList").invoke(bound));
+    }
+
+    @Test
+    public void testBindsPlainClassesByFieldName() throws Exception {
+        StaxDataBinder binder = new StaxDataBinder(name -> null);
+
+        Person person = binder.bind(new StringReader(
+                "<person id=\"7\"><name>Jane</name><age>41</age><tags><tag>x</tag></tags></person>"), Person.class);
+
+        assertEquals("7", person.id);
+        assertEquals("Jane", person.name);
+        assertEquals(41, person.age);
+    }
+
+    @Test(expected = javax.xml.stream.XMLStreamException.class)
+    public void testMalformedNumbersAreReported() throws Exception {
+        new StaxDataBinder(name -> null).bind(new StringReader("<person><age>old</age></person>"), Person.class);
+    }
+
+    static class Person {
+        private String id;
+        private String name;
+        private int age;
+    }
+}
@@ -0,0 +1,172 @@
+package com.aixml.generator;
+
+import com.aixml.analyzer.XmlStructureAnalyzer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StaxReaderGenerationTest {
+
+    private static final String LIBRARY_XML =
+            "<library name=\"City\">" +
+            "<books>" +
+            "<book id=\"1\"><title>Java</title><pages>320</pages></book>" +
+            "<book id=\"2\"><title>XML &amp; You</title><pages>150</pages></book>" +
+            "</books>" +
+            "<tag>tech</tag><tag>books</tag>" +
+            "</library>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testReaderIsRenderedOnlyWhenRequested() {
+        XmlStructureAnalyzer analyzer = new XmlStructureAnalyzer();
+        ClassFileGenerator generator = new ClassFileGenerator();
+
+        Map<String, String> plain = generator.renderSources(
+                analyzer.analyzeStructure(LIBRARY_XML).getElements(), "com.test.stax");
+        Map<String, String> withReaders = generator.renderSources(
+                analyzer.analyzeStructure(LIBRARY_XML).getElements(), "com.test.stax",
+                GenerationOptions.builder().generateReaders(true).build());
+
+        assertFalse(plain.containsKey("LibraryReader"));
+        assertTrue(plain.get("Library").contains("private List<Book> books;"));
+        assertTrue(withReaders.containsKey("LibraryReader"));
+        assertTrue(withReaders.get("Library").contains("    List<Book> books;"));
+        assertFalse("Generated reader should not use reflection",
+                withReaders.get("LibraryReader").contains("java.lang.reflect"));
+    }
+
+    @Test
+    public void testGeneratedReaderBindsDocument() throws Exception {
+        File classesDir = compile(GenerationOptions.builder().generateReaders(true).build());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader())) {
+            byte[] xml = ("<?xml version=\"1.0\"?><library name=\"City\"><unknown><x/></unknown>" +
+                    LIBRARY_XML.substring("<library name=\"City\">".length())).getBytes(StandardCharsets.UTF_8);
+            Object library = read(loader, xml);
+
+            assertEquals("City", field(library, "name"));
+            List<?> tags = (List<?>) field(library, "tagList");
+            assertEquals(2, tags.size());
+            assertEquals("books", tags.get(1));
+
+            List<?> books = (List<?>) field(library, "books");
+            assertEquals(2, books.size());
+            assertEquals("2", field(books.get(1), "id"));
+            assertEquals("XML & You", field(books.get(1), "title"));
+            assertEquals(150, field(books.get(1), "pages"));
+            System.out.println("Generated reader bound: " + library);
+        }
+    }
+
+    @Test
+    public void testGeneratedWriterRoundTrips() throws Exception {
+        File classesDir = compile(GenerationOptions.builder().generateReaders(true).generateWriters(true).build());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader())) {
+            Object library = read(loader, LIBRARY_XML.getBytes(StandardCharsets.UTF_8));
+            List<?> books = (List<?>) field(library, "books");
+            Field title = books.get(0).getClass().getDeclaredField("title");
+            title.setAccessible(true);
+            title.set(books.get(0), "\"Caf\u00e9\" <\ud83d\udcda>");
+            Field name = library.getClass().getDeclaredField("name");
+            name.setAccessible(true);
+            name.set(library, "City\r\n\tLibrary");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            loader.loadClass("com.test.stax.LibraryWriter")
+                    .getMethod("write", library.getClass(), OutputStream.class)
+                    .invoke(null, library, out);
+            String written = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            System.out.println("Generated writer output: " + written);
+
+            assertTrue(written.startsWith("<?xml"));
+            assertTrue(written.contains("<books><book id=\"1\">"));
+            assertTrue(written.contains("name=\"City&#13;&#10;&#9;Library\""));
+            Object reread = read(loader, out.toByteArray());
+            assertEquals(library.toString(), reread.toString());
+        }
+    }
+
+    @Test
+    public void testValueTypesUsePrimitivesAndExactArrays() throws Exception {
+        for (ModelStyle style : new ModelStyle[] {ModelStyle.FINAL_CLASS, ModelStyle.RECORD}) {
+            File classesDir = compile(GenerationOptions.builder()
+                    .generateReaders(true).generateWriters(true).modelStyle(style).build());
+
+            try (URLClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader())) {
+                Class<?> libraryClass = loader.loadClass("com.test.stax.Library");
+                Class<?> bookClass = loader.loadClass("com.test.stax.Book");
+                assertTrue(java.lang.reflect.Modifier.isFinal(libraryClass.getModifiers()));
+                assertEquals(int.class, bookClass.getDeclaredField("pages").getType());
+                assertTrue(java.lang.reflect.Modifier.isFinal(bookClass.getDeclaredField("pages").getModifiers()));
+
+                Object library = read(loader, LIBRARY_XML.getBytes(StandardCharsets.UTF_8));
+                Object[] books = (Object[]) libraryClass.getMethod("books").invoke(library);
+                String[] tags = (String[]) libraryClass.getMethod("tagList").invoke(library);
+                assertEquals(2, books.length);
+                assertEquals(2, tags.length);
+                assertEquals(150, bookClass.getMethod("pages").invoke(books[1]));
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                loader.loadClass("com.test.stax.LibraryWriter")
+                        .getMethod("writeFragment", libraryClass, OutputStream.class)
+                        .invoke(null, library, out);
+                assertEquals(style + " should round-trip", LIBRARY_XML, new String(out.toByteArray(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private File compile(GenerationOptions options) throws Exception {
+        XmlStructureAnalyzer analyzer = new XmlStructureAnalyzer();
+        ClassFileGenerator generator = new ClassFileGenerator();
+        String outputDir = tempFolder.newFolder().getPath();
+
+        List<String> files = generator.generateClassFiles(
+                analyzer.analyzeStructure(LIBRARY_XML).getElements(), "com.test.stax", outputDir, options);
+
+        File classesDir = tempFolder.newFolder();
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-d");
+        arguments.add(classesDir.getPath());
+        arguments.add("-classpath");
+        arguments.add(new File(XmlRootElement.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        arguments.addAll(files);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals("Generated sources should compile", 0,
+                compiler.run(null, null, null, arguments.toArray(new String[0])));
+        return classesDir;
+    }
+
+    private Object read(ClassLoader loader, byte[] xml) throws Exception {
+        return loader.loadClass("com.test.stax.LibraryReader")
+                .getMethod("read", InputStream.class)
+                .invoke(null, new ByteArrayInputStream(xml));
+    }
+
+    private Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+}
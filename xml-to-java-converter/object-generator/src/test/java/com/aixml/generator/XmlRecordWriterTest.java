@@ -0,0 +1,92 @@
+package com.aixml.generator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class XmlRecordWriterTest {
+
+    @Test
+    public void testWritesNestedGeneratedTypes() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+        List<Class<?>> classes = generator.generateClasses(SchemaFixtures.complexElements(SchemaFixtures.LIBRARY_XML), "com.test.writer");
+        Class<?> library = classes.get(0);
+        Class<?> books = classes.get(1);
+        Class<?> book = classes.get(2);
+
+        Object first = book.getDeclaredConstructor().newInstance();
+        book.getMethod("setId", String.class).invoke(first, "1");
+        book.getMethod("setTitle", String.class).invoke(first, "Tom & \"Jerry\" é");
+        Object second = book.getDeclaredConstructor().newInstance();
+        book.getMethod("setId", String.class).invoke(second, "2");
+        Object shelf = books.getDeclaredConstructor().newInstance();
+        books.getMethod("setBookList", List.class).invoke(shelf, Arrays.asList(first, second));
+        Object root = library.getDeclaredConstructor().newInstance();
+        library.getMethod("setBooks", books).invoke(root, shelf);
+
+        String xml = write(generator.createWriter(library), root);
+        System.out.println("Written: " + xml);
+
+        assertEquals("<library><books>" +
+                "<book id=\"1\"><title>Tom &amp; \"Jerry\" é</title></book>" +
+                "<book id=\"2\"></book>" +
+                "</books></library>", xml);
+        assertSame(generator.createWriter(library), generator.createWriter(library));
+    }
+
+    @Test
+    public void testCompactWriterOmitsUnsetPrimitives() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+        generator.setGenerationMode(GenerationMode.COMPACT);
+        Class<?> itemClass = generator.generateClass(
+                SchemaFixtures.element("<item><price>1.5</price><qty>2</qty></item>", "item"), "com.test.compactwriter");
+
+        Object instance = itemClass.getDeclaredConstructor().newInstance();
+        itemClass.getMethod("setQty", int.class).invoke(instance, 0);
+
+        assertEquals("<item><qty>0</qty></item>", write(generator.createWriter(itemClass), instance));
+    }
+
+    @Test
+    public void testLazyRecordsAreCopiedVerbatim() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+        generator.setGenerationMode(GenerationMode.LAZY);
+        Class<?> bookClass = generator.generateClass(
+                SchemaFixtures.element(SchemaFixtures.LIBRARY_XML, "book"), "com.test.lazywriter");
+        String record = "<book><!-- kept --><title>A &amp; B</title></book>";
+        byte[] source = ("<library>" + record + "</library>").getBytes(StandardCharsets.UTF_8);
+
+        Object book = generator.createLazyInstance(bookClass, source, 9, 9 + record.length());
+
+        assertEquals(record, write(generator.createWriter(bookClass), book));
+    }
+
+    @Test
+    public void testMultiLineAttributesSurviveARoundTrip() throws Exception {
+        DynamicObjectGenerator generator = new DynamicObjectGenerator();
+        Class<?> bookClass = generator.generateClass(
+                SchemaFixtures.element(SchemaFixtures.LIBRARY_XML, "book"), "com.test.attributewriter");
+        Object book = bookClass.getDeclaredConstructor().newInstance();
+        bookClass.getMethod("setId", String.class).invoke(book, "first line\n\tsecond\r\nthird");
+
+        String xml = write(generator.createWriter(bookClass), book);
+        System.out.println("Written: " + xml);
+        Object reread = new StaxDataBinder(name -> null)
+                .bind(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), bookClass);
+
+        assertEquals("<book id=\"first line&#10;&#9;second&#13;&#10;third\"></book>", xml);
+        assertEquals("first line\n\tsecond\r\nthird", bookClass.getMethod("getId").invoke(reread));
+    }
+
+    private String write(XmlRecordWriter writer, Object record) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(record, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,11 +1,15 @@
 package com.aixml.analyzer;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ElementPattern {
     private String patternName;
     private List<String> elementNames;
@@ -1,14 +1,22 @@
 package com.aixml.analyzer;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.util.List;
 import java.util.Map;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class XmlSchema {
     private String rootElementName;
+    /**
+     * Namespace URI of the root element, or {@code null} when it has none or is not known.
+     */
+    private String rootNamespace;
     private List<ElementDefinition> elements;
     private Map<String, Integer> elementFrequency;
     private List<ElementPattern> patterns;
@@ -8,6 +8,7 @@ import org.w3c.dom.*;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -35,11 +36,43 @@ public class XmlStructureAnalyzer {
         }
     }
     
+    /**
+     * Analyzes an already parsed document, so callers that keep the DOM for later stages
+     * do not parse the same content again.
+     */
+    public XmlSchema analyzeStructure(Document document) {
+        try {
+            return analyzeDocument(document);
+        } catch (Exception e) {
+            log.error("Error analyzing XML structure", e);
+            throw new RuntimeException("Failed to analyze XML structure", e);
+        }
+    }
+    
+    public XmlSchema analyzeStructure(InputStream xmlStream) {
+        return analyzeStructure(parseDocument(xmlStream));
+    }
+    
+    public Document parseDocument(String xmlContent) {
+        return parseDocument(new ByteArrayInputStream(xmlContent.getBytes()));
+    }
+    
+    public Document parseDocument(InputStream xmlStream) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(xmlStream);
+        } catch (Exception e) {
+            log.error("Error parsing XML document", e);
+            throw new RuntimeException("Failed to analyze XML structure", e);
+        }
+    }
+    
     private XmlSchema analyzeStructureWithDOM(String xmlContent) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(new ByteArrayInputStream(xmlContent.getBytes()));
-        
+        return analyzeDocument(parseDocument(xmlContent));
+    }
+    
+    private XmlSchema analyzeDocument(Document doc) {
         Element rootElement = doc.getDocumentElement();
         String rootElementName = rootElement.getNodeName();
         
@@ -132,25 +165,60 @@ public class XmlStructureAnalyzer {
             return "Object";
         } else {
             // Simple element with text content
-            String textContent = element.getTextContent();
-            if (textContent != null && !textContent.trim().isEmpty()) {
-                // Try to determine if it's a number
+            return inferValueType(element.getTextContent());
+        }
+    }
+    
+    /**
+     * Classifies a text value as Integer, Long, Double, Boolean or String.
+     */
+    public static String inferValueType(String textContent) {
+        if (textContent == null || textContent.trim().isEmpty()) {
+            return "String";
+        }
+        
+        String trimmed = textContent.trim();
+        if (trimmed.equals("true") || trimmed.equals("false")) {
+            return "Boolean";
+        }
+        
+        // Try to determine if it's a number
+        try {
+            Integer.parseInt(trimmed);
+            return "Integer";
+        } catch (NumberFormatException e1) {
+            try {
+                Long.parseLong(trimmed);
+                return "Long";
+            } catch (NumberFormatException e2) {
                 try {
-                    Integer.parseInt(textContent.trim());
-                    return "Integer";
-                } catch (NumberFormatException e1) {
-                    try {
-                        Double.parseDouble(textContent.trim());
-                        return "Double";
-                    } catch (NumberFormatException e2) {
-                        return "String";
-                    }
+                    Double.parseDouble(trimmed);
+                    return "Double";
+                } catch (NumberFormatException e3) {
+                    return "String";
                 }
             }
-            return "String";
         }
     }
     
+    /**
+     * The narrowest of the {@link #inferValueType} types that holds values of both types:
+     * Integer and Long widen to Long, mixed numbers to Double and anything else to String.
+     */
+    public static String widenValueType(String first, String second) {
+        if (first.equals(second)) {
+            return first;
+        }
+        List<String> types = Arrays.asList(first, second);
+        if (Arrays.asList("Integer", "Long").containsAll(types)) {
+            return "Long";
+        }
+        if (Arrays.asList("Integer", "Long", "Double").containsAll(types)) {
+            return "Double";
+        }
+        return "String";
+    }
+    
     private String extractRootElementName(String xmlContent) {
         try {
             // Simple regex to extract root element name from XML
@@ -0,0 +1,436 @@
+package com.aixml.analyzer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link XmlSchema} from an XML Schema document instead of from a sample, in the
+ * shape {@link XmlStructureAnalyzer} produces: one definition per element declaration, children
+ * before their parent, and repeated children ({@code maxOccurs > 1}) listed twice so they
+ * become collections.
+ * <p>
+ * Covers what document schemas commonly use: global and local elements, element references,
+ * named and anonymous types, sequence, choice, all, groups, attributes, attribute groups,
+ * simple content and complex content extension. Imports and includes are not followed;
+ * recursive types stop at the first repetition.
+ */
+@Slf4j
+public class XsdSchemaLoader {
+
+    private static final String XS = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+
+    /**
+     * Loads the schema of the first global element.
+     */
+    public XmlSchema load(InputStream xsdStream) {
+        return load(xsdStream, null);
+    }
+
+    /**
+     * Loads the schema of documents whose root is the global element {@code rootElement}.
+     */
+    public XmlSchema load(InputStream xsdStream, String rootElement) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            Document document = factory.newDocumentBuilder().parse(xsdStream);
+            return new Definitions(document.getDocumentElement()).toSchema(rootElement);
+
+        } catch (Exception e) {
+            log.error("Error loading XML schema definition", e);
+            throw new RuntimeException("Failed to load XSD", e);
+        }
+    }
+
+    /**
+     * The global components of one schema document.
+     */
+    private static final class Definitions {
+        private final Element schema;
+        private final String targetNamespace;
+        private final Map<String, Element> elements = new LinkedHashMap<>();
+        private final Map<String, Element> complexTypes = new HashMap<>();
+        private final Map<String, Element> simpleTypes = new HashMap<>();
+        private final Map<String, Element> groups = new HashMap<>();
+        private final Map<String, Element> attributeGroups = new HashMap<>();
+
+        private final List<ElementDefinition> definitions = new ArrayList<>();
+        private final Map<String, Integer> frequency = new HashMap<>();
+        private final Deque<Element> typesInProgress = new ArrayDeque<>();
+
+        Definitions(Element schema) {
+            this.schema = schema;
+            String namespace = schema.getAttribute("targetNamespace");
+            targetNamespace = namespace.isEmpty() ? null : namespace;
+            for (Element component : children(schema)) {
+                String name = component.getAttribute("name");
+                switch (component.getLocalName()) {
+                    case "element":
+                        elements.put(name, component);
+                        break;
+                    case "complexType":
+                        complexTypes.put(name, component);
+                        break;
+                    case "simpleType":
+                        simpleTypes.put(name, component);
+                        break;
+                    case "group":
+                        groups.put(name, component);
+                        break;
+                    case "attributeGroup":
+                        attributeGroups.put(name, component);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        XmlSchema toSchema(String rootElement) {
+            Element root = rootElement != null ? elements.get(rootElement)
+                    : elements.isEmpty() ? null : elements.values().iterator().next();
+            if (root == null) {
+                throw new IllegalArgumentException(rootElement != null
+                        ? "Schema declares no global element " + rootElement
+                        : "Schema declares no global element");
+            }
+            define(root, null, false);
+            return XmlSchema.builder()
+                    .rootElementName(root.getAttribute("name"))
+                    .rootNamespace(targetNamespace)
+                    .elements(definitions)
+                    .elementFrequency(frequency)
+                    .patterns(new ArrayList<>())
+                    .build();
+        }
+
+        /**
+         * Adds the definitions of {@code declaration} and everything below it.
+         */
+        private void define(Element declaration, String parentName, boolean repeated) {
+            Element element = resolveElement(declaration);
+            String name = element.getAttribute("name");
+            frequency.merge(name, repeated ? 2 : 1, Integer::sum);
+
+            Element complexType = complexTypeOf(element);
+            if (complexType != null && typesInProgress.contains(complexType)) {
+                // Recursive type: the enclosing declaration already defines it
+                return;
+            }
+            Content content = new Content();
+            if (complexType != null) {
+                typesInProgress.push(complexType);
+                collectComplexType(complexType, content, false);
+                typesInProgress.pop();
+            } else {
+                content.textType = simpleTypeOf(element);
+            }
+
+            List<ElementDefinition> children = new ArrayList<>();
+            for (Particle particle : content.particles) {
+                Element child = resolveElement(particle.declaration);
+                String childType = isComplex(child) ? "Object" : simpleTypeOf(child);
+                for (int i = particle.repeated ? 2 : 1; i > 0; i--) {
+                    children.add(ElementDefinition.builder()
+                            .name(child.getAttribute("name"))
+                            .type(childType)
+                            .isCollection(false)
+                            .children(new ArrayList<>())
+                            .attributes(new HashMap<>())
+                            .parentElement(name)
+                            .occurrenceCount(1)
+                            .build());
+                }
+                define(particle.declaration, name, particle.repeated);
+            }
+
+            int occurrences = frequency.get(name);
+            definitions.add(ElementDefinition.builder()
+                    .name(name)
+                    .type(children.isEmpty() ? content.textType : "Object")
+                    .isCollection(occurrences > 1)
+                    .children(children)
+                    .attributes(content.attributes)
+                    .parentElement(parentName)
+                    .occurrenceCount(occurrences)
+                    .build());
+        }
+
+        private void collectComplexType(Element complexType, Content content, boolean repeated) {
+            for (Element part : children(complexType)) {
+                switch (part.getLocalName()) {
+                    case "sequence":
+                    case "choice":
+                    case "all":
+                    case "group":
+                        collectParticles(part, content, repeated);
+                        break;
+                    case "attribute":
+                        addAttribute(part, content);
+                        break;
+                    case "attributeGroup":
+                        collectAttributeGroup(part, content);
+                        break;
+                    case "simpleContent":
+                    case "complexContent":
+                        for (Element derivation : children(part)) {
+                            collectDerivation(derivation, content, part.getLocalName().equals("simpleContent"));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void collectDerivation(Element derivation, Content content, boolean simple) {
+            String base = localName(derivation.getAttribute("base"));
+            Element baseType = isBuiltIn(derivation.getAttribute("base")) ? null : complexTypes.get(base);
+            if (baseType != null) {
+                collectComplexType(baseType, content, false);
+            } else if (simple) {
+                content.textType = typeNamed(derivation.getAttribute("base"));
+            }
+            if (derivation.getLocalName().equals("extension")) {
+                collectComplexType(derivation, content, false);
+            }
+        }
+
+        private void collectParticles(Element group, Content content, boolean repeated) {
+            boolean groupRepeated = repeated || isRepeated(group);
+            if (group.getLocalName().equals("group") && group.hasAttribute("ref")) {
+                Element definition = groups.get(localName(group.getAttribute("ref")));
+                if (definition != null) {
+                    for (Element model : children(definition)) {
+                        collectParticles(model, content, groupRepeated);
+                    }
+                }
+                return;
+            }
+            for (Element particle : children(group)) {
+                switch (particle.getLocalName()) {
+                    case "element":
+                        content.particles.add(new Particle(particle, groupRepeated || isRepeated(particle)));
+                        break;
+                    case "sequence":
+                    case "choice":
+                    case "all":
+                    case "group":
+                        collectParticles(particle, content, groupRepeated);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void collectAttributeGroup(Element reference, Content content) {
+            Element group = reference.hasAttribute("ref")
+                    ? attributeGroups.get(localName(reference.getAttribute("ref")))
+                    : reference;
+            if (group == null) {
+                return;
+            }
+            for (Element part : children(group)) {
+                if (part.getLocalName().equals("attribute")) {
+                    addAttribute(part, content);
+                } else if (part.getLocalName().equals("attributeGroup")) {
+                    collectAttributeGroup(part, content);
+                }
+            }
+        }
+
+        private void addAttribute(Element attribute, Content content) {
+            String name = attribute.hasAttribute("ref")
+                    ? localName(attribute.getAttribute("ref"))
+                    : attribute.getAttribute("name");
+            if ("prohibited".equals(attribute.getAttribute("use"))) {
+                return;
+            }
+            String type = attribute.hasAttribute("type")
+                    ? typeNamed(attribute.getAttribute("type"))
+                    : simpleTypeOf(attribute);
+            // Attributes carry a sample value; pick one the analyzer classifies as the type
+            content.attributes.put(name, sampleValue(type));
+        }
+
+        private Element resolveElement(Element declaration) {
+            if (!declaration.hasAttribute("ref")) {
+                return declaration;
+            }
+            Element global = elements.get(localName(declaration.getAttribute("ref")));
+            if (global == null) {
+                throw new IllegalArgumentException("Unknown element reference " + declaration.getAttribute("ref"));
+            }
+            return global;
+        }
+
+        private boolean isComplex(Element element) {
+            Element complexType = complexTypeOf(element);
+            if (complexType == null) {
+                return false;
+            }
+            // Complex types with only attributes or simple content still hold a value
+            Content content = new Content();
+            if (!typesInProgress.contains(complexType)) {
+                typesInProgress.push(complexType);
+                collectComplexType(complexType, content, false);
+                typesInProgress.pop();
+                return !content.particles.isEmpty();
+            }
+            return true;
+        }
+
+        private Element complexTypeOf(Element element) {
+            for (Element child : children(element)) {
+                if (child.getLocalName().equals("complexType")) {
+                    return child;
+                }
+            }
+            String type = element.getAttribute("type");
+            return type.isEmpty() || isBuiltIn(type) ? null : complexTypes.get(localName(type));
+        }
+
+        private String simpleTypeOf(Element declaration) {
+            for (Element child : children(declaration)) {
+                if (child.getLocalName().equals("simpleType")) {
+                    return simpleTypeBase(child);
+                }
+            }
+            String type = declaration.getAttribute("type");
+            return type.isEmpty() ? "String" : typeNamed(type);
+        }
+
+        private String typeNamed(String qualifiedName) {
+            if (isBuiltIn(qualifiedName)) {
+                return builtInType(localName(qualifiedName));
+            }
+            Element simpleType = simpleTypes.get(localName(qualifiedName));
+            return simpleType != null ? simpleTypeBase(simpleType) : "String";
+        }
+
+        private String simpleTypeBase(Element simpleType) {
+            for (Element derivation : children(simpleType)) {
+                if (derivation.getLocalName().equals("restriction")) {
+                    if (derivation.hasAttribute("base")) {
+                        return typeNamed(derivation.getAttribute("base"));
+                    }
+                    for (Element inline : children(derivation)) {
+                        if (inline.getLocalName().equals("simpleType")) {
+                            return simpleTypeBase(inline);
+                        }
+                    }
+                }
+            }
+            // Lists and unions are read as text
+            return "String";
+        }
+
+        private boolean isBuiltIn(String qualifiedName) {
+            int colon = qualifiedName.indexOf(':');
+            String prefix = colon < 0 ? null : qualifiedName.substring(0, colon);
+            String local = localName(qualifiedName);
+            String namespace = schema.lookupNamespaceURI(prefix);
+            if (namespace != null) {
+                return namespace.equals(XS);
+            }
+            // Unprefixed names without a default namespace: built in unless declared here
+            return !complexTypes.containsKey(local) && !simpleTypes.containsKey(local);
+        }
+
+        private static boolean isRepeated(Element particle) {
+            String maxOccurs = particle.getAttribute("maxOccurs");
+            return maxOccurs.equals("unbounded") || (!maxOccurs.isEmpty() && Integer.parseInt(maxOccurs) > 1);
+        }
+
+        private static String builtInType(String name) {
+            switch (name) {
+                case "int":
+                case "short":
+                case "byte":
+                case "unsignedShort":
+                case "unsignedByte":
+                    return "Integer";
+                case "long":
+                case "integer":
+                case "unsignedInt":
+                case "unsignedLong":
+                case "positiveInteger":
+                case "negativeInteger":
+                case "nonNegativeInteger":
+                case "nonPositiveInteger":
+                    return "Long";
+                case "decimal":
+                case "float":
+                case "double":
+                    return "Double";
+                case "boolean":
+                    return "Boolean";
+                default:
+                    return "String";
+            }
+        }
+
+        private static String sampleValue(String type) {
+            switch (type) {
+                case "Integer":
+                    return "0";
+                case "Long":
+                    return "2147483648";
+                case "Double":
+                    return "0.5";
+                case "Boolean":
+                    return "true";
+                default:
+                    return "";
+            }
+        }
+
+        private static String localName(String qualifiedName) {
+            return qualifiedName.substring(qualifiedName.indexOf(':') + 1);
+        }
+
+        private static List<Element> children(Element parent) {
+            List<Element> children = new ArrayList<>();
+            NodeList nodes = parent.getChildNodes();
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Node node = nodes.item(i);
+                if (node.getNodeType() == Node.ELEMENT_NODE && XS.equals(node.getNamespaceURI())) {
+                    children.add((Element) node);
+                }
+            }
+            return children;
+        }
+    }
+
+    private static final class Content {
+        private final List<Particle> particles = new ArrayList<>();
+        private final Map<String, String> attributes = new HashMap<>();
+        private String textType = "String";
+    }
+
+    private static final class Particle {
+        private final Element declaration;
+        private final boolean repeated;
+
+        Particle(Element declaration, boolean repeated) {
+            this.declaration = declaration;
+            this.repeated = repeated;
+        }
+    }
+}